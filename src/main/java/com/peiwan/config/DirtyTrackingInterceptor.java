@@ -0,0 +1,43 @@
+package com.peiwan.config;
+
+import com.peiwan.entity.DirtyTrackingEntity;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * 脏字段清理拦截器
+ * 查询结果映射完成后、以及insert/update执行后清空实体的脏字段记录，
+ * 使后续updateById只写出业务代码真正修改过的列
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Intercepts({
+        @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class DirtyTrackingInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (invocation.getTarget() instanceof ResultSetHandler) {
+            for (Object row : (List<?>) result) {
+                if (row instanceof DirtyTrackingEntity entity) {
+                    entity.clearDirty();
+                }
+            }
+        } else if (invocation.getArgs()[1] instanceof DirtyTrackingEntity entity) {
+            entity.clearDirty();
+        }
+        return result;
+    }
+}
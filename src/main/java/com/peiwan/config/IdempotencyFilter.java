@@ -0,0 +1,257 @@
+package com.peiwan.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.peiwan.dto.ApiResponse;
+import com.peiwan.service.support.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 幂等过滤器
+ * 工单创建和状态迁移等写接口按 (X-User-Id, X-Request-Id) 去重：
+ * 首次请求正常执行，成功响应保存到IdempotencyStore；
+ * 客户端重试时直接回放首次响应，不再进入Controller和Service。
+ * 请求指纹包含方法、路径和请求体摘要，同一请求ID换了请求体时返回422；
+ * 请求体在内存中缓存以计算摘要，超过order.idempotency.max-body-bytes时返回413，不读入超出的部分。
+ * 失败的响应不保存，客户端可用同一请求ID重试。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final String[] paths;
+    private final int maxBodyBytes;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper,
+                             @Value("${order.idempotency.paths:/cs/orders,/cs/orders/**,/employee/orders/**}") String[] paths,
+                             @Value("${order.idempotency.max-body-bytes:1048576}") int maxBodyBytes) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.paths = paths;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = pathOf(request);
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader("X-Request-Id");
+        Long userId = parseUserId(request.getHeader("X-User-Id"));
+        if (userId == null || requestId == null || requestId.isBlank() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // 先读出请求体计算摘要，下游从缓存的字节重新读取；声明长度或实际读到的字节超过上限时不再继续读
+        byte[] requestBody = request.getContentLengthLong() > maxBodyBytes ? null : readBody(request);
+        if (requestBody == null) {
+            writeError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "请求体过大", requestId);
+            return;
+        }
+        HttpServletRequest cachedRequest = new CachedBodyRequest(request, requestBody);
+        String fingerprint = request.getMethod() + " " + pathOf(request) + " " + sha256(requestBody);
+        IdempotencyStore.Claim claim = store.claim(userId, requestId, fingerprint);
+        switch (claim.getType()) {
+            case REPLAY -> {
+                response.setHeader(REPLAYED_HEADER, "true");
+                writeJson(response, claim.getBody());
+                return;
+            }
+            case IN_PROGRESS -> {
+                writeError(response, 409, "请求正在处理中，请稍后重试", requestId);
+                return;
+            }
+            case MISMATCH -> {
+                writeError(response, 422, "X-Request-Id已用于其他请求", requestId);
+                return;
+            }
+            default -> {
+                // ACQUIRED：首次请求，继续执行
+            }
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean saved = false;
+        try {
+            filterChain.doFilter(cachedRequest, wrapper);
+            byte[] body = wrapper.getContentAsByteArray();
+            if (isSuccess(wrapper.getStatus(), body)) {
+                store.complete(userId, requestId, fingerprint, new String(body, StandardCharsets.UTF_8));
+                saved = true;
+            }
+        } finally {
+            if (!saved) {
+                store.release(userId, requestId);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * 最多读入上限加一个字节，超过上限时返回null
+     */
+    private byte[] readBody(HttpServletRequest request) throws IOException {
+        byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        return body.length > maxBodyBytes ? null : body;
+    }
+
+    /**
+     * 只保存成功的响应：HTTP 200且ApiResponse的code为200
+     */
+    private boolean isSuccess(int status, byte[] body) {
+        if (status != HttpServletResponse.SC_OK || body.length == 0) {
+            return false;
+        }
+        try {
+            JsonNode code = objectMapper.readTree(body).get("code");
+            return code != null && code.asInt() == 200;
+        } catch (IOException e) {
+            log.debug("响应体不是JSON，不保存幂等记录: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeError(HttpServletResponse response, int code, String message, String requestId) throws IOException {
+        writeJson(response, code, objectMapper.writeValueAsString(ApiResponse.error(code, message).requestId(requestId)));
+    }
+
+    private static void writeJson(HttpServletResponse response, String body) throws IOException {
+        writeJson(response, HttpServletResponse.SC_OK, body);
+    }
+
+    private static void writeJson(HttpServletResponse response, int status, String body) throws IOException {
+        response.setStatus(status);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(body);
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Long parseUserId(String userIdStr) {
+        if (userIdStr == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(userIdStr.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 请求体已被读出摘要的请求，getInputStream/getReader从缓存的字节重新读取
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * 请求体已全部在内存中，立即通知可读和读取完毕
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.peiwan.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
@@ -11,4 +14,21 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class MybatisConfig {
     // MyBatis配置将通过application.yml和PageHelper自动配置
+
+    /**
+     * 脏字段清理拦截器，配合updateById的动态SET只写出修改过的列
+     */
+    @Bean
+    public DirtyTrackingInterceptor dirtyTrackingInterceptor() {
+        return new DirtyTrackingInterceptor();
+    }
+
+    /**
+     * 查询计划检查拦截器，仅在order.plan-check.enabled=true时启用
+     */
+    @Bean
+    @ConditionalOnProperty(name = "order.plan-check.enabled", havingValue = "true")
+    public QueryPlanInterceptor queryPlanInterceptor(@Value("${order.plan-check.row-threshold:1000}") long rowThreshold) {
+        return new QueryPlanInterceptor(rowThreshold);
+    }
 }
@@ -0,0 +1,134 @@
+package com.peiwan.config;
+
+import com.peiwan.dto.QueryPlanReport;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 查询计划检查拦截器
+ * 每条Mapper查询语句（按语句ID和生成的SQL区分动态SQL的不同分支）首次执行时，
+ * 用相同的参数在同一连接上执行EXPLAIN，预估行数超过阈值的全表扫描或filesort记录为问题并告警。
+ * 用于测试环境跑完业务流程后核对索引是否覆盖所有查询，默认关闭（order.plan-check.enabled）
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class QueryPlanInterceptor implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanInterceptor.class);
+
+    /**
+     * 已检查的SQL数量上限，防止异常的动态SQL撑大内存
+     */
+    private static final int MAX_CHECKED = 2000;
+
+    private final long rowThreshold;
+    private final Set<String> checked = ConcurrentHashMap.newKeySet();
+    private final Map<String, QueryPlanReport> violations = new ConcurrentHashMap<>();
+
+    public QueryPlanInterceptor(long rowThreshold) {
+        this.rowThreshold = rowThreshold;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        if (ms.getSqlCommandType() == SqlCommandType.SELECT && checked.size() < MAX_CHECKED) {
+            Object parameter = invocation.getArgs()[1];
+            BoundSql boundSql = ms.getBoundSql(parameter);
+            if (checked.add(ms.getId() + "\n" + boundSql.getSql())) {
+                explain((Executor) invocation.getTarget(), ms, parameter, boundSql);
+            }
+        }
+        return invocation.proceed();
+    }
+
+    /**
+     * 已发现的问题，按语句和表去重
+     */
+    public List<QueryPlanReport> violations() {
+        return new ArrayList<>(violations.values());
+    }
+
+    private void explain(Executor executor, MappedStatement ms, Object parameter, BoundSql boundSql) {
+        try {
+            Connection connection = executor.getTransaction().getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+                new DefaultParameterHandler(ms, parameter, boundSql).setParameters(statement);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        check(ms.getId(), boundSql.getSql(), rs);
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // 检查失败不影响业务查询
+            log.debug("EXPLAIN失败: {} - {}", ms.getId(), e.getMessage());
+        }
+    }
+
+    private void check(String statementId, String sql, ResultSet rs) throws SQLException {
+        QueryPlanReport report = inspect(statementId, sql, rs, rowThreshold);
+        if (report == null) {
+            return;
+        }
+        violations.put(statementId + "@" + report.getTable(), report);
+        log.warn("查询计划问题: {} 表{} type={} rows={} extra={}", statementId, report.getTable(),
+                report.getType(), report.getRows(), report.getExtra());
+    }
+
+    /**
+     * 判定EXPLAIN的当前行：预估行数达到阈值的全表扫描或filesort返回问题报告，否则返回null
+     */
+    public static QueryPlanReport inspect(String statementId, String sql, ResultSet rs, long rowThreshold) throws SQLException {
+        long rows = rs.getLong("rows");
+        if (rs.wasNull() || rows < rowThreshold) {
+            return null;
+        }
+        String type = rs.getString("type");
+        String extra = rs.getString("Extra");
+        boolean fullScan = "ALL".equals(type);
+        boolean filesort = extra != null && extra.contains("Using filesort");
+        if (!fullScan && !filesort) {
+            return null;
+        }
+        QueryPlanReport report = new QueryPlanReport();
+        report.setStatementId(statementId);
+        report.setSql(sql);
+        report.setTable(rs.getString("table"));
+        report.setType(type);
+        report.setKey(rs.getString("key"));
+        report.setRows(rows);
+        report.setExtra(extra);
+        report.setCheckedAt(LocalDateTime.now());
+        return report;
+    }
+}
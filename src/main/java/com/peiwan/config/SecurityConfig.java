@@ -1,8 +1,13 @@
 package com.peiwan.config;
 
+import com.peiwan.security.AccessTokenService;
 import com.peiwan.security.CustomPermissionEvaluator;
 import com.peiwan.security.SessionAuthenticationFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
@@ -11,6 +16,8 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
@@ -35,6 +42,7 @@ public class SecurityConfig {
 
     private final SessionAuthenticationFilter sessionAuthenticationFilter;
     private final CustomPermissionEvaluator permissionEvaluator;
+    private final ObjectProvider<AccessTokenService> accessTokenService;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -43,7 +51,7 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))  // 配置CORS
             .authorizeHttpRequests(authz -> authz
                 // 公开接口（无需认证）
-                .requestMatchers("/auth/login", "/auth/register", "/auth/check-username/**", "/auth/check-phone/**").permitAll()
+                .requestMatchers("/auth/login", "/auth/register", "/auth/refresh", "/auth/check-username/**", "/auth/check-phone/**").permitAll()
                 .requestMatchers("/doc.html", "/webjars/**", "/v3/api-docs/**", "/swagger-resources/**").permitAll()
                 .requestMatchers("/druid/**").permitAll()
                 .requestMatchers("/upload/**").permitAll()  // 文件上传接口
@@ -63,15 +71,38 @@ public class SecurityConfig {
             // 添加Session认证过滤器
             .addFilterBefore(sessionAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
             .formLogin(AbstractHttpConfigurer::disable)  // 禁用表单登录
+            .requestCache(AbstractHttpConfigurer::disable)  // 接口不需要登录后跳回原请求，也不把请求对象存入会话
             .logout(logout -> logout
                 .logoutUrl("/auth/logout")
+                .addLogoutHandler(this::revokeTokensOnLogout)
                 .logoutSuccessUrl("/auth/login")
                 .permitAll()
             );
 
+        // 令牌模式下不创建也不读取会话
+        if (accessTokenService.getIfAvailable() != null) {
+            http.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+        }
+
         return http.build();
     }
 
+    /**
+     * 令牌模式下登出时吊销该用户已签发的全部令牌
+     * 登出过滤器先于令牌认证执行，这里直接校验请求头中的访问令牌
+     */
+    private void revokeTokensOnLogout(HttpServletRequest request, HttpServletResponse response,
+                                      Authentication authentication) {
+        AccessTokenService tokenService = accessTokenService.getIfAvailable();
+        if (tokenService == null) {
+            return;
+        }
+        AccessTokenService.TokenClaims claims = tokenService.verifyRequest(request);
+        if (claims != null) {
+            tokenService.revoke(claims.getUserId());
+        }
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -87,8 +118,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${peiwan.auth.password.cost:10}") int cost) {
+        return new BCryptPasswordEncoder(cost);
     }
 
     /**
@@ -0,0 +1,33 @@
+package com.peiwan.config;
+
+import com.peiwan.mapper.HttpSessionMapper;
+import com.peiwan.security.JdbcSessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import java.time.Duration;
+
+/**
+ * 会话存储配置
+ * peiwan.session.store=jdbc（默认）时由SessionRepositoryFilter接管HttpSession，会话保存在数据库中，
+ * 任意节点都能识别同一个会话；设为memory时沿用容器内存会话（单节点开发调试用）
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(name = "peiwan.session.store", havingValue = "jdbc", matchIfMissing = true)
+public class SessionConfig {
+
+    @Bean
+    public JdbcSessionRepository sessionRepository(HttpSessionMapper httpSessionMapper,
+                                                   @Value("${peiwan.session.default-max-inactive-seconds:1800}") long defaultMaxInactiveSeconds,
+                                                   @Value("${peiwan.session.cleanup-batch-size:1000}") int cleanupBatchSize) {
+        return new JdbcSessionRepository(httpSessionMapper, Duration.ofSeconds(defaultMaxInactiveSeconds),
+                cleanupBatchSize);
+    }
+}
@@ -1,20 +1,50 @@
 package com.peiwan.controller;
 
-import cn.hutool.crypto.digest.BCrypt;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.peiwan.dto.ApiResponse;
+import com.peiwan.config.QueryPlanInterceptor;
+import com.peiwan.dto.CursorPage;
+import com.peiwan.dto.QueryPlanReport;
 import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderDailyStat;
+import com.peiwan.entity.OrderStatusCounter;
 import com.peiwan.entity.User;
+import com.peiwan.security.LoginThrottle;
+import com.peiwan.security.PasswordHasher;
+import com.peiwan.security.PrincipalCache;
+import com.peiwan.service.OrderReportService;
 import com.peiwan.service.OrderService;
 import com.peiwan.service.UserService;
+import com.peiwan.service.support.OrderEventBus;
+import com.peiwan.service.support.OrderStateMachine;
+import com.peiwan.service.support.OrderTransition;
+import com.peiwan.util.OrderExportWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 管理员控制器
@@ -29,12 +59,39 @@ public class AdminController {
 
     private static final Logger log = LoggerFactory.getLogger(AdminController.class);
 
+    /**
+     * 导出写缓冲大小，超出即刷到响应流
+     */
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+
     private final UserService userService;
     private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final ObjectProvider<QueryPlanInterceptor> queryPlanInterceptor;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderReportService orderReportService;
+    private final OrderEventBus orderEventBus;
+    private final PrincipalCache principalCache;
+    private final PasswordHasher passwordHasher;
+    private final LoginThrottle loginThrottle;
 
-    public AdminController(UserService userService, OrderService orderService) {
+    public AdminController(UserService userService, OrderService orderService, ObjectMapper objectMapper,
+                           CacheManager cacheManager, ObjectProvider<QueryPlanInterceptor> queryPlanInterceptor,
+                           OrderStateMachine orderStateMachine, OrderReportService orderReportService,
+                           OrderEventBus orderEventBus, PrincipalCache principalCache,
+                           PasswordHasher passwordHasher, LoginThrottle loginThrottle) {
         this.userService = userService;
         this.orderService = orderService;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.queryPlanInterceptor = queryPlanInterceptor;
+        this.orderStateMachine = orderStateMachine;
+        this.orderReportService = orderReportService;
+        this.orderEventBus = orderEventBus;
+        this.principalCache = principalCache;
+        this.passwordHasher = passwordHasher;
+        this.loginThrottle = loginThrottle;
     }
 
     @GetMapping("/users")
@@ -52,11 +109,18 @@ public class AdminController {
     }
 
     @GetMapping("/orders")
-    @Operation(summary = "获取所有工单", description = "管理员获取所有工单列表")
-    public ApiResponse<List<Order>> getAllOrders(HttpServletRequest httpRequest) {
+    @Operation(summary = "获取所有工单", description = "管理员获取所有工单列表（可按状态筛选，游标分页）")
+    public ApiResponse<List<Order>> getAllOrders(@RequestParam(required = false) Order.OrderStatus status,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size,
+                                                 @RequestParam(defaultValue = "false") boolean includeArchive,
+                                                 @RequestParam(required = false) String include,
+                                                 HttpServletRequest httpRequest) {
         try {
-            List<Order> orders = orderService.findByStatus(null);
-            return ApiResponse.success("获取工单列表成功", orders)
+            CursorPage<Order> page = orderService.findPage(null, null, status, cursor, size, includeArchive);
+            orderService.applyIncludes(page.getItems(), include, includeArchive);
+            return ApiResponse.success("获取工单列表成功", page.getItems())
+                    .nextCursor(page.getNextCursor())
                     .requestId(httpRequest.getHeader("X-Request-Id"));
         } catch (Exception e) {
             log.error("获取工单列表失败: {}", e.getMessage());
@@ -65,12 +129,51 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/orders/export")
+    @Operation(summary = "导出工单", description = "管理员按状态、客服、员工和创建日期范围流式导出工单（csv或ndjson）")
+    public void exportOrders(@RequestParam(defaultValue = "csv") String format,
+                             @RequestParam(required = false) Order.OrderStatus status,
+                             @RequestParam(required = false) Long csId,
+                             @RequestParam(required = false) Long employeeId,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             @RequestParam(defaultValue = "false") boolean includeArchive,
+                             HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new RuntimeException("不支持的导出格式: " + format);
+        }
+
+        String fileName = "orders-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
+                + (csv ? ".csv" : ".ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        OrderExportWriter exportWriter = OrderExportWriter.create(format, writer, objectMapper);
+        long rows = orderService.exportOrders(status, csId, employeeId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                includeArchive,
+                order -> {
+                    try {
+                        exportWriter.write(order);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        exportWriter.finish();
+        log.info("工单导出完成: format={}, rows={}", format, rows);
+    }
+
     @PostMapping("/users")
     @Operation(summary = "创建客服用户", description = "管理员创建新客服用户，默认密码为123456")
     public ApiResponse<User> createUser(@RequestBody User user, HttpServletRequest httpRequest) {
         try {
             //管理员创建的用户默认密码为123456
-            user.setPasswordHash(BCrypt.hashpw("123456", BCrypt.gensalt()));
+            user.setPasswordHash(passwordHasher.hash("123456"));
             user.setCreatedAt(LocalDateTime.now());
             user.setUpdatedAt(LocalDateTime.now());
             user.setRole(User.UserRole.CS);
@@ -112,5 +215,82 @@ public class AdminController {
                     .requestId(httpRequest.getHeader("X-Request-Id"));
         }
     }
-}
 
+    @GetMapping("/reports/daily")
+    @Operation(summary = "工单日报", description = "按天查询员工或客服的创建、接单、完成、审核数及接单/完成耗时中位数（读预聚合日报表）")
+    public ApiResponse<List<OrderDailyStat>> getDailyReport(@RequestParam OrderStatusCounter.OwnerType ownerType,
+                                                            @RequestParam(required = false) Long ownerId,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            HttpServletRequest httpRequest) {
+        try {
+            List<OrderDailyStat> stats = orderReportService.findDailyStats(ownerType, ownerId, from, to);
+            return ApiResponse.success("获取工单日报成功", stats)
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.error("获取工单日报失败: {}", e.getMessage());
+            return ApiResponse.<List<OrderDailyStat>>error(400, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+
+    @GetMapping("/metrics/caches")
+    @Operation(summary = "缓存统计", description = "各缓存（含认证用户缓存principals）的命中率、淘汰数和当前条目数")
+    public ApiResponse<Map<String, Map<String, Object>>> getCacheMetrics(HttpServletRequest httpRequest) {
+        Map<String, Map<String, Object>> metrics = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                metrics.put(name, cacheMetrics(cache.getNativeCache()));
+            }
+        }
+        metrics.put("principals", cacheMetrics(principalCache.nativeCache()));
+        return ApiResponse.success("获取缓存统计成功", metrics)
+                .requestId(httpRequest.getHeader("X-Request-Id"));
+    }
+
+    private static Map<String, Object> cacheMetrics(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("size", cache.estimatedSize());
+        item.put("hitCount", stats.hitCount());
+        item.put("missCount", stats.missCount());
+        item.put("hitRate", stats.hitRate());
+        item.put("evictionCount", stats.evictionCount());
+        return item;
+    }
+
+    @GetMapping("/metrics/transitions")
+    @Operation(summary = "工单状态迁移统计", description = "各状态迁移的执行次数、拒绝次数和耗时分位数")
+    public ApiResponse<Map<OrderTransition, Map<String, Object>>> getTransitionMetrics(HttpServletRequest httpRequest) {
+        return ApiResponse.success("获取迁移统计成功", orderStateMachine.metricsSnapshot())
+                .requestId(httpRequest.getHeader("X-Request-Id"));
+    }
+
+    @GetMapping("/metrics/events")
+    @Operation(summary = "工单事件总线统计", description = "事件缓冲区深度、丢弃数和各处理器的积压、延迟")
+    public ApiResponse<Map<String, Object>> getEventMetrics(HttpServletRequest httpRequest) {
+        return ApiResponse.success("获取事件总线统计成功", orderEventBus.metricsSnapshot())
+                .requestId(httpRequest.getHeader("X-Request-Id"));
+    }
+
+    @GetMapping("/metrics/password-hashing")
+    @Operation(summary = "密码哈希统计", description = "密码哈希线程池的排队、拒绝和超时次数，当前cost的实测耗时，以及登录节流拦截情况")
+    public ApiResponse<Map<String, Object>> getPasswordHashingMetrics(HttpServletRequest httpRequest) {
+        Map<String, Object> metrics = new LinkedHashMap<>(passwordHasher.metricsSnapshot());
+        metrics.put("throttle", loginThrottle.metricsSnapshot());
+        return ApiResponse.success("获取密码哈希统计成功", metrics)
+                .requestId(httpRequest.getHeader("X-Request-Id"));
+    }
+
+    @GetMapping("/metrics/query-plans")
+    @Operation(summary = "查询计划问题", description = "已执行的Mapper查询中超过行数阈值的全表扫描和filesort（需开启order.plan-check.enabled）")
+    public ApiResponse<List<QueryPlanReport>> getQueryPlanViolations(HttpServletRequest httpRequest) {
+        QueryPlanInterceptor interceptor = queryPlanInterceptor.getIfAvailable();
+        if (interceptor == null) {
+            return ApiResponse.<List<QueryPlanReport>>error(400, "查询计划检查未开启")
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+        return ApiResponse.success("获取查询计划问题成功", interceptor.violations())
+                .requestId(httpRequest.getHeader("X-Request-Id"));
+    }
+}
@@ -5,7 +5,9 @@ import com.peiwan.dto.ChangePasswordRequest;
 import com.peiwan.dto.LoginRequest;
 import com.peiwan.dto.LoginResponse;
 import com.peiwan.dto.RegisterRequest;
+import com.peiwan.dto.TokenRefreshRequest;
 import com.peiwan.entity.User;
+import com.peiwan.security.SecurityUtils;
 import com.peiwan.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,6 +16,7 @@ import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -31,21 +34,33 @@ public class AuthController {
 
     private final UserService userService;
 
-    public AuthController(UserService userService) {
+    /**
+     * 令牌模式：登录态由访问令牌携带，不使用session
+     */
+    private final boolean tokenMode;
+
+    public AuthController(UserService userService,
+                          @Value("${peiwan.auth.mode:session}") String authMode) {
         this.userService = userService;
+        this.tokenMode = "token".equals(authMode);
     }
 
     @PostMapping("/login")
     @Operation(summary = "用户登录", description = "用户使用用户名和密码登录系统")
-    public ApiResponse<LoginResponse> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest, HttpSession session) {
+    public ApiResponse<LoginResponse> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest) {
         try {
-            LoginResponse response = userService.login(request);
+            LoginResponse response = userService.login(request, httpRequest.getRemoteAddr());
+            if (tokenMode) {
+                return ApiResponse.<LoginResponse>success("登录成功", response)
+                        .requestId(httpRequest.getHeader("X-Request-Id"));
+            }
             
-            // 将用户信息存储到session中
-            User user = userService.findByUsername(request.getUsername());
+            // 将用户信息存储到session中（直接使用登录结果，不再查询用户）
+            HttpSession session = httpRequest.getSession();
+            LoginResponse.UserInfo user = response.getUser();
             session.setAttribute("userId", user.getId());
             session.setAttribute("username", user.getUsername());
-            session.setAttribute("userRole", user.getRole().name());
+            session.setAttribute("userRole", user.getRole());
             
             // 根据rememberMe设置session过期时间
             Boolean rememberMe = request.getRememberMe();
@@ -68,6 +83,20 @@ public class AuthController {
         }
     }
 
+    @PostMapping("/refresh")
+    @Operation(summary = "刷新令牌", description = "令牌模式下用刷新令牌换取新的访问令牌和刷新令牌，原刷新令牌随即作废")
+    public ApiResponse<LoginResponse> refresh(@Valid @RequestBody TokenRefreshRequest request, HttpServletRequest httpRequest) {
+        try {
+            LoginResponse response = userService.refreshToken(request.getRefreshToken());
+            return ApiResponse.<LoginResponse>success("刷新成功", response)
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.warn("刷新令牌失败: {}", e.getMessage());
+            return ApiResponse.<LoginResponse>error(401, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+
     @PostMapping("/register")
     @Operation(summary = "用户注册", description = "新用户注册账号")
     public ApiResponse<User> register(@Valid @RequestBody RegisterRequest request, HttpServletRequest httpRequest) {
@@ -119,10 +148,9 @@ public class AuthController {
 
     @GetMapping("/me")
     @Operation(summary = "获取当前用户信息", description = "获取当前登录用户的详细信息")
-    public ApiResponse<User> getCurrentUser(HttpServletRequest httpRequest, HttpSession session) {
+    public ApiResponse<User> getCurrentUser(HttpServletRequest httpRequest) {
         try {
-            // 从session中获取用户ID
-            Long userId = (Long) session.getAttribute("userId");
+            Long userId = currentUserId(httpRequest);
             if (userId == null) {
                 return ApiResponse.<User>error(401, "未找到用户信息")
                         .requestId(httpRequest.getHeader("X-Request-Id"));
@@ -176,11 +204,9 @@ public class AuthController {
     @PostMapping("/change-password")
     @Operation(summary = "修改用户密码", description = "用户修改自己的登录密码")
     public ApiResponse<Void> changePassword(@Valid @RequestBody ChangePasswordRequest request, 
-                                          HttpServletRequest httpRequest, 
-                                          HttpSession session) {
+                                          HttpServletRequest httpRequest) {
         try {
-            // 从session中获取用户ID
-            Long userId = (Long) session.getAttribute("userId");
+            Long userId = currentUserId(httpRequest);
             if (userId == null) {
                 return ApiResponse.<Void>error(401, "用户未登录")
                         .requestId(httpRequest.getHeader("X-Request-Id"));
@@ -197,4 +223,15 @@ public class AuthController {
                     .requestId(httpRequest.getHeader("X-Request-Id"));
         }
     }
+
+    /**
+     * 当前登录用户ID：令牌模式取自已认证的令牌，会话模式取自session（不创建新session）
+     */
+    private Long currentUserId(HttpServletRequest httpRequest) {
+        if (tokenMode) {
+            return SecurityUtils.getCurrentUserId();
+        }
+        HttpSession session = httpRequest.getSession(false);
+        return session != null ? (Long) session.getAttribute("userId") : null;
+    }
 }
@@ -1,20 +1,31 @@
 package com.peiwan.controller;
 
 import com.peiwan.dto.ApiResponse;
+import com.peiwan.dto.CursorPage;
 import com.peiwan.dto.OrderAuditRequest;
+import com.peiwan.dto.OrderBatchAuditRequest;
+import com.peiwan.dto.OrderBatchAuditResult;
 import com.peiwan.dto.OrderCreateRequest;
 import com.peiwan.entity.EmployeeProfile;
 import com.peiwan.entity.Order;
+import com.peiwan.exception.OrderConflictException;
+import com.peiwan.security.SecurityUtils;
 import com.peiwan.service.EmployeeService;
+import com.peiwan.service.OrderCounterService;
 import com.peiwan.service.OrderService;
+import com.peiwan.service.support.OrderPushHub;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 客服控制器
@@ -31,10 +42,15 @@ public class CustomerServiceController {
 
     private final EmployeeService employeeService;
     private final OrderService orderService;
+    private final OrderCounterService orderCounterService;
+    private final OrderPushHub orderPushHub;
 
-    public CustomerServiceController(EmployeeService employeeService, OrderService orderService) {
+    public CustomerServiceController(EmployeeService employeeService, OrderService orderService,
+                                     OrderCounterService orderCounterService, OrderPushHub orderPushHub) {
         this.employeeService = employeeService;
         this.orderService = orderService;
+        this.orderCounterService = orderCounterService;
+        this.orderPushHub = orderPushHub;
     }
 
     @GetMapping("/employees")
@@ -82,8 +98,12 @@ public class CustomerServiceController {
     }
 
     @GetMapping("/orders")
-    @Operation(summary = "获取派发的工单", description = "客服获取派发的工单列表")
-    public ApiResponse<List<Order>> getOrders(HttpServletRequest httpRequest) {
+    @Operation(summary = "获取派发的工单", description = "客服获取派发的工单列表（游标分页，下一页游标见nextCursor）")
+    public ApiResponse<List<Order>> getOrders(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer size,
+                                              @RequestParam(defaultValue = "false") boolean includeArchive,
+                                              @RequestParam(required = false) String include,
+                                              HttpServletRequest httpRequest) {
         try {
             // 从请求头获取客服ID
             String csUserIdStr = httpRequest.getHeader("X-User-Id");
@@ -93,8 +113,10 @@ public class CustomerServiceController {
             }
 
             Long csUserId = Long.parseLong(csUserIdStr);
-            List<Order> orders = orderService.findByCsId(csUserId);
-            return ApiResponse.success("获取工单列表成功", orders)
+            CursorPage<Order> page = orderService.findPage(csUserId, null, null, cursor, size, includeArchive);
+            orderService.applyIncludes(page.getItems(), include, includeArchive);
+            return ApiResponse.success("获取工单列表成功", page.getItems())
+                    .nextCursor(page.getNextCursor())
                     .requestId(httpRequest.getHeader("X-Request-Id"));
         } catch (Exception e) {
             log.error("获取工单列表失败: {}", e.getMessage());
@@ -104,8 +126,13 @@ public class CustomerServiceController {
     }
 
     @GetMapping("/employees/{employeeId}/orders")
-    @Operation(summary = "获取指定员工的工单", description = "客服获取指定员工下委派的工单列表")
-    public ApiResponse<List<Order>> getEmployeeOrders(@PathVariable Long employeeId, HttpServletRequest httpRequest) {
+    @Operation(summary = "获取指定员工的工单", description = "客服获取指定员工下委派的工单列表（游标分页）")
+    public ApiResponse<List<Order>> getEmployeeOrders(@PathVariable Long employeeId,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer size,
+                                                      @RequestParam(defaultValue = "false") boolean includeArchive,
+                                                      @RequestParam(required = false) String include,
+                                                      HttpServletRequest httpRequest) {
         try {
             // 从请求头获取客服ID
             String csUserIdStr = httpRequest.getHeader("X-User-Id");
@@ -115,8 +142,10 @@ public class CustomerServiceController {
             }
 
             Long csUserId = Long.parseLong(csUserIdStr);
-            List<Order> orders = orderService.findByCsIdAndEmployeeId(csUserId, employeeId);
-            return ApiResponse.success("获取员工工单列表成功", orders)
+            CursorPage<Order> page = orderService.findPage(csUserId, employeeId, null, cursor, size, includeArchive);
+            orderService.applyIncludes(page.getItems(), include, includeArchive);
+            return ApiResponse.success("获取员工工单列表成功", page.getItems())
+                    .nextCursor(page.getNextCursor())
                     .requestId(httpRequest.getHeader("X-Request-Id"));
         } catch (Exception e) {
             log.error("获取员工工单列表失败: {}", e.getMessage());
@@ -125,6 +154,98 @@ public class CustomerServiceController {
         }
     }
 
+    @GetMapping("/orders/search")
+    @Operation(summary = "搜索工单", description = "客服按客户信息或工单编号片段搜索自己派发的工单（游标分页）")
+    public ApiResponse<List<Order>> searchOrders(@RequestParam String q,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size,
+                                                 @RequestParam(required = false) String include,
+                                                 HttpServletRequest httpRequest) {
+        try {
+            // 从请求头获取客服ID
+            String csUserIdStr = httpRequest.getHeader("X-User-Id");
+            if (csUserIdStr == null) {
+                return ApiResponse.<List<Order>>error(401, "未找到用户信息")
+                        .requestId(httpRequest.getHeader("X-Request-Id"));
+            }
+
+            Long csUserId = Long.parseLong(csUserIdStr);
+            CursorPage<Order> page = orderService.searchOrders(csUserId, q, cursor, size);
+            orderService.applyIncludes(page.getItems(), include, false);
+            return ApiResponse.success("搜索工单成功", page.getItems())
+                    .nextCursor(page.getNextCursor())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.error("搜索工单失败: {}", e.getMessage());
+            return ApiResponse.<List<Order>>error(400, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+
+    @GetMapping(value = "/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅工单推送", description = "SSE推送所派工单的超时升级，断线重连时按Last-Event-ID补发")
+    public SseEmitter streamOrders(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                   HttpServletRequest httpRequest) {
+        // EventSource无法设置自定义请求头，优先从Session认证信息获取客服ID
+        Long csUserId = SecurityUtils.getCurrentUserId();
+        if (csUserId == null) {
+            String csUserIdStr = httpRequest.getHeader("X-User-Id");
+            if (csUserIdStr == null) {
+                throw new RuntimeException("未找到用户信息");
+            }
+            csUserId = Long.parseLong(csUserIdStr);
+        }
+        return orderPushHub.subscribe(csUserId, lastEventId);
+    }
+
+    @GetMapping("/orders/counts")
+    @Operation(summary = "获取各状态工单数", description = "客服获取派发工单在各状态的数量（用于标签角标）")
+    public ApiResponse<Map<Order.OrderStatus, Long>> getOrderCounts(HttpServletRequest httpRequest) {
+        try {
+            // 从请求头获取客服ID
+            String csUserIdStr = httpRequest.getHeader("X-User-Id");
+            if (csUserIdStr == null) {
+                return ApiResponse.<Map<Order.OrderStatus, Long>>error(401, "未找到用户信息")
+                        .requestId(httpRequest.getHeader("X-Request-Id"));
+            }
+
+            Long csUserId = Long.parseLong(csUserIdStr);
+            Map<Order.OrderStatus, Long> counts = orderCounterService.countsForCs(csUserId);
+            return ApiResponse.success("获取工单数量成功", counts)
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.error("获取工单数量失败: {}", e.getMessage());
+            return ApiResponse.<Map<Order.OrderStatus, Long>>error(500, "获取工单数量失败")
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+
+    @PostMapping("/orders/batch-audit")
+    @Operation(summary = "批量审核工单", description = "客服一次审核多个工单，逐个返回审核结果")
+    public ApiResponse<List<OrderBatchAuditResult>> batchAuditOrders(@Valid @RequestBody OrderBatchAuditRequest request, HttpServletRequest httpRequest) {
+        try {
+            // 从请求头获取审核人ID
+            String auditorIdStr = httpRequest.getHeader("X-User-Id");
+            if (auditorIdStr == null) {
+                return ApiResponse.<List<OrderBatchAuditResult>>error(401, "未找到用户信息")
+                        .requestId(httpRequest.getHeader("X-Request-Id"));
+            }
+
+            Long auditorId = Long.parseLong(auditorIdStr);
+            List<OrderBatchAuditResult> results = orderService.batchAuditOrders(request.getItems(), auditorId);
+            return ApiResponse.success("批量审核完成", results)
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (OrderConflictException e) {
+            log.warn("批量审核工单冲突: {}", e.getMessage());
+            return ApiResponse.<List<OrderBatchAuditResult>>error(409, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.error("批量审核工单失败: {}", e.getMessage());
+            return ApiResponse.<List<OrderBatchAuditResult>>error(400, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+
     @PostMapping("/orders/{orderId}/audit")
     @Operation(summary = "审核工单", description = "客服审核工单")
     public ApiResponse<Order> auditOrder(@PathVariable Long orderId, @RequestBody OrderAuditRequest request, HttpServletRequest httpRequest) {
@@ -140,6 +261,10 @@ public class CustomerServiceController {
             Order order = orderService.auditOrder(orderId, request, auditorId);
             return ApiResponse.success("工单审核成功", order)
                     .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (OrderConflictException e) {
+            log.warn("审核工单冲突: orderId={}, {}", orderId, e.getMessage());
+            return ApiResponse.<Order>error(409, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
         } catch (Exception e) {
             log.error("审核工单失败: {}", e.getMessage());
             return ApiResponse.<Order>error(400, e.getMessage())
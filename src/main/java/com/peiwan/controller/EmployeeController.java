@@ -1,21 +1,29 @@
 package com.peiwan.controller;
 
 import com.peiwan.dto.ApiResponse;
+import com.peiwan.dto.CursorPage;
 import com.peiwan.dto.OrderCompleteRequest;
 import com.peiwan.dto.OrderAcceptRequest;
 import com.peiwan.entity.EmployeeProfile;
 import com.peiwan.entity.GameSkill;
 import com.peiwan.entity.Order;
+import com.peiwan.exception.OrderConflictException;
 import com.peiwan.service.EmployeeService;
+import com.peiwan.security.SecurityUtils;
+import com.peiwan.service.OrderCounterService;
 import com.peiwan.service.OrderService;
+import com.peiwan.service.support.OrderPushHub;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 员工控制器
@@ -32,10 +40,15 @@ public class EmployeeController {
 
     private final EmployeeService employeeService;
     private final OrderService orderService;
+    private final OrderCounterService orderCounterService;
+    private final OrderPushHub orderPushHub;
 
-    public EmployeeController(EmployeeService employeeService, OrderService orderService) {
+    public EmployeeController(EmployeeService employeeService, OrderService orderService,
+                              OrderCounterService orderCounterService, OrderPushHub orderPushHub) {
         this.employeeService = employeeService;
         this.orderService = orderService;
+        this.orderCounterService = orderCounterService;
+        this.orderPushHub = orderPushHub;
     }
 
     @GetMapping("/profile")
@@ -88,8 +101,12 @@ public class EmployeeController {
     }
 
     @GetMapping("/orders")
-    @Operation(summary = "获取分配的工单", description = "员工获取分配的工单列表")
-    public ApiResponse<List<Order>> getOrders(HttpServletRequest httpRequest) {
+    @Operation(summary = "获取分配的工单", description = "员工获取分配的工单列表（游标分页，下一页游标见nextCursor）")
+    public ApiResponse<List<Order>> getOrders(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer size,
+                                              @RequestParam(defaultValue = "false") boolean includeArchive,
+                                              @RequestParam(required = false) String include,
+                                              HttpServletRequest httpRequest) {
         try {
             // 从请求头获取员工ID
             String employeeIdStr = httpRequest.getHeader("X-User-Id");
@@ -99,8 +116,10 @@ public class EmployeeController {
             }
 
             Long employeeId = Long.parseLong(employeeIdStr);
-            List<Order> orders = orderService.findByEmployeeId(employeeId);
-            return ApiResponse.success("获取工单列表成功", orders)
+            CursorPage<Order> page = orderService.findPage(null, employeeId, null, cursor, size, includeArchive);
+            orderService.applyIncludes(page.getItems(), include, includeArchive);
+            return ApiResponse.success("获取工单列表成功", page.getItems())
+                    .nextCursor(page.getNextCursor())
                     .requestId(httpRequest.getHeader("X-Request-Id"));
         } catch (Exception e) {
             log.error("获取工单列表失败: {}", e.getMessage());
@@ -109,6 +128,44 @@ public class EmployeeController {
         }
     }
 
+    @GetMapping(value = "/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅工单推送", description = "SSE推送新派单、续单和审核结果，断线重连时按Last-Event-ID补发")
+    public SseEmitter streamOrders(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                   HttpServletRequest httpRequest) {
+        // EventSource无法设置自定义请求头，优先从Session认证信息获取员工ID
+        Long employeeId = SecurityUtils.getCurrentUserId();
+        if (employeeId == null) {
+            String employeeIdStr = httpRequest.getHeader("X-User-Id");
+            if (employeeIdStr == null) {
+                throw new RuntimeException("未找到用户信息");
+            }
+            employeeId = Long.parseLong(employeeIdStr);
+        }
+        return orderPushHub.subscribe(employeeId, lastEventId);
+    }
+
+    @GetMapping("/orders/counts")
+    @Operation(summary = "获取各状态工单数", description = "员工获取各状态的工单数量（用于标签角标）")
+    public ApiResponse<Map<Order.OrderStatus, Long>> getOrderCounts(HttpServletRequest httpRequest) {
+        try {
+            // 从请求头获取员工ID
+            String employeeIdStr = httpRequest.getHeader("X-User-Id");
+            if (employeeIdStr == null) {
+                return ApiResponse.<Map<Order.OrderStatus, Long>>error(401, "未找到用户信息")
+                        .requestId(httpRequest.getHeader("X-Request-Id"));
+            }
+
+            Long employeeId = Long.parseLong(employeeIdStr);
+            Map<Order.OrderStatus, Long> counts = orderCounterService.countsForEmployee(employeeId);
+            return ApiResponse.success("获取工单数量成功", counts)
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.error("获取工单数量失败: {}", e.getMessage());
+            return ApiResponse.<Map<Order.OrderStatus, Long>>error(500, "获取工单数量失败")
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+
     @PostMapping("/orders/{orderId}/accept")
     @Operation(summary = "接单", description = "员工接单")
     public ApiResponse<Order> acceptOrder(@PathVariable Long orderId, @RequestBody OrderAcceptRequest request, HttpServletRequest httpRequest) {
@@ -121,9 +178,13 @@ public class EmployeeController {
             }
 
             Long employeeId = Long.parseLong(employeeIdStr);
-            Order order = orderService.acceptOrder(orderId, request.getImageUrl(), employeeId);
+            Order order = orderService.acceptOrder(orderId, request.getImageUrl(), request.getVersion(), employeeId);
             return ApiResponse.success("接单成功", order)
                     .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (OrderConflictException e) {
+            log.warn("接单冲突: orderId={}, {}", orderId, e.getMessage());
+            return ApiResponse.<Order>error(409, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
         } catch (Exception e) {
             log.error("接单失败: {}", e.getMessage());
             return ApiResponse.<Order>error(400, e.getMessage())
@@ -146,6 +207,10 @@ public class EmployeeController {
             Order order = orderService.completeOrder(orderId, request, employeeId);
             return ApiResponse.success("订单完成成功", order)
                     .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (OrderConflictException e) {
+            log.warn("完成订单冲突: orderId={}, {}", orderId, e.getMessage());
+            return ApiResponse.<Order>error(409, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
         } catch (Exception e) {
             log.error("完成订单失败: {}", e.getMessage());
             return ApiResponse.<Order>error(400, e.getMessage())
@@ -0,0 +1,81 @@
+package com.peiwan.controller;
+
+import com.peiwan.dto.ApiResponse;
+import com.peiwan.dto.OrderLineageResponse;
+import com.peiwan.dto.OrderTimeline;
+import com.peiwan.entity.User;
+import com.peiwan.security.SecurityUtils;
+import com.peiwan.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 工单公共控制器
+ * 管理员、客服和员工共用的工单查询接口，按角色在服务层校验可见范围
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@RestController
+@RequestMapping("/orders")
+@Tag(name = "工单查询", description = "工单公共查询接口")
+public class OrderController {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderController.class);
+
+    private final OrderService orderService;
+
+    public OrderController(OrderService orderService) {
+        this.orderService = orderService;
+    }
+
+    @GetMapping("/{orderId}/lineage")
+    @Operation(summary = "获取工单链", description = "返回工单所在的整条续单/重新提单链，含凭证和审核日志")
+    public ApiResponse<OrderLineageResponse> getLineage(@PathVariable Long orderId, HttpServletRequest httpRequest) {
+        try {
+            // 从请求头获取用户ID
+            String userIdStr = httpRequest.getHeader("X-User-Id");
+            User.UserRole role = SecurityUtils.getCurrentUserRole();
+            if (userIdStr == null || role == null) {
+                return ApiResponse.<OrderLineageResponse>error(401, "未找到用户信息")
+                        .requestId(httpRequest.getHeader("X-Request-Id"));
+            }
+
+            Long userId = Long.parseLong(userIdStr);
+            OrderLineageResponse lineage = orderService.getLineage(orderId, userId, role);
+            return ApiResponse.success("获取工单链成功", lineage)
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.error("获取工单链失败: {}", e.getMessage());
+            return ApiResponse.<OrderLineageResponse>error(400, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+
+    @GetMapping("/{orderId}/timeline")
+    @Operation(summary = "获取工单时间线", description = "一次查询返回工单、凭证、审核日志及按时间排序的事件列表")
+    public ApiResponse<OrderTimeline> getTimeline(@PathVariable Long orderId, HttpServletRequest httpRequest) {
+        try {
+            // 从请求头获取用户ID
+            String userIdStr = httpRequest.getHeader("X-User-Id");
+            User.UserRole role = SecurityUtils.getCurrentUserRole();
+            if (userIdStr == null || role == null) {
+                return ApiResponse.<OrderTimeline>error(401, "未找到用户信息")
+                        .requestId(httpRequest.getHeader("X-Request-Id"));
+            }
+
+            Long userId = Long.parseLong(userIdStr);
+            OrderTimeline timeline = orderService.getTimeline(orderId, userId, role);
+            return ApiResponse.success("获取工单时间线成功", timeline)
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        } catch (Exception e) {
+            log.error("获取工单时间线失败: {}", e.getMessage());
+            return ApiResponse.<OrderTimeline>error(400, e.getMessage())
+                    .requestId(httpRequest.getHeader("X-Request-Id"));
+        }
+    }
+}
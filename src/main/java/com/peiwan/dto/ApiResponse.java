@@ -1,6 +1,7 @@
 package com.peiwan.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -40,6 +41,12 @@ public class ApiResponse<T> {
      */
     private String requestId;
 
+    /**
+     * 下一页游标（仅游标分页接口返回）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
     public ApiResponse() {
         this.timestamp = LocalDateTime.now();
     }
@@ -65,6 +72,9 @@ public class ApiResponse<T> {
     
     public String getRequestId() { return requestId; }
     public void setRequestId(String requestId) { this.requestId = requestId; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
     public ApiResponse(Integer code, String message, T data) {
         this(code, message);
         this.data = data;
@@ -113,5 +123,13 @@ public class ApiResponse<T> {
         return this;
     }
 
+    /**
+     * 设置下一页游标
+     */
+    public ApiResponse<T> nextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+        return this;
+    }
+
 }
 
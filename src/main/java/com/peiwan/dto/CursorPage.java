@@ -0,0 +1,40 @@
+package com.peiwan.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果DTO
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class CursorPage<T> {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> items;
+
+    /**
+     * 下一页游标，为空表示没有更多数据
+     */
+    private String nextCursor;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
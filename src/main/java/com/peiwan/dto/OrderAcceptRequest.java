@@ -18,8 +18,16 @@ public class OrderAcceptRequest {
     @NotBlank(message = "接单截图不能为空")
     private String imageUrl;
 
+    /**
+     * 客户端看到的工单版本号（可选），传入时按版本号做并发校验
+     */
+    private Integer version;
+
     // 手动添加getter/setter方法以确保编译通过
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
 }
 
@@ -24,11 +24,19 @@ public class OrderAuditRequest {
      */
     private String comments;
 
+    /**
+     * 客户端看到的工单版本号（可选），传入时按版本号做并发校验
+     */
+    private Integer version;
+
     // 手动添加getter/setter方法以确保编译通过
     public AuditLog.AuditAction getAction() { return action; }
     public void setAction(AuditLog.AuditAction action) { this.action = action; }
     
     public String getComments() { return comments; }
     public void setComments(String comments) { this.comments = comments; }
+    
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
 }
 
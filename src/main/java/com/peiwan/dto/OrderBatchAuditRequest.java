@@ -0,0 +1,74 @@
+package com.peiwan.dto;
+
+import com.peiwan.entity.AuditLog;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量审核工单请求DTO
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class OrderBatchAuditRequest {
+
+    /**
+     * 审核条目
+     */
+    @Valid
+    @NotEmpty(message = "审核条目不能为空")
+    @Size(max = 200, message = "单次最多审核200个工单")
+    private List<Item> items;
+
+    // 手动添加getter/setter方法以确保编译通过
+    public List<Item> getItems() { return items; }
+    public void setItems(List<Item> items) { this.items = items; }
+
+    /**
+     * 单个工单的审核条目
+     */
+    @Data
+    public static class Item {
+
+        /**
+         * 工单ID
+         */
+        @NotNull(message = "工单ID不能为空")
+        private Long orderId;
+
+        /**
+         * 审核动作
+         */
+        @NotNull(message = "审核动作不能为空")
+        private AuditLog.AuditAction action;
+
+        /**
+         * 审核意见
+         */
+        private String comments;
+
+        /**
+         * 客户端看到的工单版本号（可选），传入时按版本号做并发校验
+         */
+        private Integer version;
+
+        // 手动添加getter/setter方法以确保编译通过
+        public Long getOrderId() { return orderId; }
+        public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+        public AuditLog.AuditAction getAction() { return action; }
+        public void setAction(AuditLog.AuditAction action) { this.action = action; }
+
+        public String getComments() { return comments; }
+        public void setComments(String comments) { this.comments = comments; }
+
+        public Integer getVersion() { return version; }
+        public void setVersion(Integer version) { this.version = version; }
+    }
+}
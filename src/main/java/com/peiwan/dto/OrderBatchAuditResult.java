@@ -0,0 +1,65 @@
+package com.peiwan.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.peiwan.entity.Order;
+import lombok.Data;
+
+/**
+ * 批量审核单个工单的结果
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderBatchAuditResult {
+
+    /**
+     * 工单ID
+     */
+    private Long orderId;
+
+    /**
+     * 是否审核成功
+     */
+    private Boolean success;
+
+    /**
+     * 审核后的工单状态（成功时返回）
+     */
+    private Order.OrderStatus status;
+
+    /**
+     * 失败原因（失败时返回）
+     */
+    private String message;
+
+    public static OrderBatchAuditResult success(Long orderId, Order.OrderStatus status) {
+        OrderBatchAuditResult result = new OrderBatchAuditResult();
+        result.setOrderId(orderId);
+        result.setSuccess(true);
+        result.setStatus(status);
+        return result;
+    }
+
+    public static OrderBatchAuditResult failure(Long orderId, String message) {
+        OrderBatchAuditResult result = new OrderBatchAuditResult();
+        result.setOrderId(orderId);
+        result.setSuccess(false);
+        result.setMessage(message);
+        return result;
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public Boolean getSuccess() { return success; }
+    public void setSuccess(Boolean success) { this.success = success; }
+
+    public Order.OrderStatus getStatus() { return status; }
+    public void setStatus(Order.OrderStatus status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -0,0 +1,59 @@
+package com.peiwan.dto;
+
+import com.peiwan.entity.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 工单列表游标
+ * 以 (created_at, id) 作为键集分页的位置，对客户端编码为不透明字符串
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public class OrderCursor {
+
+    private static final char SEPARATOR = ',';
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    public OrderCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * 以某条工单作为上一页的最后一行生成游标
+     */
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.getCreatedAt(), order.getId());
+    }
+
+    /**
+     * 解析客户端传入的游标，为空返回null（从第一页开始）
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int idx = raw.indexOf(SEPARATOR);
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, idx)), Long.parseLong(raw.substring(idx + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public Long getId() { return id; }
+}
@@ -0,0 +1,53 @@
+package com.peiwan.dto;
+
+import lombok.Data;
+
+/**
+ * 某一天内发生的工单事件（日报汇总任务重算当天数据时逐行读取）
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class OrderDayEvent {
+
+    /**
+     * 事件类型
+     */
+    private Type event;
+
+    /**
+     * 工单分配的员工ID
+     */
+    private Long employeeId;
+
+    /**
+     * 创建工单的客服ID
+     */
+    private Long csId;
+
+    /**
+     * 接单/完成事件的耗时（秒），其他事件为空
+     */
+    private Long seconds;
+
+    // 手动添加getter/setter方法以确保编译通过
+    public Type getEvent() { return event; }
+    public void setEvent(Type event) { this.event = event; }
+
+    public Long getEmployeeId() { return employeeId; }
+    public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+
+    public Long getCsId() { return csId; }
+    public void setCsId(Long csId) { this.csId = csId; }
+
+    public Long getSeconds() { return seconds; }
+    public void setSeconds(Long seconds) { this.seconds = seconds; }
+
+    /**
+     * 事件类型枚举（APPROVE/REJECT与审核日志的动作同名）
+     */
+    public enum Type {
+        CREATED, ACCEPTED, COMPLETED, APPROVE, REJECT
+    }
+}
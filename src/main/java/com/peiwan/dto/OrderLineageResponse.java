@@ -0,0 +1,55 @@
+package com.peiwan.dto;
+
+import com.peiwan.entity.AuditLog;
+import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderProof;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 工单链响应DTO
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class OrderLineageResponse {
+
+    /**
+     * 根工单ID
+     */
+    private Long rootOrderId;
+
+    /**
+     * 链上的工单，按创建顺序排列
+     */
+    private List<Node> orders;
+
+    /**
+     * 链上单个工单及其凭证、审核日志
+     */
+    @Data
+    public static class Node {
+        private Order order;
+        private List<OrderProof> proofs;
+        private List<AuditLog> auditLogs;
+
+        // 手动添加getter/setter方法以确保编译通过
+        public Order getOrder() { return order; }
+        public void setOrder(Order order) { this.order = order; }
+
+        public List<OrderProof> getProofs() { return proofs; }
+        public void setProofs(List<OrderProof> proofs) { this.proofs = proofs; }
+
+        public List<AuditLog> getAuditLogs() { return auditLogs; }
+        public void setAuditLogs(List<AuditLog> auditLogs) { this.auditLogs = auditLogs; }
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public Long getRootOrderId() { return rootOrderId; }
+    public void setRootOrderId(Long rootOrderId) { this.rootOrderId = rootOrderId; }
+
+    public List<Node> getOrders() { return orders; }
+    public void setOrders(List<Node> orders) { this.orders = orders; }
+}
@@ -0,0 +1,98 @@
+package com.peiwan.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.peiwan.entity.Order;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 推送给员工的工单事件
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class OrderPushEvent {
+
+    /**
+     * 事件类型
+     */
+    private EventType type;
+
+    /**
+     * 工单ID
+     */
+    private Long orderId;
+
+    /**
+     * 工单编号
+     */
+    private String orderNumber;
+
+    /**
+     * 工单当前状态
+     */
+    private Order.OrderStatus status;
+
+    /**
+     * 事件时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime occurredAt;
+
+    public OrderPushEvent() {
+    }
+
+    public OrderPushEvent(EventType type, Order order) {
+        this.type = type;
+        this.orderId = order.getId();
+        this.orderNumber = order.getOrderNumber();
+        this.status = order.getStatus();
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public OrderPushEvent(EventType type, Long orderId, String orderNumber, Order.OrderStatus status) {
+        this.type = type;
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.status = status;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public EventType getType() { return type; }
+    public void setType(EventType type) { this.type = type; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public String getOrderNumber() { return orderNumber; }
+    public void setOrderNumber(String orderNumber) { this.orderNumber = orderNumber; }
+
+    public Order.OrderStatus getStatus() { return status; }
+    public void setStatus(Order.OrderStatus status) { this.status = status; }
+
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
+
+    /**
+     * 事件类型枚举
+     */
+    public enum EventType {
+        ASSIGNED("新派单"),
+        RENEWED("续单"),
+        AUDITED("审核结果"),
+        SLA_ESCALATED("超时升级");
+
+        private final String description;
+
+        EventType(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
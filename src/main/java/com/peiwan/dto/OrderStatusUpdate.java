@@ -0,0 +1,143 @@
+package com.peiwan.dto;
+
+import com.peiwan.entity.Order;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * 工单状态迁移参数
+ * 用于条件更新：仅当工单当前状态属于fromStatuses（且版本号、员工匹配时）才迁移到toStatus
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class OrderStatusUpdate {
+
+    /**
+     * matched中原状态序号所占的区间，需大于原状态的个数
+     */
+    public static final int STATUS_SLOTS = 16;
+
+    /**
+     * 工单ID
+     */
+    private Long id;
+
+    /**
+     * 允许的当前状态
+     */
+    private Collection<Order.OrderStatus> fromStatuses;
+
+    /**
+     * 目标状态
+     */
+    private Order.OrderStatus toStatus;
+
+    /**
+     * 期望的版本号，为空时只校验状态
+     */
+    private Integer expectedVersion;
+
+    /**
+     * 限定的分配员工ID，为空时不校验
+     */
+    private Long employeeId;
+
+    /**
+     * 接单截图URL
+     */
+    private String acceptanceScreenshotUrl;
+
+    /**
+     * 完成截图URL
+     */
+    private String completionScreenshotUrl;
+
+    /**
+     * 接单时间
+     */
+    private LocalDateTime acceptedAt;
+
+    /**
+     * 完成时间
+     */
+    private LocalDateTime completedAt;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+
+    /**
+     * 迁移成功时由UPDATE带回：新版本号 * STATUS_SLOTS + 命中的原状态在fromStatuses中的序号（见OrderMapper.transition）
+     */
+    private Long matched;
+
+    public OrderStatusUpdate() {
+    }
+
+    public OrderStatusUpdate(Long id, Collection<Order.OrderStatus> fromStatuses, Order.OrderStatus toStatus) {
+        this.id = id;
+        this.fromStatuses = fromStatuses;
+        this.toStatus = toStatus;
+        // 截到秒，与DATETIME列中保存的值一致
+        this.updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * 本次迁移命中的原状态，只在更新成功后有效
+     */
+    public Order.OrderStatus matchedFromStatus() {
+        Iterator<Order.OrderStatus> statuses = fromStatuses.iterator();
+        for (long i = matched % STATUS_SLOTS; i > 0; i--) {
+            statuses.next();
+        }
+        return statuses.next();
+    }
+
+    /**
+     * 迁移后的版本号，只在更新成功后有效
+     */
+    public int matchedVersion() {
+        return (int) (matched / STATUS_SLOTS);
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Collection<Order.OrderStatus> getFromStatuses() { return fromStatuses; }
+    public void setFromStatuses(Collection<Order.OrderStatus> fromStatuses) { this.fromStatuses = fromStatuses; }
+
+    public Order.OrderStatus getToStatus() { return toStatus; }
+    public void setToStatus(Order.OrderStatus toStatus) { this.toStatus = toStatus; }
+
+    public Integer getExpectedVersion() { return expectedVersion; }
+    public void setExpectedVersion(Integer expectedVersion) { this.expectedVersion = expectedVersion; }
+
+    public Long getEmployeeId() { return employeeId; }
+    public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+
+    public String getAcceptanceScreenshotUrl() { return acceptanceScreenshotUrl; }
+    public void setAcceptanceScreenshotUrl(String acceptanceScreenshotUrl) { this.acceptanceScreenshotUrl = acceptanceScreenshotUrl; }
+
+    public String getCompletionScreenshotUrl() { return completionScreenshotUrl; }
+    public void setCompletionScreenshotUrl(String completionScreenshotUrl) { this.completionScreenshotUrl = completionScreenshotUrl; }
+
+    public LocalDateTime getAcceptedAt() { return acceptedAt; }
+    public void setAcceptedAt(LocalDateTime acceptedAt) { this.acceptedAt = acceptedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getMatched() { return matched; }
+    public void setMatched(Long matched) { this.matched = matched; }
+}
@@ -0,0 +1,182 @@
+package com.peiwan.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.peiwan.entity.AuditLog;
+import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderProof;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 工单时间线DTO
+ * 由OrderTimelineMapper一次联表查询组装工单、凭证和审核日志，再合并为按时间排序的事件列表
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class OrderTimeline {
+
+    /**
+     * 工单ID
+     */
+    private Long orderId;
+
+    /**
+     * 工单
+     */
+    private Order order;
+
+    /**
+     * 创建工单的客服姓名
+     */
+    private String csName;
+
+    /**
+     * 分配的员工姓名
+     */
+    private String employeeName;
+
+    /**
+     * 工单凭证
+     */
+    private List<OrderProof> proofs;
+
+    /**
+     * 审核日志（含审核人姓名）
+     */
+    private List<AuditLog> auditLogs;
+
+    /**
+     * 按时间排序的事件
+     */
+    private List<Event> events;
+
+    /**
+     * 时间线事件
+     */
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Event {
+
+        /**
+         * 事件类型
+         */
+        private EventType type;
+
+        /**
+         * 发生时间
+         */
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        private LocalDateTime time;
+
+        /**
+         * 操作人ID
+         */
+        private Long actorId;
+
+        /**
+         * 操作人姓名
+         */
+        private String actorName;
+
+        /**
+         * 凭证类型（凭证上传事件）
+         */
+        private OrderProof.ProofType proofType;
+
+        /**
+         * 凭证图片URL（凭证上传事件）
+         */
+        private String imageUrl;
+
+        /**
+         * 审核动作（审核事件）
+         */
+        private AuditLog.AuditAction action;
+
+        /**
+         * 审核意见（审核事件）
+         */
+        private String comments;
+
+        public Event() {
+        }
+
+        public Event(EventType type, LocalDateTime time, Long actorId, String actorName) {
+            this.type = type;
+            this.time = time;
+            this.actorId = actorId;
+            this.actorName = actorName;
+        }
+
+        // 手动添加getter/setter方法以确保编译通过
+        public EventType getType() { return type; }
+        public void setType(EventType type) { this.type = type; }
+
+        public LocalDateTime getTime() { return time; }
+        public void setTime(LocalDateTime time) { this.time = time; }
+
+        public Long getActorId() { return actorId; }
+        public void setActorId(Long actorId) { this.actorId = actorId; }
+
+        public String getActorName() { return actorName; }
+        public void setActorName(String actorName) { this.actorName = actorName; }
+
+        public OrderProof.ProofType getProofType() { return proofType; }
+        public void setProofType(OrderProof.ProofType proofType) { this.proofType = proofType; }
+
+        public String getImageUrl() { return imageUrl; }
+        public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+        public AuditLog.AuditAction getAction() { return action; }
+        public void setAction(AuditLog.AuditAction action) { this.action = action; }
+
+        public String getComments() { return comments; }
+        public void setComments(String comments) { this.comments = comments; }
+    }
+
+    /**
+     * 事件类型枚举
+     */
+    public enum EventType {
+        CREATED("创建工单"),
+        PROOF_UPLOADED("上传凭证"),
+        AUDITED("审核");
+
+        private final String description;
+
+        EventType(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public Order getOrder() { return order; }
+    public void setOrder(Order order) { this.order = order; }
+
+    public String getCsName() { return csName; }
+    public void setCsName(String csName) { this.csName = csName; }
+
+    public String getEmployeeName() { return employeeName; }
+    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; }
+
+    public List<OrderProof> getProofs() { return proofs; }
+    public void setProofs(List<OrderProof> proofs) { this.proofs = proofs; }
+
+    public List<AuditLog> getAuditLogs() { return auditLogs; }
+    public void setAuditLogs(List<AuditLog> auditLogs) { this.auditLogs = auditLogs; }
+
+    public List<Event> getEvents() { return events; }
+    public void setEvents(List<Event> events) { this.events = events; }
+}
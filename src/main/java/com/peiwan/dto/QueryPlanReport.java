@@ -0,0 +1,55 @@
+package com.peiwan.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 查询计划检查发现的问题（全表扫描或filesort）
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class QueryPlanReport {
+
+    /**
+     * Mapper语句ID
+     */
+    private String statementId;
+
+    /**
+     * 实际执行的SQL
+     */
+    private String sql;
+
+    /**
+     * EXPLAIN中的表名
+     */
+    private String table;
+
+    /**
+     * 访问类型（ALL为全表扫描）
+     */
+    private String type;
+
+    /**
+     * 使用的索引
+     */
+    private String key;
+
+    /**
+     * 预估扫描行数
+     */
+    private Long rows;
+
+    /**
+     * EXPLAIN的Extra列
+     */
+    private String extra;
+
+    /**
+     * 检查时间
+     */
+    private LocalDateTime checkedAt;
+}
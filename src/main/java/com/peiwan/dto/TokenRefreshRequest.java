@@ -0,0 +1,24 @@
+package com.peiwan.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * 刷新令牌请求DTO
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class TokenRefreshRequest {
+
+    /**
+     * 登录或上次刷新时签发的刷新令牌
+     */
+    @NotBlank(message = "刷新令牌不能为空")
+    private String refreshToken;
+
+    // 手动添加getter/setter方法以确保编译通过
+    public String getRefreshToken() { return refreshToken; }
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+}
@@ -19,7 +19,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = false)
 @Entity
 @Table(name = "audit_logs")
-public class AuditLog {
+public class AuditLog extends DirtyTrackingEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -73,30 +73,39 @@ public class AuditLog {
     @Column(name = "deleted")
     private Integer deleted = 0;
 
+    /**
+     * 审核人姓名（仅用于数据传输，不持久化）
+     */
+    @Transient
+    private String auditorName;
+
     // 手动添加getter/setter方法以确保编译通过
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
     public Long getOrderId() { return orderId; }
-    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; markDirty("orderId"); }
     
     public Long getAuditorId() { return auditorId; }
-    public void setAuditorId(Long auditorId) { this.auditorId = auditorId; }
+    public void setAuditorId(Long auditorId) { this.auditorId = auditorId; markDirty("auditorId"); }
     
     public AuditAction getAction() { return action; }
-    public void setAction(AuditAction action) { this.action = action; }
+    public void setAction(AuditAction action) { this.action = action; markDirty("action"); }
     
     public String getComments() { return comments; }
-    public void setComments(String comments) { this.comments = comments; }
+    public void setComments(String comments) { this.comments = comments; markDirty("comments"); }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; markDirty("updatedAt"); }
     
     public Integer getDeleted() { return deleted; }
     public void setDeleted(Integer deleted) { this.deleted = deleted; }
+    
+    public String getAuditorName() { return auditorName; }
+    public void setAuditorName(String auditorName) { this.auditorName = auditorName; }
 
     /**
      * 审核动作枚举
@@ -0,0 +1,44 @@
+package com.peiwan.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 脏字段跟踪基类
+ * 实体的setter调用markDirty记录被修改的字段，Mapper的updateById只写出脏字段；
+ * 从数据库加载或写入成功后由DirtyTrackingInterceptor清空
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public abstract class DirtyTrackingEntity {
+
+    @JsonIgnore
+    private transient Set<String> dirtyFields;
+
+    /**
+     * 标记字段已修改
+     */
+    protected void markDirty(String field) {
+        if (dirtyFields == null) {
+            dirtyFields = new HashSet<>();
+        }
+        dirtyFields.add(field);
+    }
+
+    /**
+     * 字段是否已修改（供Mapper动态SQL使用）
+     */
+    public boolean isDirty(String field) {
+        return dirtyFields != null && dirtyFields.contains(field);
+    }
+
+    /**
+     * 清空修改记录
+     */
+    public void clearDirty() {
+        dirtyFields = null;
+    }
+}
@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = false)
 @Entity
 @Table(name = "employee_profiles")
-public class EmployeeProfile {
+public class EmployeeProfile extends DirtyTrackingEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -70,19 +70,19 @@ public class EmployeeProfile {
     public void setId(Long id) { this.id = id; }
     
     public Long getUserId() { return userId; }
-    public void setUserId(Long userId) { this.userId = userId; }
+    public void setUserId(Long userId) { this.userId = userId; markDirty("userId"); }
     
     public Gender getGender() { return gender; }
-    public void setGender(Gender gender) { this.gender = gender; }
+    public void setGender(Gender gender) { this.gender = gender; markDirty("gender"); }
     
     public WorkStatus getWorkStatus() { return workStatus; }
-    public void setWorkStatus(WorkStatus workStatus) { this.workStatus = workStatus; }
+    public void setWorkStatus(WorkStatus workStatus) { this.workStatus = workStatus; markDirty("workStatus"); }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; markDirty("updatedAt"); }
     
     public Integer getDeleted() { return deleted; }
     public void setDeleted(Integer deleted) { this.deleted = deleted; }
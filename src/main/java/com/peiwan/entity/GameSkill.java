@@ -20,7 +20,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = false)
 @Entity
 @Table(name = "game_skills")
-public class GameSkill {
+public class GameSkill extends DirtyTrackingEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -87,25 +87,25 @@ public class GameSkill {
     public void setId(Long id) { this.id = id; }
     
     public Long getProfileId() { return profileId; }
-    public void setProfileId(Long profileId) { this.profileId = profileId; }
+    public void setProfileId(Long profileId) { this.profileId = profileId; markDirty("profileId"); }
     
     public String getGameName() { return gameName; }
-    public void setGameName(String gameName) { this.gameName = gameName; }
+    public void setGameName(String gameName) { this.gameName = gameName; markDirty("gameName"); }
     
     public PlayStyle getPlayStyle() { return playStyle; }
-    public void setPlayStyle(PlayStyle playStyle) { this.playStyle = playStyle; }
+    public void setPlayStyle(PlayStyle playStyle) { this.playStyle = playStyle; markDirty("playStyle"); }
     
     public ServiceType getServiceType() { return serviceType; }
-    public void setServiceType(ServiceType serviceType) { this.serviceType = serviceType; }
+    public void setServiceType(ServiceType serviceType) { this.serviceType = serviceType; markDirty("serviceType"); }
     
     public String getHighestRank() { return highestRank; }
-    public void setHighestRank(String highestRank) { this.highestRank = highestRank; }
+    public void setHighestRank(String highestRank) { this.highestRank = highestRank; markDirty("highestRank"); }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; markDirty("updatedAt"); }
     
     public Integer getDeleted() { return deleted; }
     public void setDeleted(Integer deleted) { this.deleted = deleted; }
@@ -0,0 +1,63 @@
+package com.peiwan.entity;
+
+import lombok.Data;
+
+/**
+ * HTTP会话记录实体类
+ * 时间均为毫秒时间戳，属性为SessionAttributeCodec编码后的字节
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class HttpSessionRecord {
+
+    /**
+     * 会话ID（UUID字符串，库中按16字节存储）
+     */
+    private String sessionId;
+
+    /**
+     * 创建时间
+     */
+    private Long creationTime;
+
+    /**
+     * 最后访问时间
+     */
+    private Long lastAccessTime;
+
+    /**
+     * 最大空闲秒数
+     */
+    private Integer maxInactiveSeconds;
+
+    /**
+     * 过期时间
+     */
+    private Long expiryTime;
+
+    /**
+     * 编码后的会话属性
+     */
+    private byte[] attributes;
+
+    // 手动添加getter/setter方法以确保编译通过
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public Long getCreationTime() { return creationTime; }
+    public void setCreationTime(Long creationTime) { this.creationTime = creationTime; }
+
+    public Long getLastAccessTime() { return lastAccessTime; }
+    public void setLastAccessTime(Long lastAccessTime) { this.lastAccessTime = lastAccessTime; }
+
+    public Integer getMaxInactiveSeconds() { return maxInactiveSeconds; }
+    public void setMaxInactiveSeconds(Integer maxInactiveSeconds) { this.maxInactiveSeconds = maxInactiveSeconds; }
+
+    public Long getExpiryTime() { return expiryTime; }
+    public void setExpiryTime(Long expiryTime) { this.expiryTime = expiryTime; }
+
+    public byte[] getAttributes() { return attributes; }
+    public void setAttributes(byte[] attributes) { this.attributes = attributes; }
+}
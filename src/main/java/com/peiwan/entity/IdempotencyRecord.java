@@ -0,0 +1,91 @@
+package com.peiwan.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录实体类
+ * 每个(用户, X-Request-Id)一行，处理中时占位，成功后保存响应体供重试回放
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+public class IdempotencyRecord {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 客户端请求ID
+     */
+    private String requestId;
+
+    /**
+     * 请求方法、路径和请求体SHA-256摘要，同一请求ID用于不同请求时拒绝
+     */
+    private String fingerprint;
+
+    /**
+     * 处理状态
+     */
+    private Status status;
+
+    /**
+     * 首次成功响应体（JSON）
+     */
+    private String responseBody;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 过期时间
+     */
+    private LocalDateTime expiresAt;
+
+    // 手动添加getter/setter方法以确保编译通过
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getRequestId() { return requestId; }
+    public void setRequestId(String requestId) { this.requestId = requestId; }
+
+    public String getFingerprint() { return fingerprint; }
+    public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getResponseBody() { return responseBody; }
+    public void setResponseBody(String responseBody) { this.responseBody = responseBody; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    /**
+     * 处理状态枚举
+     */
+    public enum Status {
+        PROCESSING("处理中"),
+        COMPLETED("已完成");
+
+        private final String description;
+
+        Status(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
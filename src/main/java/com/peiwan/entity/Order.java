@@ -1,10 +1,12 @@
 package com.peiwan.entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 工单实体类
@@ -14,7 +16,7 @@ import java.time.LocalDateTime;
  */
 @Data
 @EqualsAndHashCode(callSuper = false)
-public class Order {
+public class Order extends DirtyTrackingEntity {
 
     private Long id;
 
@@ -82,6 +84,38 @@ public class Order {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime updatedAt;
 
+    /**
+     * 乐观锁版本号，每次状态迁移加1（新建工单为0，与数据库默认值一致）
+     */
+    private Integer version = 0;
+
+    /**
+     * 上一张工单ID（续单、重新提单时指向来源工单，原始工单为空）
+     */
+    private Long parentOrderId;
+
+    /**
+     * 工单链的根工单ID（原始工单为空）
+     */
+    private Long rootOrderId;
+
+    /**
+     * 超时升级时间（在当前状态停留超过SLA时限时记录，状态迁移后清空）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime slaEscalatedAt;
+
+    /**
+     * 最近一次条件迁移前的状态（由迁移UPDATE写入，不参与updateById）
+     */
+    private OrderStatus previousStatus;
+
+    /**
+     * 工单凭证（非数据库字段，列表接口include=proofs时批量填充）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<OrderProof> proofs;
+
     /**
      * 逻辑删除标记
      */
@@ -92,40 +126,58 @@ public class Order {
     public void setId(Long id) { this.id = id; }
     
     public String getOrderNumber() { return orderNumber; }
-    public void setOrderNumber(String orderNumber) { this.orderNumber = orderNumber; }
+    public void setOrderNumber(String orderNumber) { this.orderNumber = orderNumber; markDirty("orderNumber"); }
     
     public String getClientInfo() { return clientInfo; }
-    public void setClientInfo(String clientInfo) { this.clientInfo = clientInfo; }
+    public void setClientInfo(String clientInfo) { this.clientInfo = clientInfo; markDirty("clientInfo"); }
     
     public OrderStatus getStatus() { return status; }
-    public void setStatus(OrderStatus status) { this.status = status; }
+    public void setStatus(OrderStatus status) { this.status = status; markDirty("status"); }
     
     public Long getAssignedEmployeeId() { return assignedEmployeeId; }
-    public void setAssignedEmployeeId(Long assignedEmployeeId) { this.assignedEmployeeId = assignedEmployeeId; }
+    public void setAssignedEmployeeId(Long assignedEmployeeId) { this.assignedEmployeeId = assignedEmployeeId; markDirty("assignedEmployeeId"); }
     
     public Long getCreatedByCsId() { return createdByCsId; }
     public void setCreatedByCsId(Long createdByCsId) { this.createdByCsId = createdByCsId; }
     
     public String getOrderInfoScreenshotUrl() { return orderInfoScreenshotUrl; }
-    public void setOrderInfoScreenshotUrl(String orderInfoScreenshotUrl) { this.orderInfoScreenshotUrl = orderInfoScreenshotUrl; }
+    public void setOrderInfoScreenshotUrl(String orderInfoScreenshotUrl) { this.orderInfoScreenshotUrl = orderInfoScreenshotUrl; markDirty("orderInfoScreenshotUrl"); }
     
     public String getAcceptanceScreenshotUrl() { return acceptanceScreenshotUrl; }
-    public void setAcceptanceScreenshotUrl(String acceptanceScreenshotUrl) { this.acceptanceScreenshotUrl = acceptanceScreenshotUrl; }
+    public void setAcceptanceScreenshotUrl(String acceptanceScreenshotUrl) { this.acceptanceScreenshotUrl = acceptanceScreenshotUrl; markDirty("acceptanceScreenshotUrl"); }
     
     public String getCompletionScreenshotUrl() { return completionScreenshotUrl; }
-    public void setCompletionScreenshotUrl(String completionScreenshotUrl) { this.completionScreenshotUrl = completionScreenshotUrl; }
+    public void setCompletionScreenshotUrl(String completionScreenshotUrl) { this.completionScreenshotUrl = completionScreenshotUrl; markDirty("completionScreenshotUrl"); }
     
     public LocalDateTime getAcceptedAt() { return acceptedAt; }
-    public void setAcceptedAt(LocalDateTime acceptedAt) { this.acceptedAt = acceptedAt; }
+    public void setAcceptedAt(LocalDateTime acceptedAt) { this.acceptedAt = acceptedAt; markDirty("acceptedAt"); }
     
     public LocalDateTime getCompletedAt() { return completedAt; }
-    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; markDirty("completedAt"); }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; markDirty("updatedAt"); }
+    
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
+    
+    public Long getParentOrderId() { return parentOrderId; }
+    public void setParentOrderId(Long parentOrderId) { this.parentOrderId = parentOrderId; }
+    
+    public Long getRootOrderId() { return rootOrderId; }
+    public void setRootOrderId(Long rootOrderId) { this.rootOrderId = rootOrderId; }
+    
+    public LocalDateTime getSlaEscalatedAt() { return slaEscalatedAt; }
+    public void setSlaEscalatedAt(LocalDateTime slaEscalatedAt) { this.slaEscalatedAt = slaEscalatedAt; }
+    
+    public OrderStatus getPreviousStatus() { return previousStatus; }
+    public void setPreviousStatus(OrderStatus previousStatus) { this.previousStatus = previousStatus; }
+    
+    public List<OrderProof> getProofs() { return proofs; }
+    public void setProofs(List<OrderProof> proofs) { this.proofs = proofs; }
     
     public Integer getDeleted() { return deleted; }
     public void setDeleted(Integer deleted) { this.deleted = deleted; }
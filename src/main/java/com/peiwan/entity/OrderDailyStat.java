@@ -0,0 +1,111 @@
+package com.peiwan.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 工单日报实体类
+ * 每个(统计日期, 归属类型, 归属人)一行，由日报汇总任务按天整体重算后写入
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class OrderDailyStat {
+
+    /**
+     * 统计日期
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate statDate;
+
+    /**
+     * 归属类型
+     */
+    private OrderStatusCounter.OwnerType ownerType;
+
+    /**
+     * 归属人ID（员工或客服的用户ID）
+     */
+    private Long ownerId;
+
+    /**
+     * 当天创建的工单数
+     */
+    private Integer createdCount;
+
+    /**
+     * 当天接单数
+     */
+    private Integer acceptedCount;
+
+    /**
+     * 当天完成（提交审核）数
+     */
+    private Integer completedCount;
+
+    /**
+     * 当天审核通过数
+     */
+    private Integer approvedCount;
+
+    /**
+     * 当天审核拒绝数
+     */
+    private Integer rejectedCount;
+
+    /**
+     * 当天接单的工单从创建到接单耗时的中位数（秒）
+     */
+    private Long medianAcceptSeconds;
+
+    /**
+     * 当天完成的工单从接单到完成耗时的中位数（秒）
+     */
+    private Long medianCompleteSeconds;
+
+    /**
+     * 更新时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updatedAt;
+
+    // 手动添加getter/setter方法以确保编译通过
+    public LocalDate getStatDate() { return statDate; }
+    public void setStatDate(LocalDate statDate) { this.statDate = statDate; }
+
+    public OrderStatusCounter.OwnerType getOwnerType() { return ownerType; }
+    public void setOwnerType(OrderStatusCounter.OwnerType ownerType) { this.ownerType = ownerType; }
+
+    public Long getOwnerId() { return ownerId; }
+    public void setOwnerId(Long ownerId) { this.ownerId = ownerId; }
+
+    public Integer getCreatedCount() { return createdCount; }
+    public void setCreatedCount(Integer createdCount) { this.createdCount = createdCount; }
+
+    public Integer getAcceptedCount() { return acceptedCount; }
+    public void setAcceptedCount(Integer acceptedCount) { this.acceptedCount = acceptedCount; }
+
+    public Integer getCompletedCount() { return completedCount; }
+    public void setCompletedCount(Integer completedCount) { this.completedCount = completedCount; }
+
+    public Integer getApprovedCount() { return approvedCount; }
+    public void setApprovedCount(Integer approvedCount) { this.approvedCount = approvedCount; }
+
+    public Integer getRejectedCount() { return rejectedCount; }
+    public void setRejectedCount(Integer rejectedCount) { this.rejectedCount = rejectedCount; }
+
+    public Long getMedianAcceptSeconds() { return medianAcceptSeconds; }
+    public void setMedianAcceptSeconds(Long medianAcceptSeconds) { this.medianAcceptSeconds = medianAcceptSeconds; }
+
+    public Long getMedianCompleteSeconds() { return medianCompleteSeconds; }
+    public void setMedianCompleteSeconds(Long medianCompleteSeconds) { this.medianCompleteSeconds = medianCompleteSeconds; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,68 @@
+package com.peiwan.entity;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 工单编号序列实体类
+ * 每天一行，各节点按段租用编号
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class OrderNumberSequence {
+
+    /**
+     * 序列日期
+     */
+    private LocalDate seqDate;
+
+    /**
+     * 下一个可租用的序号（租用后回填为本段的结束序号，不含）
+     */
+    private Long nextValue;
+
+    /**
+     * 本次租用的段大小（仅用于数据传输，不持久化）
+     */
+    private Integer step;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+
+    public OrderNumberSequence() {
+    }
+
+    public OrderNumberSequence(LocalDate seqDate, Integer step) {
+        this.seqDate = seqDate;
+        this.step = step;
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public LocalDate getSeqDate() { return seqDate; }
+    public void setSeqDate(LocalDate seqDate) { this.seqDate = seqDate; }
+
+    public Long getNextValue() { return nextValue; }
+    public void setNextValue(Long nextValue) { this.nextValue = nextValue; }
+
+    public Integer getStep() { return step; }
+    public void setStep(Integer step) { this.step = step; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,87 @@
+package com.peiwan.entity;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 工单状态计数实体类
+ * 每个(归属类型, 归属人, 状态)一行，随工单创建和状态迁移在同一事务内增量维护
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class OrderStatusCounter {
+
+    /**
+     * 归属类型
+     */
+    private OwnerType ownerType;
+
+    /**
+     * 归属人ID（员工或客服的用户ID）
+     */
+    private Long ownerId;
+
+    /**
+     * 工单状态
+     */
+    private Order.OrderStatus status;
+
+    /**
+     * 工单数量（增量更新时表示增量）
+     */
+    private Long count;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+
+    public OrderStatusCounter() {
+    }
+
+    public OrderStatusCounter(OwnerType ownerType, Long ownerId, Order.OrderStatus status, Long count) {
+        this.ownerType = ownerType;
+        this.ownerId = ownerId;
+        this.status = status;
+        this.count = count;
+    }
+
+    // 手动添加getter/setter方法以确保编译通过
+    public OwnerType getOwnerType() { return ownerType; }
+    public void setOwnerType(OwnerType ownerType) { this.ownerType = ownerType; }
+
+    public Long getOwnerId() { return ownerId; }
+    public void setOwnerId(Long ownerId) { this.ownerId = ownerId; }
+
+    public Order.OrderStatus getStatus() { return status; }
+    public void setStatus(Order.OrderStatus status) { this.status = status; }
+
+    public Long getCount() { return count; }
+    public void setCount(Long count) { this.count = count; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    /**
+     * 归属类型枚举
+     */
+    public enum OwnerType {
+        EMPLOYEE("员工"),
+        CS("客服");
+
+        private final String description;
+
+        OwnerType(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
  */
 @Data
 @EqualsAndHashCode(callSuper = false)
-public class User {
+public class User extends DirtyTrackingEntity {
 
     private Long id;
 
@@ -84,6 +84,12 @@ public class User {
      */
     private Integer deleted = 0;
 
+    /**
+     * 令牌版本，吊销令牌时递增（只由专用语句修改，不参与updateById）
+     */
+    @JsonIgnore
+    private Integer tokenVersion;
+
     /**
      * 员工工作状态（仅用于数据传输，不持久化）
      */
@@ -99,35 +105,38 @@ public class User {
     public void setId(Long id) { this.id = id; }
     
     public String getUsername() { return username; }
-    public void setUsername(String username) { this.username = username; }
+    public void setUsername(String username) { this.username = username; markDirty("username"); }
     
     public String getPasswordHash() { return passwordHash; }
-    public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
+    public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; markDirty("passwordHash"); }
     
     public String getRealName() { return realName; }
-    public void setRealName(String realName) { this.realName = realName; }
+    public void setRealName(String realName) { this.realName = realName; markDirty("realName"); }
     
     public String getPhone() { return phone; }
-    public void setPhone(String phone) { this.phone = phone; }
+    public void setPhone(String phone) { this.phone = phone; markDirty("phone"); }
     
     public UserRole getRole() { return role; }
-    public void setRole(UserRole role) { this.role = role; }
+    public void setRole(UserRole role) { this.role = role; markDirty("role"); }
     
     public Boolean getIsActive() { return isActive; }
-    public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+    public void setIsActive(Boolean isActive) { this.isActive = isActive; markDirty("isActive"); }
     
     public LocalDateTime getLastLogin() { return lastLogin; }
-    public void setLastLogin(LocalDateTime lastLogin) { this.lastLogin = lastLogin; }
+    public void setLastLogin(LocalDateTime lastLogin) { this.lastLogin = lastLogin; markDirty("lastLogin"); }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
     public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; markDirty("updatedAt"); }
     
     public Integer getDeleted() { return deleted; }
     public void setDeleted(Integer deleted) { this.deleted = deleted; }
     
+    public Integer getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(Integer tokenVersion) { this.tokenVersion = tokenVersion; }
+    
     public EmployeeProfile.WorkStatus getWorkStatus() { return workStatus; }
     public void setWorkStatus(EmployeeProfile.WorkStatus workStatus) { this.workStatus = workStatus; }
     
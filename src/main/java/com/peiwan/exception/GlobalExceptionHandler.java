@@ -24,6 +24,17 @@ public class GlobalExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    /**
+     * 处理工单并发冲突异常
+     */
+    @ExceptionHandler(OrderConflictException.class)
+    public ResponseEntity<ApiResponse<Void>> handleOrderConflictException(OrderConflictException e, HttpServletRequest request) {
+        log.warn("工单并发冲突: {}", e.getMessage());
+        ApiResponse<Void> response = ApiResponse.<Void>error(409, e.getMessage())
+                .requestId(request.getHeader("X-Request-Id"));
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     /**
      * 处理业务异常
      */
@@ -0,0 +1,22 @@
+package com.peiwan.exception;
+
+/**
+ * 工单并发冲突异常
+ * 条件更新未命中任何行（状态已变化或版本号不匹配）时抛出
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public class OrderConflictException extends RuntimeException {
+
+    public OrderConflictException(String message) {
+        super(message);
+    }
+
+    /**
+     * 供可复用的预分配异常使用：不记录调用栈、不收集被抑制的异常
+     */
+    protected OrderConflictException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+}
@@ -0,0 +1,15 @@
+package com.peiwan.exception;
+
+/**
+ * 工单状态不允许执行某个迁移
+ * 每种迁移预先创建一个实例重复抛出，不记录调用栈，校验失败时不产生分配
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public class OrderTransitionRejectedException extends OrderConflictException {
+
+    public OrderTransitionRejectedException(String message) {
+        super(message, false);
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -26,6 +27,15 @@ public interface AuditLogMapper {
     @org.apache.ibatis.annotations.Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(AuditLog log);
 
+    /**
+     * 批量插入审核日志（单条多行INSERT）
+     */
+    @Insert("<script>INSERT INTO audit_logs (order_id, auditor_id, action, comments, created_at, updated_at, deleted) VALUES " +
+            "<foreach collection='logs' item='log' separator=','>" +
+            "(#{log.orderId}, #{log.auditorId}, #{log.action}, #{log.comments}, #{log.createdAt}, #{log.updatedAt}, #{log.deleted})" +
+            "</foreach></script>")
+    int insertBatch(@Param("logs") List<AuditLog> logs);
+
     /**
      * 根据ID查询审核日志
      */
@@ -34,9 +44,16 @@ public interface AuditLogMapper {
 
     /**
      * 根据ID更新审核日志
+     * 只写出被修改过的字段（见DirtyTrackingEntity）
      */
-    @Update("UPDATE audit_logs SET order_id = #{orderId}, auditor_id = #{auditorId}, " +
-            "action = #{action}, comments = #{comments}, updated_at = #{updatedAt} WHERE id = #{id}")
+    @Update("<script>UPDATE audit_logs <set>" +
+            "<if test='_parameter.isDirty(\"orderId\")'>order_id = #{orderId},</if>" +
+            "<if test='_parameter.isDirty(\"auditorId\")'>auditor_id = #{auditorId},</if>" +
+            "<if test='_parameter.isDirty(\"action\")'>action = #{action},</if>" +
+            "<if test='_parameter.isDirty(\"comments\")'>comments = #{comments},</if>" +
+            "<choose><when test='_parameter.isDirty(\"updatedAt\")'>updated_at = #{updatedAt},</when>" +
+            "<otherwise>updated_at = NOW(),</otherwise></choose>" +
+            "</set> WHERE id = #{id}</script>")
     int updateById(AuditLog log);
 
     /**
@@ -51,6 +68,18 @@ public interface AuditLogMapper {
     @Select("SELECT * FROM audit_logs WHERE order_id = #{orderId} AND deleted = 0 ORDER BY created_at DESC")
     List<AuditLog> findByOrderId(@Param("orderId") Long orderId);
 
+    /**
+     * 根据多个工单ID批量查找审核日志，includeArchive时一并查询归档表
+     */
+    @Select("<script>SELECT " + OrderArchiveMapper.AUDIT_LOG_COLUMNS + " FROM audit_logs WHERE deleted = 0 AND order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>#{orderId}</foreach>" +
+            "<if test='includeArchive'> UNION ALL SELECT " + OrderArchiveMapper.AUDIT_LOG_COLUMNS +
+            " FROM audit_logs_archive WHERE deleted = 0 AND order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>#{orderId}</foreach></if>" +
+            " ORDER BY created_at DESC</script>")
+    List<AuditLog> findByOrderIds(@Param("orderIds") Collection<Long> orderIds,
+                                  @Param("includeArchive") boolean includeArchive);
+
     /**
      * 根据审核人ID查找审核日志
      */
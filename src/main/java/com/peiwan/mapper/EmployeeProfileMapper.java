@@ -34,9 +34,15 @@ public interface EmployeeProfileMapper {
 
     /**
      * 根据ID更新员工资料
+     * 只写出被修改过的字段（见DirtyTrackingEntity）
      */
-    @Update("UPDATE employee_profiles SET user_id = #{userId}, gender = #{gender}, " +
-            "work_status = #{workStatus}, updated_at = #{updatedAt} WHERE id = #{id}")
+    @Update("<script>UPDATE employee_profiles <set>" +
+            "<if test='_parameter.isDirty(\"userId\")'>user_id = #{userId},</if>" +
+            "<if test='_parameter.isDirty(\"gender\")'>gender = #{gender},</if>" +
+            "<if test='_parameter.isDirty(\"workStatus\")'>work_status = #{workStatus},</if>" +
+            "<choose><when test='_parameter.isDirty(\"updatedAt\")'>updated_at = #{updatedAt},</when>" +
+            "<otherwise>updated_at = NOW(),</otherwise></choose>" +
+            "</set> WHERE id = #{id}</script>")
     int updateById(EmployeeProfile profile);
 
     /**
@@ -36,10 +36,17 @@ public interface GameSkillMapper {
 
     /**
      * 根据ID更新游戏技能
+     * 只写出被修改过的字段（见DirtyTrackingEntity）
      */
-    @Update("UPDATE game_skills SET profile_id = #{profileId}, game_name = #{gameName}, " +
-            "play_style = #{playStyle}, service_type = #{serviceType}, highest_rank = #{highestRank}, " +
-            "updated_at = #{updatedAt} WHERE id = #{id}")
+    @Update("<script>UPDATE game_skills <set>" +
+            "<if test='_parameter.isDirty(\"profileId\")'>profile_id = #{profileId},</if>" +
+            "<if test='_parameter.isDirty(\"gameName\")'>game_name = #{gameName},</if>" +
+            "<if test='_parameter.isDirty(\"playStyle\")'>play_style = #{playStyle},</if>" +
+            "<if test='_parameter.isDirty(\"serviceType\")'>service_type = #{serviceType},</if>" +
+            "<if test='_parameter.isDirty(\"highestRank\")'>highest_rank = #{highestRank},</if>" +
+            "<choose><when test='_parameter.isDirty(\"updatedAt\")'>updated_at = #{updatedAt},</when>" +
+            "<otherwise>updated_at = NOW(),</otherwise></choose>" +
+            "</set> WHERE id = #{id}</script>")
     int updateById(GameSkill skill);
 
     /**
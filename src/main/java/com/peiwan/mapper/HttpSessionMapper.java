@@ -0,0 +1,74 @@
+package com.peiwan.mapper;
+
+import com.peiwan.entity.HttpSessionRecord;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * HTTP会话Mapper接口
+ * 会话ID在SQL中由UUID字符串转为16字节，非法ID转换为NULL后不会命中任何行
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface HttpSessionMapper {
+
+    String SESSION_ID = "UNHEX(REPLACE(#{sessionId}, '-', ''))";
+
+    /**
+     * 插入新会话
+     */
+    @Insert("INSERT INTO http_sessions (session_id, creation_time, last_access_time, max_inactive_seconds, expiry_time, attributes) " +
+            "VALUES (" + SESSION_ID + ", #{creationTime}, #{lastAccessTime}, #{maxInactiveSeconds}, #{expiryTime}, #{attributes})")
+    int insert(HttpSessionRecord record);
+
+    /**
+     * 整行写回（属性、空闲时间或会话ID有变化时）
+     */
+    @Update("UPDATE http_sessions SET session_id = UNHEX(REPLACE(#{record.sessionId}, '-', '')), " +
+            "last_access_time = #{record.lastAccessTime}, max_inactive_seconds = #{record.maxInactiveSeconds}, " +
+            "expiry_time = #{record.expiryTime}, attributes = #{record.attributes} " +
+            "WHERE session_id = UNHEX(REPLACE(#{originalId}, '-', ''))")
+    int update(@Param("originalId") String originalId, @Param("record") HttpSessionRecord record);
+
+    /**
+     * 批量写入最后访问时间和过期时间，只前进不后退（多节点写入顺序不定）
+     */
+    @Update("<script>UPDATE http_sessions SET " +
+            "last_access_time = GREATEST(last_access_time, CASE session_id " +
+            "<foreach collection='touches' item='t'>WHEN UNHEX(REPLACE(#{t.sessionId}, '-', '')) THEN #{t.lastAccessTime} </foreach>" +
+            "ELSE last_access_time END), " +
+            "expiry_time = GREATEST(expiry_time, CASE session_id " +
+            "<foreach collection='touches' item='t'>WHEN UNHEX(REPLACE(#{t.sessionId}, '-', '')) THEN #{t.expiryTime} </foreach>" +
+            "ELSE expiry_time END) " +
+            "WHERE session_id IN " +
+            "<foreach collection='touches' item='t' open='(' separator=',' close=')'>UNHEX(REPLACE(#{t.sessionId}, '-', ''))</foreach>" +
+            "</script>")
+    int touchBatch(@Param("touches") List<HttpSessionRecord> touches);
+
+    /**
+     * 按ID查询会话
+     */
+    @Select("SELECT creation_time, last_access_time, max_inactive_seconds, expiry_time, attributes " +
+            "FROM http_sessions WHERE session_id = " + SESSION_ID)
+    HttpSessionRecord findById(@Param("sessionId") String sessionId);
+
+    /**
+     * 删除会话
+     */
+    @Delete("DELETE FROM http_sessions WHERE session_id = " + SESSION_ID)
+    int deleteById(@Param("sessionId") String sessionId);
+
+    /**
+     * 按过期时间索引删除一批已过期的会话
+     */
+    @Delete("DELETE FROM http_sessions WHERE expiry_time < #{now} LIMIT #{limit}")
+    int deleteExpired(@Param("now") long now, @Param("limit") int limit);
+}
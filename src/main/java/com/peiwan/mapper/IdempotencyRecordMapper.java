@@ -0,0 +1,60 @@
+package com.peiwan.mapper;
+
+import com.peiwan.entity.IdempotencyRecord;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录Mapper接口
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface IdempotencyRecordMapper {
+
+    /**
+     * 占位：主键冲突时不插入，返回0表示已有记录
+     */
+    @Insert("INSERT IGNORE INTO idempotency_records (user_id, request_id, fingerprint, status, created_at, expires_at) " +
+            "VALUES (#{userId}, #{requestId}, #{fingerprint}, 'PROCESSING', #{createdAt}, #{expiresAt})")
+    int insertProcessing(IdempotencyRecord record);
+
+    /**
+     * 接管已过期的记录，或处理节点宕机后遗留的超时占位
+     */
+    @Update("UPDATE idempotency_records SET fingerprint = #{record.fingerprint}, status = 'PROCESSING', response_body = NULL, " +
+            "created_at = #{record.createdAt}, expires_at = #{record.expiresAt} " +
+            "WHERE user_id = #{record.userId} AND request_id = #{record.requestId} " +
+            "AND (expires_at < #{record.createdAt} OR (status = 'PROCESSING' AND created_at < #{staleBefore}))")
+    int takeOver(@Param("record") IdempotencyRecord record, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Select("SELECT * FROM idempotency_records WHERE user_id = #{userId} AND request_id = #{requestId}")
+    IdempotencyRecord find(@Param("userId") Long userId, @Param("requestId") String requestId);
+
+    /**
+     * 保存首次成功响应
+     */
+    @Update("UPDATE idempotency_records SET status = 'COMPLETED', response_body = #{responseBody} " +
+            "WHERE user_id = #{userId} AND request_id = #{requestId} AND status = 'PROCESSING'")
+    int complete(@Param("userId") Long userId, @Param("requestId") String requestId,
+                 @Param("responseBody") String responseBody);
+
+    /**
+     * 请求失败时释放占位，允许客户端重试
+     */
+    @Delete("DELETE FROM idempotency_records WHERE user_id = #{userId} AND request_id = #{requestId} AND status = 'PROCESSING'")
+    int release(@Param("userId") Long userId, @Param("requestId") String requestId);
+
+    /**
+     * 分批清理过期记录
+     */
+    @Delete("DELETE FROM idempotency_records WHERE expires_at < #{now} LIMIT #{limit}")
+    int purgeExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -0,0 +1,80 @@
+package com.peiwan.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 工单归档Mapper接口
+ * 把超过保留期的已完成工单连同凭证、审核日志从热表搬到归档表
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface OrderArchiveMapper {
+
+    /**
+     * 凭证表的全部列
+     */
+    String PROOF_COLUMNS = "id, order_id, proof_type, image_url, is_resubmission, is_renewal, " +
+            "uploaded_at, created_at, updated_at, deleted";
+
+    /**
+     * 审核日志表的全部列
+     */
+    String AUDIT_LOG_COLUMNS = "id, order_id, auditor_id, action, comments, created_at, updated_at, deleted";
+
+    /**
+     * 按主键键集扫描可归档的工单ID（不加锁）
+     * 已完成且超过保留期，或已逻辑删除的工单
+     */
+    @Select("SELECT id FROM orders WHERE id > #{afterId} " +
+            "AND ((status = 'COMPLETED' AND updated_at < #{cutoff}) OR deleted = 1) " +
+            "ORDER BY id LIMIT #{limit}")
+    List<Long> findArchivableIds(@Param("afterId") long afterId, @Param("cutoff") LocalDateTime cutoff,
+                                 @Param("limit") int limit);
+
+    /**
+     * 按主键加锁并复核归档条件，只锁候选行，不锁扫描范围
+     */
+    @Select("<script>SELECT id FROM orders WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND ((status = 'COMPLETED' AND updated_at &lt; #{cutoff}) OR deleted = 1) ORDER BY id FOR UPDATE</script>")
+    List<Long> lockArchivable(@Param("ids") List<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * 复制工单到归档表，按列名一一对应，不依赖两表的列顺序
+     */
+    @Insert("<script>INSERT INTO orders_archive (" + OrderMapper.ORDER_COLUMNS + ") SELECT " + OrderMapper.ORDER_COLUMNS +
+            " FROM orders WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int copyOrders(@Param("ids") List<Long> ids);
+
+    @Insert("<script>INSERT INTO order_proofs_archive (" + PROOF_COLUMNS + ") SELECT " + PROOF_COLUMNS +
+            " FROM order_proofs WHERE order_id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int copyProofs(@Param("ids") List<Long> ids);
+
+    @Insert("<script>INSERT INTO audit_logs_archive (" + AUDIT_LOG_COLUMNS + ") SELECT " + AUDIT_LOG_COLUMNS +
+            " FROM audit_logs WHERE order_id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int copyAuditLogs(@Param("ids") List<Long> ids);
+
+    @Delete("<script>DELETE FROM order_proofs WHERE order_id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int deleteProofs(@Param("ids") List<Long> ids);
+
+    @Delete("<script>DELETE FROM audit_logs WHERE order_id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int deleteAuditLogs(@Param("ids") List<Long> ids);
+
+    @Delete("<script>DELETE FROM orders WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int deleteOrders(@Param("ids") List<Long> ids);
+}
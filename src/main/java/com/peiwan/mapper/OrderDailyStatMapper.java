@@ -0,0 +1,72 @@
+package com.peiwan.mapper;
+
+import com.peiwan.dto.OrderDayEvent;
+import com.peiwan.entity.OrderDailyStat;
+import com.peiwan.entity.OrderStatusCounter;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 工单日报Mapper接口
+ * 重算用的热表/归档表联合查询写在resources/mapper/OrderDailyStatMapper.xml
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface OrderDailyStatMapper {
+
+    /**
+     * 按归属人查询日期范围内的日报（走主键或归属人索引，只读汇总表）
+     */
+    @Select("<script>SELECT * FROM order_daily_stats WHERE owner_type = #{ownerType} " +
+            "<if test='ownerId != null'>AND owner_id = #{ownerId} </if>" +
+            "AND stat_date &gt;= #{from} AND stat_date &lt;= #{to} " +
+            "ORDER BY stat_date, owner_id</script>")
+    List<OrderDailyStat> findRange(@Param("ownerType") OrderStatusCounter.OwnerType ownerType,
+                                   @Param("ownerId") Long ownerId,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to);
+
+    /**
+     * 删除某一天的全部日报（重算前调用）
+     */
+    @Delete("DELETE FROM order_daily_stats WHERE stat_date = #{statDate}")
+    int deleteByDate(@Param("statDate") LocalDate statDate);
+
+    /**
+     * 批量写入日报
+     */
+    @Insert("<script>INSERT INTO order_daily_stats (stat_date, owner_type, owner_id, created_count, accepted_count, " +
+            "completed_count, approved_count, rejected_count, median_accept_seconds, median_complete_seconds, updated_at) VALUES " +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.statDate}, #{s.ownerType}, #{s.ownerId}, #{s.createdCount}, #{s.acceptedCount}, #{s.completedCount}, " +
+            "#{s.approvedCount}, #{s.rejectedCount}, #{s.medianAcceptSeconds}, #{s.medianCompleteSeconds}, NOW())" +
+            "</foreach></script>")
+    int insertBatch(@Param("stats") List<OrderDailyStat> stats);
+
+    /**
+     * 更新时间在(from, to]内的工单和审核日志涉及的统计日期，升序
+     */
+    List<LocalDate> findChangedDays(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * [from, to)内发生的创建、接单、完成和审核事件
+     */
+    List<OrderDayEvent> findDayEvents(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 工单和审核日志（含归档）中最早的更新时间，首次汇总时作为起点；没有数据时为空
+     */
+    @Select("SELECT MIN(t) FROM (" +
+            "SELECT MIN(updated_at) AS t FROM orders UNION ALL SELECT MIN(updated_at) FROM orders_archive " +
+            "UNION ALL SELECT MIN(updated_at) FROM audit_logs UNION ALL SELECT MIN(updated_at) FROM audit_logs_archive) m")
+    LocalDateTime findEarliestChange();
+}
@@ -1,12 +1,19 @@
 package com.peiwan.mapper;
 
+import com.peiwan.dto.OrderStatusUpdate;
 import com.peiwan.entity.Order;
+import com.peiwan.service.support.OrderSlaTimer;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.SelectKey;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,9 +29,11 @@ public interface OrderMapper {
      * 插入工单
      */
     @Insert("INSERT INTO orders (order_number, client_info, status, assigned_employee_id, created_by_cs_id, " +
-            "order_info_screenshot_url, acceptance_screenshot_url, completion_screenshot_url, accepted_at, completed_at, created_at, updated_at, deleted) " +
+            "order_info_screenshot_url, acceptance_screenshot_url, completion_screenshot_url, accepted_at, completed_at, " +
+            "parent_order_id, root_order_id, created_at, updated_at, deleted) " +
             "VALUES (#{orderNumber}, #{clientInfo}, #{status}, #{assignedEmployeeId}, #{createdByCsId}, " +
-            "#{orderInfoScreenshotUrl}, #{acceptanceScreenshotUrl}, #{completionScreenshotUrl}, #{acceptedAt}, #{completedAt}, #{createdAt}, #{updatedAt}, #{deleted})")
+            "#{orderInfoScreenshotUrl}, #{acceptanceScreenshotUrl}, #{completionScreenshotUrl}, #{acceptedAt}, #{completedAt}, " +
+            "#{parentOrderId}, #{rootOrderId}, #{createdAt}, #{updatedAt}, #{deleted})")
     @org.apache.ibatis.annotations.Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(Order order);
 
@@ -34,16 +43,87 @@ public interface OrderMapper {
     @Select("SELECT * FROM orders WHERE id = #{id} AND deleted = 0")
     Order selectById(@Param("id") Long id);
 
+    /**
+     * 查询整条工单链（根工单及其全部续单/重新提单），按创建顺序排列
+     * 各段都走索引：主键和idx_orders_root（归档表由LIKE建出，索引相同）
+     * 已完成的根工单可能先于仍在进行的续单被归档，includeArchive时一并查归档表，两表列顺序可能不同，按列名列出
+     */
+    @Select("<script>SELECT " + ORDER_COLUMNS + " FROM orders WHERE id = #{rootOrderId} AND deleted = 0 " +
+            "UNION ALL " +
+            "SELECT " + ORDER_COLUMNS + " FROM orders WHERE root_order_id = #{rootOrderId} AND deleted = 0" +
+            "<if test='includeArchive'> UNION ALL " +
+            "SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE id = #{rootOrderId} AND deleted = 0 " +
+            "UNION ALL " +
+            "SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE root_order_id = #{rootOrderId} AND deleted = 0</if>" +
+            " ORDER BY id</script>")
+    List<Order> findChain(@Param("rootOrderId") Long rootOrderId, @Param("includeArchive") boolean includeArchive);
+
     /**
      * 根据ID更新工单
+     * 只写出被修改过的字段（见DirtyTrackingEntity）
      */
-    @Update("UPDATE orders SET order_number = #{orderNumber}, client_info = #{clientInfo}, " +
-            "status = #{status}, assigned_employee_id = #{assignedEmployeeId}, " +
-            "order_info_screenshot_url = #{orderInfoScreenshotUrl}, acceptance_screenshot_url = #{acceptanceScreenshotUrl}, " +
-            "completion_screenshot_url = #{completionScreenshotUrl}, accepted_at = #{acceptedAt}, " +
-            "completed_at = #{completedAt}, updated_at = #{updatedAt} WHERE id = #{id}")
+    @Update("<script>UPDATE orders <set>" +
+            "<if test='_parameter.isDirty(\"orderNumber\")'>order_number = #{orderNumber},</if>" +
+            "<if test='_parameter.isDirty(\"clientInfo\")'>client_info = #{clientInfo},</if>" +
+            "<if test='_parameter.isDirty(\"status\")'>status = #{status},</if>" +
+            "<if test='_parameter.isDirty(\"assignedEmployeeId\")'>assigned_employee_id = #{assignedEmployeeId},</if>" +
+            "<if test='_parameter.isDirty(\"orderInfoScreenshotUrl\")'>order_info_screenshot_url = #{orderInfoScreenshotUrl},</if>" +
+            "<if test='_parameter.isDirty(\"acceptanceScreenshotUrl\")'>acceptance_screenshot_url = #{acceptanceScreenshotUrl},</if>" +
+            "<if test='_parameter.isDirty(\"completionScreenshotUrl\")'>completion_screenshot_url = #{completionScreenshotUrl},</if>" +
+            "<if test='_parameter.isDirty(\"acceptedAt\")'>accepted_at = #{acceptedAt},</if>" +
+            "<if test='_parameter.isDirty(\"completedAt\")'>completed_at = #{completedAt},</if>" +
+            "<choose><when test='_parameter.isDirty(\"updatedAt\")'>updated_at = #{updatedAt},</when>" +
+            "<otherwise>updated_at = NOW(),</otherwise></choose>" +
+            "version = version + 1," +
+            "</set> WHERE id = #{id}</script>")
     int updateById(Order order);
 
+    /**
+     * 条件迁移工单状态（一次往返完成校验与更新）
+     * 仅当当前状态属于fromStatuses、且版本号/员工匹配时更新，返回0表示未命中；
+     * 命中的原状态写入previous_status（MySQL按书写顺序赋值，必须写在status之前）；
+     * 同时通过LAST_INSERT_ID(expr)把“新版本号 * STATUS_SLOTS + 命中原状态的序号”留在本连接上，
+     * 由SelectKey回填到matched，调用方无需读回工单即可得知原状态和新版本号（未命中时matched无意义）
+     */
+    @Update("<script>UPDATE orders SET previous_status = status, " +
+            "version = FLOOR(LAST_INSERT_ID((version + 1) * " + OrderStatusUpdate.STATUS_SLOTS + " + CASE status " +
+            "<foreach collection='fromStatuses' item='fromStatus' index='i'>WHEN #{fromStatus} THEN #{i} </foreach>" +
+            "END) / " + OrderStatusUpdate.STATUS_SLOTS + "), " +
+            "status = #{toStatus}, updated_at = #{updatedAt}, sla_escalated_at = NULL" +
+            "<if test='acceptedAt != null'>, accepted_at = #{acceptedAt}</if>" +
+            "<if test='acceptanceScreenshotUrl != null'>, acceptance_screenshot_url = #{acceptanceScreenshotUrl}</if>" +
+            "<if test='completedAt != null'>, completed_at = #{completedAt}</if>" +
+            "<if test='completionScreenshotUrl != null'>, completion_screenshot_url = #{completionScreenshotUrl}</if>" +
+            " WHERE id = #{id} AND deleted = 0 AND status IN " +
+            "<foreach collection='fromStatuses' item='fromStatus' open='(' separator=',' close=')'>#{fromStatus}</foreach>" +
+            "<if test='employeeId != null'> AND assigned_employee_id = #{employeeId}</if>" +
+            "<if test='expectedVersion != null'> AND version = #{expectedVersion}</if></script>")
+    @SelectKey(statement = "SELECT LAST_INSERT_ID()", keyProperty = "matched", before = false, resultType = Long.class)
+    int transition(OrderStatusUpdate update);
+
+    /**
+     * 按ID批量查询并加行锁（按主键顺序加锁，避免并发批量审核互相死锁）
+     */
+    @Select("<script>SELECT * FROM orders WHERE deleted = 0 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " ORDER BY id FOR UPDATE</script>")
+    List<Order> lockByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 多行条件迁移工单状态：一条UPDATE按ID写入各自的目标状态
+     * 所有条目共用fromStatuses和updatedAt，返回实际更新的行数
+     */
+    @Update("<script>UPDATE orders SET previous_status = status, status = CASE id " +
+            "<foreach collection='updates' item='u'>WHEN #{u.id} THEN #{u.toStatus} </foreach>" +
+            "END, version = version + 1, updated_at = #{updatedAt}, sla_escalated_at = NULL WHERE deleted = 0 AND id IN " +
+            "<foreach collection='updates' item='u' open='(' separator=',' close=')'>#{u.id}</foreach>" +
+            " AND status IN " +
+            "<foreach collection='fromStatuses' item='fromStatus' open='(' separator=',' close=')'>#{fromStatus}</foreach>" +
+            "</script>")
+    int batchTransition(@Param("updates") List<OrderStatusUpdate> updates,
+                        @Param("fromStatuses") Collection<Order.OrderStatus> fromStatuses,
+                        @Param("updatedAt") LocalDateTime updatedAt);
+
     /**
      * 根据ID删除工单（逻辑删除）
      */
@@ -85,5 +165,102 @@ public interface OrderMapper {
      */
     @Select("SELECT * FROM orders WHERE created_by_cs_id = #{csId} AND assigned_employee_id = #{employeeId} AND deleted = 0 ORDER BY created_at DESC")
     List<Order> findByCsIdAndEmployeeId(@Param("csId") Long csId, @Param("employeeId") Long employeeId);
-}
 
+    /**
+     * 分页查询的筛选条件（热表与归档表共用）
+     */
+    String PAGE_FILTER = " WHERE deleted = 0" +
+            "<if test='csId != null'> AND created_by_cs_id = #{csId}</if>" +
+            "<if test='employeeId != null'> AND assigned_employee_id = #{employeeId}</if>" +
+            "<if test='status != null'> AND status = #{status}</if>" +
+            "<if test='afterCreatedAt != null'> AND (created_at &lt; #{afterCreatedAt} " +
+            "OR (created_at = #{afterCreatedAt} AND id &lt; #{afterId}))</if>" +
+            " ORDER BY created_at DESC, id DESC LIMIT #{limit}";
+
+    /**
+     * 游标分页查询工单
+     * 按 (created_at, id) 倒序做键集分页，筛选条件为空时忽略；
+     * 默认只查热表，includeArchive时两表各取一页再合并，两段都走分页索引；
+     * 两段都列出全部列名，UNION按列名对应，不依赖两表的列顺序
+     */
+    @Select("<script>(SELECT " + ORDER_COLUMNS + " FROM orders" + PAGE_FILTER + ")" +
+            "<if test='includeArchive'> UNION ALL (SELECT " + ORDER_COLUMNS + " FROM orders_archive" + PAGE_FILTER + ")" +
+            " ORDER BY created_at DESC, id DESC LIMIT #{limit}</if></script>")
+    List<Order> findPage(@Param("csId") Long csId, @Param("employeeId") Long employeeId,
+                         @Param("status") Order.OrderStatus status,
+                         @Param("afterCreatedAt") LocalDateTime afterCreatedAt, @Param("afterId") Long afterId,
+                         @Param("limit") int limit, @Param("includeArchive") boolean includeArchive);
+
+    /**
+     * 全文搜索客服名下的工单（ngram全文索引ft_orders_search）
+     * keyword为布尔模式的短语，按 (created_at, id) 倒序做键集分页
+     */
+    @Select("<script>SELECT * FROM orders WHERE deleted = 0 AND created_by_cs_id = #{csId}" +
+            " AND MATCH(order_number, client_info) AGAINST(#{keyword} IN BOOLEAN MODE)" +
+            "<if test='afterCreatedAt != null'> AND (created_at &lt; #{afterCreatedAt} " +
+            "OR (created_at = #{afterCreatedAt} AND id &lt; #{afterId}))</if>" +
+            " ORDER BY created_at DESC, id DESC LIMIT #{limit}</script>")
+    List<Order> search(@Param("csId") Long csId, @Param("keyword") String keyword,
+                       @Param("afterCreatedAt") LocalDateTime afterCreatedAt, @Param("afterId") Long afterId,
+                       @Param("limit") int limit);
+
+    /**
+     * 工单表的全部列（热表与归档表结构相同；显式列出，表结构变更时两边不会错位）
+     */
+    String ORDER_COLUMNS = "id, order_number, client_info, status, assigned_employee_id, created_by_cs_id, " +
+            "order_info_screenshot_url, accepted_at, completed_at, created_at, updated_at, deleted, " +
+            "acceptance_screenshot_url, completion_screenshot_url, version, parent_order_id, root_order_id, " +
+            "sla_escalated_at, previous_status";
+
+    /**
+     * 导出的筛选条件（热表与归档表共用）
+     */
+    String EXPORT_FILTER = " WHERE deleted = 0" +
+            "<if test='status != null'> AND status = #{status}</if>" +
+            "<if test='csId != null'> AND created_by_cs_id = #{csId}</if>" +
+            "<if test='employeeId != null'> AND assigned_employee_id = #{employeeId}</if>" +
+            "<if test='from != null'> AND created_at &gt;= #{from}</if>" +
+            "<if test='to != null'> AND created_at &lt; #{to}</if>";
+
+    /**
+     * 流式查询工单（用于导出）
+     * fetchSize为Integer.MIN_VALUE时MySQL驱动逐行读取结果集，需在事务内消费游标；
+     * includeArchive时合并归档表与热表，由外层的ORDER BY对整个结果按ID升序排序
+     */
+    @Select("<script><if test='includeArchive'>SELECT " + ORDER_COLUMNS + " FROM orders_archive" + EXPORT_FILTER + " UNION ALL </if>" +
+            "SELECT " + ORDER_COLUMNS + " FROM orders" + EXPORT_FILTER + " ORDER BY id</script>")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<Order> streamForExport(@Param("status") Order.OrderStatus status, @Param("csId") Long csId,
+                                  @Param("employeeId") Long employeeId,
+                                  @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                  @Param("includeArchive") boolean includeArchive);
+
+    /**
+     * 流式读取仍在等待处理、尚未超时升级的工单（启动时重建SLA定时器）
+     * 只取定时器需要的列
+     */
+    @Select("<script>SELECT id, status, version, updated_at FROM orders WHERE deleted = 0 AND sla_escalated_at IS NULL " +
+            "AND status IN <foreach collection='statuses' item='status' open='(' separator=',' close=')'>#{status}</foreach>" +
+            "</script>")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<Order> streamSlaPending(@Param("statuses") Collection<Order.OrderStatus> statuses);
+
+    /**
+     * 批量标记超时升级：仅当版本号未变（期间没有发生状态迁移）且尚未升级时生效
+     * 版本号不变，客户端持有的版本仍然有效
+     */
+    @Update("<script>UPDATE orders SET sla_escalated_at = #{escalatedAt} WHERE deleted = 0 AND sla_escalated_at IS NULL " +
+            "AND (id, version) IN " +
+            "<foreach collection='timers' item='t' open='(' separator=',' close=')'>(#{t.orderId}, #{t.version})</foreach>" +
+            "</script>")
+    int markSlaEscalated(@Param("timers") List<OrderSlaTimer> timers, @Param("escalatedAt") LocalDateTime escalatedAt);
+
+    /**
+     * 查询本次被标记超时的工单（升级时间与版本号均匹配），用于推送升级事件
+     */
+    @Select("<script>SELECT id, order_number, status, assigned_employee_id, created_by_cs_id FROM orders " +
+            "WHERE deleted = 0 AND sla_escalated_at = #{escalatedAt} AND (id, version) IN " +
+            "<foreach collection='timers' item='t' open='(' separator=',' close=')'>(#{t.orderId}, #{t.version})</foreach>" +
+            "</script>")
+    List<Order> findSlaEscalated(@Param("timers") List<OrderSlaTimer> timers, @Param("escalatedAt") LocalDateTime escalatedAt);
+}
@@ -0,0 +1,28 @@
+package com.peiwan.mapper;
+
+import com.peiwan.entity.OrderNumberSequence;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.SelectKey;
+
+/**
+ * 工单编号序列Mapper接口
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface OrderNumberSequenceMapper {
+
+    /**
+     * 租用一段编号
+     * 当天首次租用时插入新行，否则原子地把next_value推进step；
+     * 通过LAST_INSERT_ID(expr)在同一连接上取回推进后的值，回填到nextValue，
+     * 本次租到的区间为 [nextValue - step, nextValue)
+     */
+    @Insert("INSERT INTO order_number_sequences (seq_date, next_value, created_at, updated_at) " +
+            "VALUES (#{seqDate}, LAST_INSERT_ID(#{step} + 1), NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE next_value = LAST_INSERT_ID(next_value + #{step}), updated_at = NOW()")
+    @SelectKey(statement = "SELECT LAST_INSERT_ID()", keyProperty = "nextValue", before = false, resultType = Long.class)
+    int lease(OrderNumberSequence sequence);
+}
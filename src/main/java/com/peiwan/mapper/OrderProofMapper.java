@@ -7,6 +7,7 @@ import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -59,5 +60,17 @@ public interface OrderProofMapper {
      */
     @Select("SELECT * FROM order_proofs WHERE order_id = #{orderId} AND proof_type = #{proofType} AND deleted = 0 ORDER BY uploaded_at DESC")
     List<OrderProof> findByOrderIdAndType(@Param("orderId") Long orderId, @Param("proofType") OrderProof.ProofType proofType);
-}
 
+    /**
+     * 根据多个工单ID批量查找凭证（调用方负责控制IN列表长度）
+     * includeArchive时同时查询归档凭证表
+     */
+    @Select("<script>SELECT " + OrderArchiveMapper.PROOF_COLUMNS + " FROM order_proofs WHERE deleted = 0 AND order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>#{orderId}</foreach>" +
+            "<if test='includeArchive'> UNION ALL SELECT " + OrderArchiveMapper.PROOF_COLUMNS +
+            " FROM order_proofs_archive WHERE deleted = 0 AND order_id IN " +
+            "<foreach collection='orderIds' item='orderId' open='(' separator=',' close=')'>#{orderId}</foreach></if>" +
+            " ORDER BY uploaded_at DESC</script>")
+    List<OrderProof> findByOrderIds(@Param("orderIds") Collection<Long> orderIds,
+                                    @Param("includeArchive") boolean includeArchive);
+}
@@ -0,0 +1,73 @@
+package com.peiwan.mapper;
+
+import com.peiwan.entity.OrderStatusCounter;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 工单状态计数Mapper接口
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface OrderStatusCounterMapper {
+
+    /**
+     * 批量累加计数，行不存在时以增量作为初始值插入
+     * 调用方按主键顺序传入，避免并发事务交叉加锁
+     */
+    @Insert("<script>INSERT INTO order_status_counters (owner_type, owner_id, status, count, updated_at) VALUES " +
+            "<foreach collection='deltas' item='d' separator=','>" +
+            "(#{d.ownerType}, #{d.ownerId}, #{d.status}, #{d.count}, NOW())" +
+            "</foreach> ON DUPLICATE KEY UPDATE count = count + VALUES(count), updated_at = NOW()</script>")
+    int applyDeltas(@Param("deltas") List<OrderStatusCounter> deltas);
+
+    /**
+     * 查询某个归属人的全部状态计数（走主键前缀）
+     */
+    @Select("SELECT * FROM order_status_counters WHERE owner_type = #{ownerType} AND owner_id = #{ownerId}")
+    List<OrderStatusCounter> findByOwner(@Param("ownerType") OrderStatusCounter.OwnerType ownerType,
+                                         @Param("ownerId") Long ownerId);
+
+    /**
+     * 按ID顺序分段读取用户ID，作为对账的归属人范围（计数的归属人都是用户）
+     */
+    @Select("SELECT id FROM users WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Long> findOwnerIds(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 查询一批归属人的全部状态计数（不加锁）
+     */
+    @Select("<script>SELECT * FROM order_status_counters WHERE owner_type = #{ownerType} AND owner_id IN " +
+            "<foreach collection='ownerIds' item='ownerId' open='(' separator=',' close=')'>#{ownerId}</foreach></script>")
+    List<OrderStatusCounter> findByOwners(@Param("ownerType") OrderStatusCounter.OwnerType ownerType,
+                                          @Param("ownerIds") List<Long> ownerIds);
+
+    /**
+     * 按主键顺序锁定并读取一批归属人的状态计数，修正期间阻塞这些归属人的计数写入
+     */
+    @Select("<script>SELECT * FROM order_status_counters WHERE owner_type = #{ownerType} AND owner_id IN " +
+            "<foreach collection='ownerIds' item='ownerId' open='(' separator=',' close=')'>#{ownerId}</foreach>" +
+            " ORDER BY owner_id, status FOR UPDATE</script>")
+    List<OrderStatusCounter> lockByOwners(@Param("ownerType") OrderStatusCounter.OwnerType ownerType,
+                                          @Param("ownerIds") List<Long> ownerIds);
+
+    /**
+     * 从工单表实时统计一批归属人的状态计数（对账用，走归属人索引）
+     * 计数包含已归档的工单，归档不改变计数
+     */
+    @Select("<script><bind name='ownerColumn' value='ownerType.name() == \"EMPLOYEE\" ? \"assigned_employee_id\" : \"created_by_cs_id\"'/>" +
+            "SELECT #{ownerType} AS owner_type, owner_id, status, COUNT(*) AS count FROM (" +
+            "SELECT ${ownerColumn} AS owner_id, status FROM orders WHERE deleted = 0 AND ${ownerColumn} IN " +
+            "<foreach collection='ownerIds' item='ownerId' open='(' separator=',' close=')'>#{ownerId}</foreach>" +
+            " UNION ALL SELECT ${ownerColumn} AS owner_id, status FROM orders_archive WHERE deleted = 0 AND ${ownerColumn} IN " +
+            "<foreach collection='ownerIds' item='ownerId' open='(' separator=',' close=')'>#{ownerId}</foreach>" +
+            ") o GROUP BY owner_id, status</script>")
+    List<OrderStatusCounter> countFromOrders(@Param("ownerType") OrderStatusCounter.OwnerType ownerType,
+                                             @Param("ownerIds") List<Long> ownerIds);
+}
@@ -0,0 +1,21 @@
+package com.peiwan.mapper;
+
+import com.peiwan.dto.OrderTimeline;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 工单时间线Mapper接口
+ * 联表嵌套结果映射写在resources/mapper/OrderTimelineMapper.xml
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface OrderTimelineMapper {
+
+    /**
+     * 一次查询取回工单、客服/员工姓名、凭证和审核日志（含审核人姓名）
+     */
+    OrderTimeline findTimeline(@Param("orderId") Long orderId);
+}
@@ -0,0 +1,29 @@
+package com.peiwan.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 已使用的刷新令牌Mapper接口
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface RefreshTokenUseMapper {
+
+    /**
+     * 标记刷新令牌已使用：主键冲突时不插入，返回0表示该令牌已被使用过（任一节点）
+     */
+    @Insert("INSERT IGNORE INTO refresh_token_uses (refresh_id, user_id, expires_at) " +
+            "VALUES (#{refreshId}, #{userId}, #{expiresAt})")
+    int markUsed(@Param("refreshId") byte[] refreshId, @Param("userId") Long userId, @Param("expiresAt") long expiresAt);
+
+    /**
+     * 分批删除对应刷新令牌已过期的记录
+     */
+    @Delete("DELETE FROM refresh_token_uses WHERE expires_at < #{now} LIMIT #{limit}")
+    int deleteExpired(@Param("now") long now, @Param("limit") int limit);
+}
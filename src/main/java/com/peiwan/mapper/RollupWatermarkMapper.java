@@ -0,0 +1,37 @@
+package com.peiwan.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+/**
+ * 汇总任务水位Mapper接口
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Mapper
+public interface RollupWatermarkMapper {
+
+    /**
+     * 水位行不存在时以初始值插入
+     */
+    @Insert("INSERT IGNORE INTO rollup_watermarks (name, watermark, updated_at) VALUES (#{name}, #{watermark}, NOW())")
+    int insertIfAbsent(@Param("name") String name, @Param("watermark") LocalDateTime watermark);
+
+    /**
+     * 锁定并读取水位，同一任务在多个节点上串行推进
+     */
+    @Select("SELECT watermark FROM rollup_watermarks WHERE name = #{name} FOR UPDATE")
+    LocalDateTime lock(@Param("name") String name);
+
+    /**
+     * 推进水位
+     */
+    @Update("UPDATE rollup_watermarks SET watermark = #{watermark}, updated_at = NOW() WHERE name = #{name}")
+    int update(@Param("name") String name, @Param("watermark") LocalDateTime watermark);
+}
@@ -34,10 +34,19 @@ public interface UserMapper {
 
     /**
      * 根据ID更新用户
+     * 只写出被修改过的字段（见DirtyTrackingEntity）
      */
-    @Update("UPDATE users SET username = #{username}, password_hash = #{passwordHash}, real_name = #{realName}, " +
-            "phone = #{phone}, role = #{role}, is_active = #{isActive}, last_login = #{lastLogin}, updated_at = #{updatedAt} " +
-            "WHERE id = #{id}")
+    @Update("<script>UPDATE users <set>" +
+            "<if test='_parameter.isDirty(\"username\")'>username = #{username},</if>" +
+            "<if test='_parameter.isDirty(\"passwordHash\")'>password_hash = #{passwordHash},</if>" +
+            "<if test='_parameter.isDirty(\"realName\")'>real_name = #{realName},</if>" +
+            "<if test='_parameter.isDirty(\"phone\")'>phone = #{phone},</if>" +
+            "<if test='_parameter.isDirty(\"role\")'>role = #{role},</if>" +
+            "<if test='_parameter.isDirty(\"isActive\")'>is_active = #{isActive},</if>" +
+            "<if test='_parameter.isDirty(\"lastLogin\")'>last_login = #{lastLogin},</if>" +
+            "<choose><when test='_parameter.isDirty(\"updatedAt\")'>updated_at = #{updatedAt},</when>" +
+            "<otherwise>updated_at = NOW(),</otherwise></choose>" +
+            "</set> WHERE id = #{id}</script>")
     int updateById(User user);
 
     /**
@@ -83,5 +92,33 @@ public interface UserMapper {
             "LEFT JOIN employee_profiles ep ON u.id = ep.user_id AND ep.deleted = 0 " +
             "WHERE u.is_active = 1 AND u.deleted = 0 ORDER BY u.created_at DESC")
     List<User> findAllActiveWithWorkStatus();
+
+    /**
+     * 批量写入最后登录时间，只前进不后退（多节点写入顺序不定）
+     */
+    @Update("<script>UPDATE users SET last_login = GREATEST(COALESCE(last_login, '1000-01-01'), CASE id " +
+            "<foreach collection='logins' item='u'>WHEN #{u.id} THEN #{u.lastLogin} </foreach>" +
+            "END) WHERE id IN " +
+            "<foreach collection='logins' item='u' open='(' separator=',' close=')'>#{u.id}</foreach>" +
+            "</script>")
+    int updateLastLoginBatch(@Param("logins") List<User> logins);
+
+    /**
+     * 递增令牌版本，使已签发的令牌全部失效
+     */
+    @Update("UPDATE users SET token_version = token_version + 1 WHERE id = #{id}")
+    int incrementTokenVersion(@Param("id") Long id);
+
+    /**
+     * 查询令牌版本（含已删除用户）
+     */
+    @Select("SELECT token_version FROM users WHERE id = #{id}")
+    Integer findTokenVersion(@Param("id") Long id);
+
+    /**
+     * 查询吊销过令牌的用户ID和令牌版本
+     */
+    @Select("SELECT id, token_version FROM users WHERE token_version > 0")
+    List<User> findTokenVersions();
 }
 
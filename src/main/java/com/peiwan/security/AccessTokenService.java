@@ -0,0 +1,312 @@
+package com.peiwan.security;
+
+import com.peiwan.dto.LoginResponse;
+import com.peiwan.entity.User;
+import com.peiwan.mapper.RefreshTokenUseMapper;
+import com.peiwan.mapper.UserMapper;
+import com.peiwan.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 无状态访问令牌服务（peiwan.auth.mode=token时启用）
+ * 令牌为base64url(载荷 + HMAC-SHA256签名)，载荷是定长二进制：格式、类型、用户ID、角色、令牌版本、过期时间，
+ * 刷新令牌另带16字节随机ID。校验访问令牌只做签名、过期和内存中的版本比较，不访问数据库或会话存储。
+ * 吊销靠users.token_version：登出、改密、删除、停用或改角色时加一，本节点在事务提交后更新内存版本表，
+ * 启动时从数据库加载；其他节点未见过新版本前仍接受旧访问令牌，最长一个访问令牌有效期。
+ * 刷新令牌一次性使用：刷新时先在refresh_token_uses中以令牌ID为主键插入一行（数据库上的比较并设置，所有节点共用），
+ * 插入不成功即任一节点已使用过该令牌，视为泄露并吊销该用户全部令牌；随后回查用户和版本并签发新的一对。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+@ConditionalOnProperty(name = "peiwan.auth.mode", havingValue = "token")
+public class AccessTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenService.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final byte FORMAT = 1;
+    private static final byte TYPE_ACCESS = 1;
+    private static final byte TYPE_REFRESH = 2;
+
+    /**
+     * 格式(1) + 类型(1) + 用户ID(8) + 角色(1) + 令牌版本(4) + 过期时间秒(8)
+     */
+    private static final int ACCESS_PAYLOAD_LENGTH = 23;
+    private static final int REFRESH_ID_LENGTH = 16;
+    private static final int SIGNATURE_LENGTH = 32;
+
+    /**
+     * 角色按序号写入令牌，调整UserRole枚举顺序会使已签发的令牌失效
+     */
+    private static final User.UserRole[] ROLES = User.UserRole.values();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
+    private final UserMapper userMapper;
+    private final RefreshTokenUseMapper refreshTokenUseMapper;
+    private final SecretKeySpec key;
+    private final long accessTtlSeconds;
+    private final long refreshTtlSeconds;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * 本节点已知的用户令牌版本，没有条目的用户按版本0处理
+     */
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    public AccessTokenService(UserMapper userMapper, RefreshTokenUseMapper refreshTokenUseMapper,
+                              @Value("${peiwan.auth.token.secret:}") String secret,
+                              @Value("${peiwan.auth.token.access-ttl-seconds:900}") long accessTtlSeconds,
+                              @Value("${peiwan.auth.token.refresh-ttl-seconds:604800}") long refreshTtlSeconds) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < 32) {
+            throw new IllegalArgumentException("peiwan.auth.token.secret必须至少32字节");
+        }
+        if (accessTtlSeconds <= 0 || refreshTtlSeconds < accessTtlSeconds) {
+            throw new IllegalArgumentException("peiwan.auth.token.refresh-ttl-seconds必须不小于access-ttl-seconds且均大于0");
+        }
+        this.userMapper = userMapper;
+        this.refreshTokenUseMapper = refreshTokenUseMapper;
+        this.key = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+        this.accessTtlSeconds = accessTtlSeconds;
+        this.refreshTtlSeconds = refreshTtlSeconds;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        // 启动时校验一次密钥可用
+        newMac();
+    }
+
+    /**
+     * 加载已吊销过令牌的用户版本，重启后旧令牌仍然无效
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadVersions() {
+        for (User user : userMapper.findTokenVersions()) {
+            versions.merge(user.getId(), user.getTokenVersion(), Math::max);
+        }
+        log.info("令牌版本已加载: {}个用户", versions.size());
+    }
+
+    /**
+     * 为用户签发访问令牌和刷新令牌，写入登录响应
+     */
+    public void issue(User user, LoginResponse response) {
+        int version = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+        versions.merge(user.getId(), version, Math::max);
+        long now = System.currentTimeMillis() / 1000;
+        response.setAccessToken(sign(TYPE_ACCESS, user.getId(), user.getRole(), version, now + accessTtlSeconds));
+        response.setRefreshToken(sign(TYPE_REFRESH, user.getId(), user.getRole(), version, now + refreshTtlSeconds));
+        response.setExpiresIn(accessTtlSeconds);
+    }
+
+    /**
+     * 校验访问令牌，签名、类型、过期时间或版本不符时返回null
+     */
+    public TokenClaims verifyAccess(String token) {
+        TokenClaims claims = parse(token, TYPE_ACCESS);
+        if (claims == null || claims.getTokenVersion() < versions.getOrDefault(claims.getUserId(), 0)) {
+            return null;
+        }
+        return claims;
+    }
+
+    /**
+     * 校验请求头Authorization: Bearer中的访问令牌，没有或无效时返回null
+     */
+    public TokenClaims verifyRequest(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return verifyAccess(header.substring(BEARER_PREFIX.length()).trim());
+    }
+
+    /**
+     * 用刷新令牌换一对新令牌，原刷新令牌随即作废
+     */
+    public LoginResponse refresh(String refreshToken) {
+        TokenClaims claims = parse(refreshToken, TYPE_REFRESH);
+        if (claims == null) {
+            throw new RuntimeException("刷新令牌无效或已过期");
+        }
+        // 记录保留到该刷新令牌过期，之后令牌本身已无法通过校验
+        if (refreshTokenUseMapper.markUsed(claims.getRefreshId(), claims.getUserId(), claims.getExpiresAt()) == 0) {
+            log.warn("刷新令牌被重复使用，吊销用户全部令牌: userId={}", claims.getUserId());
+            revoke(claims.getUserId());
+            throw new RuntimeException("刷新令牌已使用，请重新登录");
+        }
+        User user = userMapper.selectById(claims.getUserId());
+        if (user == null || !Boolean.TRUE.equals(user.getIsActive())) {
+            throw new RuntimeException("用户不存在或已被禁用");
+        }
+        int current = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+        versions.merge(user.getId(), current, Math::max);
+        if (claims.getTokenVersion() != current) {
+            throw new RuntimeException("登录已失效，请重新登录");
+        }
+        LoginResponse response = new LoginResponse();
+        issue(user, response);
+        return response;
+    }
+
+    /**
+     * 吊销用户已签发的全部令牌
+     * 在调用方事务中递增版本，提交后更新本节点版本表；没有事务时立即生效
+     */
+    public void revoke(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        userMapper.incrementTokenVersion(userId);
+        Integer version = userMapper.findTokenVersion(userId);
+        if (version != null) {
+            TransactionUtils.afterCommit(() -> versions.merge(userId, version, Math::max));
+        }
+    }
+
+    /**
+     * 分批删除对应刷新令牌已过期的使用记录，多个节点同时清理互不影响
+     */
+    @Scheduled(fixedDelayString = "${peiwan.auth.token.cleanup-interval-ms:3600000}")
+    public void cleanUpRefreshTokenUses() {
+        long now = System.currentTimeMillis() / 1000;
+        int deleted = 0;
+        int batch;
+        do {
+            batch = refreshTokenUseMapper.deleteExpired(now, CLEANUP_BATCH_SIZE);
+            deleted += batch;
+        } while (batch >= CLEANUP_BATCH_SIZE);
+        if (deleted > 0) {
+            log.info("清理过期的刷新令牌使用记录: {}", deleted);
+        }
+    }
+
+    private String sign(byte type, Long userId, User.UserRole role, int version, long expiresAt) {
+        int payloadLength = ACCESS_PAYLOAD_LENGTH + (type == TYPE_REFRESH ? REFRESH_ID_LENGTH : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(payloadLength + SIGNATURE_LENGTH);
+        buffer.put(FORMAT).put(type).putLong(userId).put((byte) role.ordinal()).putInt(version).putLong(expiresAt);
+        if (type == TYPE_REFRESH) {
+            byte[] refreshId = new byte[REFRESH_ID_LENGTH];
+            random.nextBytes(refreshId);
+            buffer.put(refreshId);
+        }
+        Mac mac = macs.get();
+        mac.update(buffer.array(), 0, payloadLength);
+        buffer.put(mac.doFinal());
+        return ENCODER.encodeToString(buffer.array());
+    }
+
+    private TokenClaims parse(String token, byte expectedType) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = DECODER.decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int payloadLength = ACCESS_PAYLOAD_LENGTH + (expectedType == TYPE_REFRESH ? REFRESH_ID_LENGTH : 0);
+        if (bytes.length != payloadLength + SIGNATURE_LENGTH || bytes[0] != FORMAT || bytes[1] != expectedType) {
+            return null;
+        }
+        Mac mac = macs.get();
+        mac.update(bytes, 0, payloadLength);
+        byte[] expected = mac.doFinal();
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, payloadLength, bytes.length))) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, payloadLength - 2);
+        long userId = buffer.getLong();
+        int roleOrdinal = buffer.get();
+        int version = buffer.getInt();
+        long expiresAt = buffer.getLong();
+        if (roleOrdinal < 0 || roleOrdinal >= ROLES.length || expiresAt <= System.currentTimeMillis() / 1000) {
+            return null;
+        }
+        byte[] refreshId = null;
+        if (expectedType == TYPE_REFRESH) {
+            refreshId = new byte[REFRESH_ID_LENGTH];
+            buffer.get(refreshId);
+        }
+        return new TokenClaims(userId, ROLES[roleOrdinal], version, expiresAt, refreshId);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法初始化令牌签名: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 令牌中携带的用户信息
+     */
+    public static final class TokenClaims {
+
+        private final Long userId;
+        private final User.UserRole role;
+        private final int tokenVersion;
+        private final long expiresAt;
+        private final byte[] refreshId;
+
+        TokenClaims(Long userId, User.UserRole role, int tokenVersion, long expiresAt, byte[] refreshId) {
+            this.userId = userId;
+            this.role = role;
+            this.tokenVersion = tokenVersion;
+            this.expiresAt = expiresAt;
+            this.refreshId = refreshId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public User.UserRole getRole() {
+            return role;
+        }
+
+        public int getTokenVersion() {
+            return tokenVersion;
+        }
+
+        long getExpiresAt() {
+            return expiresAt;
+        }
+
+        byte[] getRefreshId() {
+            return refreshId;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.peiwan.security;
+
+import com.peiwan.entity.HttpSessionRecord;
+import com.peiwan.mapper.HttpSessionMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于数据库的会话存储
+ * 所有节点共享http_sessions表，登录态不依赖会话粘滞，滚动重启不会掉线。
+ * 属性或空闲时间变化时立即整行写回；只有最后访问时间变化（绝大多数请求）时
+ * 先在内存中按会话合并，定期批量写入，读取时与未写入的访问时间取较大值。
+ * 过期会话读取时顺带删除，其余由定期清理按过期时间索引分批删除。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public class JdbcSessionRepository implements SessionRepository<JdbcSessionRepository.JdbcSession> {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcSessionRepository.class);
+
+    /**
+     * 单条批量UPDATE写入的会话数上限
+     */
+    private static final int TOUCH_CHUNK_SIZE = 500;
+
+    private final HttpSessionMapper httpSessionMapper;
+    private final Duration defaultMaxInactiveInterval;
+    private final int cleanupBatchSize;
+
+    /**
+     * 待写入的最后访问时间（会话ID -> 记录），同一会话多次访问只保留最新一次
+     */
+    private final Map<String, HttpSessionRecord> pendingTouches = new ConcurrentHashMap<>();
+
+    public JdbcSessionRepository(HttpSessionMapper httpSessionMapper, Duration defaultMaxInactiveInterval,
+                                 int cleanupBatchSize) {
+        this.httpSessionMapper = httpSessionMapper;
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.cleanupBatchSize = cleanupBatchSize;
+    }
+
+    @Override
+    public JdbcSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(defaultMaxInactiveInterval);
+        return new JdbcSession(session, true);
+    }
+
+    @Override
+    public void save(JdbcSession session) {
+        if (session.isNew) {
+            httpSessionMapper.insert(toRecord(session.delegate, true));
+        } else if (session.changed) {
+            pendingTouches.remove(session.originalId);
+            httpSessionMapper.update(session.originalId, toRecord(session.delegate, true));
+        } else if (session.accessed) {
+            pendingTouches.put(session.getId(), toRecord(session.delegate, false));
+        }
+        session.isNew = false;
+        session.changed = false;
+        session.accessed = false;
+        session.originalId = session.getId();
+    }
+
+    @Override
+    public JdbcSession findById(String id) {
+        HttpSessionRecord record = httpSessionMapper.findById(id);
+        if (record == null) {
+            return null;
+        }
+        long lastAccessTime = record.getLastAccessTime();
+        HttpSessionRecord pending = pendingTouches.get(id);
+        if (pending != null && pending.getLastAccessTime() > lastAccessTime) {
+            lastAccessTime = pending.getLastAccessTime();
+        }
+
+        MapSession session = new MapSession(id);
+        session.setCreationTime(Instant.ofEpochMilli(record.getCreationTime()));
+        session.setLastAccessedTime(Instant.ofEpochMilli(lastAccessTime));
+        session.setMaxInactiveInterval(Duration.ofSeconds(record.getMaxInactiveSeconds()));
+        try {
+            SessionAttributeCodec.decode(record.getAttributes()).forEach(session::setAttribute);
+        } catch (UncheckedIOException e) {
+            // 旧版本写入的Java序列化属性不再读取，按会话失效处理，重新登录即可
+            log.warn("会话属性无法解码，删除会话: {}", e.getMessage());
+            deleteById(id);
+            return null;
+        }
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return new JdbcSession(session, false);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        pendingTouches.remove(id);
+        httpSessionMapper.deleteById(id);
+    }
+
+    /**
+     * 批量写入积累的最后访问时间
+     */
+    @Scheduled(fixedDelayString = "${peiwan.session.flush-interval-ms:10000}")
+    public void flushTouches() {
+        if (pendingTouches.isEmpty()) {
+            return;
+        }
+        List<HttpSessionRecord> touches = new ArrayList<>(pendingTouches.size());
+        for (Map.Entry<String, HttpSessionRecord> entry : pendingTouches.entrySet()) {
+            // 只移除取出时的值，期间被更新的记录留到下一轮
+            if (pendingTouches.remove(entry.getKey(), entry.getValue())) {
+                touches.add(entry.getValue());
+            }
+        }
+        for (int from = 0; from < touches.size(); from += TOUCH_CHUNK_SIZE) {
+            List<HttpSessionRecord> chunk = touches.subList(from, Math.min(from + TOUCH_CHUNK_SIZE, touches.size()));
+            try {
+                httpSessionMapper.touchBatch(chunk);
+            } catch (RuntimeException e) {
+                // 写入失败的放回待写入，期间又有访问的保留较新的一条，下一轮重试
+                log.warn("批量写入会话访问时间失败: {}个会话留待下次写入 - {}", chunk.size(), e.getMessage());
+                for (HttpSessionRecord touch : chunk) {
+                    pendingTouches.merge(touch.getSessionId(), touch, JdbcSessionRepository::later);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分批删除已过期的会话，多个节点同时清理互不影响
+     */
+    @Scheduled(fixedDelayString = "${peiwan.session.cleanup-interval-ms:60000}")
+    public void cleanUpExpiredSessions() {
+        long now = System.currentTimeMillis();
+        int deleted = 0;
+        int batch;
+        do {
+            batch = httpSessionMapper.deleteExpired(now, cleanupBatchSize);
+            deleted += batch;
+        } while (batch >= cleanupBatchSize);
+        if (deleted > 0) {
+            log.info("清理过期会话: {}", deleted);
+        }
+    }
+
+    /**
+     * 停机前写出未落库的访问时间
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushTouches();
+    }
+
+    private static HttpSessionRecord later(HttpSessionRecord current, HttpSessionRecord failed) {
+        return current.getLastAccessTime() >= failed.getLastAccessTime() ? current : failed;
+    }
+
+    private static HttpSessionRecord toRecord(MapSession session, boolean withAttributes) {
+        long lastAccessTime = session.getLastAccessedTime().toEpochMilli();
+        long maxInactiveSeconds = session.getMaxInactiveInterval().getSeconds();
+        HttpSessionRecord record = new HttpSessionRecord();
+        record.setSessionId(session.getId());
+        record.setCreationTime(session.getCreationTime().toEpochMilli());
+        record.setLastAccessTime(lastAccessTime);
+        record.setMaxInactiveSeconds((int) maxInactiveSeconds);
+        // 空闲时间为负表示永不过期
+        record.setExpiryTime(maxInactiveSeconds < 0 ? Long.MAX_VALUE : lastAccessTime + maxInactiveSeconds * 1000);
+        if (withAttributes) {
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            for (String name : session.getAttributeNames()) {
+                attributes.put(name, session.getAttribute(name));
+            }
+            record.setAttributes(SessionAttributeCodec.encode(attributes));
+        }
+        return record;
+    }
+
+    /**
+     * 记录修改情况的会话，决定保存时整行写回、延迟写入访问时间还是什么都不做
+     */
+    public static final class JdbcSession implements Session {
+
+        private final MapSession delegate;
+        private boolean isNew;
+        private boolean changed;
+        private boolean accessed;
+        private String originalId;
+
+        JdbcSession(MapSession delegate, boolean isNew) {
+            this.delegate = delegate;
+            this.isNew = isNew;
+            this.originalId = delegate.getId();
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            changed = true;
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            return delegate.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            changed = true;
+            delegate.setAttribute(attributeName, attributeValue);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            changed = true;
+            delegate.removeAttribute(attributeName);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            accessed = true;
+            delegate.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            changed = true;
+            delegate.setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.peiwan.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录失败节流
+ * 按用户名和客户端IP分别统计窗口内的失败次数（窗口从第一次尝试开始），
+ * 超过上限后在校验密码之前直接拒绝，撞库请求不再消耗哈希线程。
+ * 校验密码前先占用一次额度（先自增再判断），并发请求不会在同一时刻都通过检查，失败时额度即已扣除；
+ * 登录成功后清零该用户名的计数并退还本次占用的IP额度；IP计数不清零，避免用一个真实账号反复刷新额度。
+ * 计数只在本节点内存中，多节点时实际上限为节点数倍。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class LoginThrottle {
+
+    private final Cache<String, AtomicInteger> usernameFailures;
+    private final Cache<String, AtomicInteger> ipFailures;
+    private final int usernameMaxFailures;
+    private final int ipMaxFailures;
+    private final LongAdder blocked = new LongAdder();
+
+    public LoginThrottle(@Value("${peiwan.auth.throttle.username-max-failures:5}") int usernameMaxFailures,
+                         @Value("${peiwan.auth.throttle.ip-max-failures:50}") int ipMaxFailures,
+                         @Value("${peiwan.auth.throttle.window-seconds:300}") long windowSeconds,
+                         @Value("${peiwan.auth.throttle.max-entries:100000}") long maxEntries) {
+        this.usernameMaxFailures = usernameMaxFailures;
+        this.ipMaxFailures = ipMaxFailures;
+        this.usernameFailures = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .build();
+        this.ipFailures = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .build();
+    }
+
+    /**
+     * 校验密码前占用一次尝试额度，用户名或IP的次数超过上限时抛出异常
+     * 自增和判断是同一次原子操作，同时到达的请求最多各有上限次通过
+     */
+    public void reserve(String username, String clientIp) {
+        boolean usernameExceeded = increment(usernameFailures, normalize(username)) > usernameMaxFailures;
+        boolean ipExceeded = increment(ipFailures, clientIp) > ipMaxFailures;
+        if (usernameExceeded || ipExceeded) {
+            blocked.increment();
+            throw new RuntimeException("登录失败次数过多，请稍后再试");
+        }
+    }
+
+    /**
+     * 登录成功后清零该用户名的计数，并退还本次占用的IP额度
+     */
+    public void recordSuccess(String username, String clientIp) {
+        String key = normalize(username);
+        if (key != null) {
+            usernameFailures.invalidate(key);
+        }
+        if (clientIp != null) {
+            AtomicInteger count = ipFailures.getIfPresent(clientIp);
+            if (count != null) {
+                count.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 被节流的用户名、IP数和拦截次数
+     */
+    public Map<String, Object> metricsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("usernames", usernameFailures.estimatedSize());
+        snapshot.put("ips", ipFailures.estimatedSize());
+        snapshot.put("blocked", blocked.sum());
+        return snapshot;
+    }
+
+    private static int increment(Cache<String, AtomicInteger> failures, String key) {
+        if (key == null) {
+            return 0;
+        }
+        return failures.get(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static String normalize(String username) {
+        return username != null ? username.trim().toLowerCase() : null;
+    }
+}
@@ -0,0 +1,154 @@
+package com.peiwan.security;
+
+import cn.hutool.crypto.digest.BCrypt;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 密码哈希执行器
+ * BCrypt校验和哈希都在固定大小的专用线程池中执行，队列有界：排队已满时立即拒绝，
+ * 登录高峰或撞库时最多占住“线程数+队列长度”个请求线程，其他接口不受影响。
+ * 新哈希使用配置的cost，已有哈希按其自带的cost校验，调整cost不影响老密码登录。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final int cost;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private volatile double hashMillis;
+
+    public PasswordHasher(@Value("${peiwan.auth.password.cost:10}") int cost,
+                          @Value("${peiwan.auth.password.threads:0}") int threads,
+                          @Value("${peiwan.auth.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${peiwan.auth.password.timeout-ms:5000}") long timeoutMillis) {
+        if (cost < 4 || cost > 31) {
+            throw new IllegalArgumentException("peiwan.auth.password.cost必须在4-31之间");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("peiwan.auth.password.queue-capacity必须大于0");
+        }
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.cost = cost;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 启动时按当前cost实测一次哈希耗时，便于在目标机器上选择cost
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void measure() {
+        long start = System.nanoTime();
+        hash("peiwan-warmup");
+        hashMillis = (System.nanoTime() - start) / 1_000_000.0;
+        log.info("密码哈希执行器已启动: cost={}, 线程{}个, 队列{}, 单次哈希{}ms",
+                cost, executor.getCorePoolSize(), queueCapacity,
+                String.format("%.1f", hashMillis));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 校验密码，哈希为空或格式不正确时返回false
+     */
+    public boolean matches(String rawPassword, String passwordHash) {
+        if (rawPassword == null || passwordHash == null || passwordHash.isEmpty()) {
+            return false;
+        }
+        return execute(() -> {
+            try {
+                return BCrypt.checkpw(rawPassword, passwordHash);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * 按配置的cost生成密码哈希
+     */
+    public String hash(String rawPassword) {
+        return execute(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost)));
+    }
+
+    /**
+     * 线程数、排队数、拒绝和超时次数，以及启动时实测的单次哈希耗时
+     */
+    public Map<String, Object> metricsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("cost", cost);
+        snapshot.put("hashMillis", hashMillis);
+        snapshot.put("threads", executor.getCorePoolSize());
+        snapshot.put("active", executor.getActiveCount());
+        snapshot.put("queued", executor.getQueue().size());
+        snapshot.put("queueCapacity", queueCapacity);
+        snapshot.put("completed", executor.getCompletedTaskCount());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("timedOut", timedOut.sum());
+        return snapshot;
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RuntimeException("系统繁忙，请稍后再试");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new RuntimeException("系统繁忙，请稍后再试");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求已中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
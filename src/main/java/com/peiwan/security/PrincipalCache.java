@@ -0,0 +1,57 @@
+package com.peiwan.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 已认证用户的本地缓存
+ * Session认证过滤器按用户ID取用户详情，命中时不访问数据库；
+ * 用户资料、密码变更和删除时由UserServiceImpl在事务提交后显式失效，
+ * 其他节点上的条目最迟在过期时间后重新加载。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class PrincipalCache {
+
+    private final Cache<Long, SessionUserDetailsService.SessionUserDetails> principals;
+
+    public PrincipalCache(@Value("${peiwan.auth.principal-cache.max-entries:10000}") long maxEntries,
+                          @Value("${peiwan.auth.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 读取用户详情，未命中时用loader加载；loader返回null（用户不存在）时不缓存
+     */
+    public SessionUserDetailsService.SessionUserDetails get(Long userId,
+            Function<Long, SessionUserDetailsService.SessionUserDetails> loader) {
+        return principals.get(userId, loader);
+    }
+
+    /**
+     * 使某个用户的缓存失效
+     */
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            principals.invalidate(userId);
+        }
+    }
+
+    /**
+     * 底层缓存（供统计接口读取命中率）
+     */
+    public Cache<Long, SessionUserDetailsService.SessionUserDetails> nativeCache() {
+        return principals;
+    }
+}
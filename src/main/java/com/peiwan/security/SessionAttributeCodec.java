@@ -0,0 +1,100 @@
+package com.peiwan.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 会话属性的紧凑二进制编码
+ * 格式：属性个数，随后每个属性为 名称 + 类型标记 + 值；
+ * 登录态只有用户ID、用户名和角色几个基本类型属性，按类型直接写出；
+ * 不支持其他类型，读取时也不做Java反序列化，库中数据无法构造出任意对象。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public final class SessionAttributeCodec {
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+
+    private SessionAttributeCodec() {
+    }
+
+    /**
+     * 编码属性，值为null的属性不写出，不支持的类型抛出IllegalArgumentException
+     */
+    public static byte[] encode(Map<String, Object> attributes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int count = 0;
+            for (Object value : attributes.values()) {
+                if (value != null) {
+                    count++;
+                }
+            }
+            out.writeShort(count);
+            for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+                Object value = entry.getValue();
+                if (value == null) {
+                    continue;
+                }
+                out.writeUTF(entry.getKey());
+                if (value instanceof String text) {
+                    out.writeByte(TYPE_STRING);
+                    out.writeUTF(text);
+                } else if (value instanceof Long number) {
+                    out.writeByte(TYPE_LONG);
+                    out.writeLong(number);
+                } else if (value instanceof Integer number) {
+                    out.writeByte(TYPE_INTEGER);
+                    out.writeInt(number);
+                } else if (value instanceof Boolean flag) {
+                    out.writeByte(TYPE_BOOLEAN);
+                    out.writeBoolean(flag);
+                } else {
+                    throw new IllegalArgumentException("不支持的会话属性类型: " + entry.getKey()
+                            + "=" + value.getClass().getName());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码属性
+     */
+    public static Map<String, Object> decode(byte[] data) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        if (data == null || data.length == 0) {
+            return attributes;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte type = in.readByte();
+                Object value = switch (type) {
+                    case TYPE_STRING -> in.readUTF();
+                    case TYPE_LONG -> in.readLong();
+                    case TYPE_INTEGER -> in.readInt();
+                    case TYPE_BOOLEAN -> in.readBoolean();
+                    default -> throw new IOException("未知的会话属性类型: " + type);
+                };
+                attributes.put(name, value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return attributes;
+    }
+}
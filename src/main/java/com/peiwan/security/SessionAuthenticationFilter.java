@@ -1,5 +1,6 @@
 package com.peiwan.security;
 
+import com.peiwan.entity.User;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,6 +8,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,7 +21,9 @@ import java.io.IOException;
 
 /**
  * Session认证过滤器
- * 从Session中获取用户信息并设置到Security Context中
+ * 从Session中获取用户信息并设置到Security Context中；
+ * 令牌模式（peiwan.auth.mode=token）下改为校验Authorization: Bearer访问令牌，
+ * 用户ID和角色直接取自令牌，不查询数据库也不创建会话
  * 
  * @author peiwan
  * @since 2024-01-01
@@ -30,6 +34,7 @@ import java.io.IOException;
 public class SessionAuthenticationFilter extends OncePerRequestFilter {
 
     private final SessionUserDetailsService userDetailsService;
+    private final ObjectProvider<AccessTokenService> accessTokenService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -42,6 +47,13 @@ public class SessionAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
+            AccessTokenService tokenService = accessTokenService.getIfAvailable();
+            if (tokenService != null) {
+                authenticateToken(request, tokenService);
+                filterChain.doFilter(request, response);
+                return;
+            }
+
             // 获取Session
             HttpSession session = request.getSession(false);
             if (session == null) {
@@ -84,4 +96,28 @@ public class SessionAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * 校验访问令牌并设置认证信息，令牌缺失或无效时保持未认证
+     */
+    private void authenticateToken(HttpServletRequest request, AccessTokenService tokenService) {
+        AccessTokenService.TokenClaims claims = tokenService.verifyRequest(request);
+        if (claims == null) {
+            return;
+        }
+
+        // 令牌只携带ID和角色，用户名等资料需要时再查询
+        User user = new User();
+        user.setId(claims.getUserId());
+        user.setRole(claims.getRole());
+        user.setIsActive(true);
+        SessionUserDetailsService.SessionUserDetails userDetails = new SessionUserDetailsService.SessionUserDetails(user);
+
+        UsernamePasswordAuthenticationToken authToken =
+            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+
+        log.debug("令牌认证成功: userId={}, role={}", claims.getUserId(), claims.getRole());
+    }
 }
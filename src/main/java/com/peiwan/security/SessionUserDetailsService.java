@@ -24,6 +24,7 @@ import java.util.Collections;
 public class SessionUserDetailsService implements UserDetailsService {
 
     private final UserService userService;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -36,33 +37,39 @@ public class SessionUserDetailsService implements UserDetailsService {
     }
 
     /**
-     * 根据用户ID加载用户详情
+     * 根据用户ID加载用户详情，优先读本地缓存
      */
     public UserDetails loadUserByUserId(Long userId) throws UsernameNotFoundException {
-        User user = userService.findById(userId);
-        if (user == null) {
+        SessionUserDetails userDetails = principalCache.get(userId, id -> {
+            User user = userService.findById(id);
+            return user != null ? new SessionUserDetails(user) : null;
+        });
+        if (userDetails == null) {
             throw new UsernameNotFoundException("用户不存在: " + userId);
         }
 
-        return new SessionUserDetails(user);
+        return userDetails;
     }
 
     /**
      * Session用户详情实现
+     * 会被PrincipalCache在多个请求间共享，创建后不要修改
      */
     public static class SessionUserDetails implements UserDetails {
         private final User user;
+        private final Collection<? extends GrantedAuthority> authorities;
 
         public SessionUserDetails(User user) {
             this.user = user;
+            // 根据用户角色确定权限，创建时计算一次
+            this.authorities = Collections.singletonList(
+                new SimpleGrantedAuthority("ROLE_" + user.getRole().name())
+            );
         }
 
         @Override
         public Collection<? extends GrantedAuthority> getAuthorities() {
-            // 根据用户角色返回权限
-            return Collections.singletonList(
-                new SimpleGrantedAuthority("ROLE_" + user.getRole().name())
-            );
+            return authorities;
         }
 
         @Override
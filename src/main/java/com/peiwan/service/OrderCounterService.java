@@ -0,0 +1,35 @@
+package com.peiwan.service;
+
+import com.peiwan.entity.Order;
+import com.peiwan.service.support.OrderStatusDeltas;
+
+import java.util.Map;
+
+/**
+ * 工单状态计数服务接口
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public interface OrderCounterService {
+
+    /**
+     * 在当前事务内累加计数增量
+     */
+    void apply(OrderStatusDeltas deltas);
+
+    /**
+     * 获取员工各状态工单数（未出现的状态为0）
+     */
+    Map<Order.OrderStatus, Long> countsForEmployee(Long employeeId);
+
+    /**
+     * 获取客服各状态工单数（未出现的状态为0）
+     */
+    Map<Order.OrderStatus, Long> countsForCs(Long csId);
+
+    /**
+     * 按工单表对账，修复计数漂移
+     */
+    void reconcile();
+}
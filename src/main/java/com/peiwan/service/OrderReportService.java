@@ -0,0 +1,27 @@
+package com.peiwan.service;
+
+import com.peiwan.entity.OrderDailyStat;
+import com.peiwan.entity.OrderStatusCounter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 工单报表服务接口
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public interface OrderReportService {
+
+    /**
+     * 查询日期范围内的工单日报（只读预聚合的日报表）
+     *
+     * @param ownerType 归属类型（员工或客服）
+     * @param ownerId   归属人ID，为空时返回该类型的全部归属人
+     * @param from      开始日期（含），为空时取结束日期前29天
+     * @param to        结束日期（含），为空时取今天
+     */
+    List<OrderDailyStat> findDailyStats(OrderStatusCounter.OwnerType ownerType, Long ownerId,
+                                        LocalDate from, LocalDate to);
+}
@@ -1,11 +1,22 @@
 package com.peiwan.service;
 
+import com.peiwan.dto.CursorPage;
 import com.peiwan.dto.OrderAuditRequest;
+import com.peiwan.dto.OrderBatchAuditRequest;
+import com.peiwan.dto.OrderBatchAuditResult;
 import com.peiwan.dto.OrderCompleteRequest;
 import com.peiwan.dto.OrderCreateRequest;
+import com.peiwan.dto.OrderLineageResponse;
+import com.peiwan.dto.OrderTimeline;
 import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderProof;
+import com.peiwan.entity.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 工单服务接口
@@ -45,21 +56,67 @@ public interface OrderService {
      */
     List<Order> findByStatus(Order.OrderStatus status);
 
+    /**
+     * 游标分页查询工单，筛选条件为空时忽略
+     *
+     * @param includeArchive 是否包含已归档的历史工单，默认只查热表
+     */
+    CursorPage<Order> findPage(Long csId, Long employeeId, Order.OrderStatus status, String cursor, Integer size,
+                               boolean includeArchive);
+
+    /**
+     * 批量查询多个工单的凭证，按工单ID分组（IN列表分段查询）
+     */
+    Map<Long, List<OrderProof>> findProofsByOrderIds(Collection<Long> orderIds, boolean includeArchive);
+
+    /**
+     * 按include参数（逗号分隔，目前支持proofs）为列表中的工单批量填充关联数据
+     */
+    void applyIncludes(List<Order> orders, String include, boolean includeArchive);
+
+    /**
+     * 按客户信息或工单编号片段搜索客服名下的工单（游标分页）
+     */
+    CursorPage<Order> searchOrders(Long csId, String keyword, String cursor, Integer size);
+
+    /**
+     * 流式导出工单，逐行回调，返回导出行数
+     */
+    long exportOrders(Order.OrderStatus status, Long csId, Long employeeId,
+                      LocalDateTime from, LocalDateTime to, boolean includeArchive, Consumer<Order> consumer);
+
     /**
      * 接单
      */
-    Order acceptOrder(Long orderId, String imageUrl, Long employeeId);
+    Order acceptOrder(Long orderId, String imageUrl, Integer expectedVersion, Long employeeId);
 
     /**
      * 完成订单
      */
     Order completeOrder(Long orderId, OrderCompleteRequest request, Long employeeId);
 
+    /**
+     * 查询工单所在的整条工单链（含凭证和审核日志）
+     * 管理员可查看任意工单链，客服和员工只能查看自己参与的工单所在的链
+     */
+    OrderLineageResponse getLineage(Long orderId, Long userId, User.UserRole role);
+
+    /**
+     * 查询工单时间线（一次联表查询，事件按时间排序），可见范围同getLineage
+     */
+    OrderTimeline getTimeline(Long orderId, Long userId, User.UserRole role);
+
     /**
      * 审核工单
      */
     Order auditOrder(Long orderId, OrderAuditRequest request, Long auditorId);
 
+    /**
+     * 批量审核工单
+     * 一次加锁查询、一条多行UPDATE和一条批量INSERT完成，逐个返回审核结果
+     */
+    List<OrderBatchAuditResult> batchAuditOrders(List<OrderBatchAuditRequest.Item> items, Long auditorId);
+
     /**
      * 续单
      */
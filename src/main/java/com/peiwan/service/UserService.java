@@ -18,8 +18,20 @@ public interface UserService {
 
     /**
      * 用户登录
+     *
+     * @param clientIp 客户端IP，用于失败次数节流
      */
-    LoginResponse login(LoginRequest request);
+    LoginResponse login(LoginRequest request, String clientIp);
+
+    /**
+     * 用刷新令牌换取新的访问令牌和刷新令牌（仅令牌模式）
+     */
+    LoginResponse refreshToken(String refreshToken);
+
+    /**
+     * 吊销用户已签发的全部令牌（仅令牌模式，会话模式下不做任何事）
+     */
+    void revokeTokens(Long userId);
 
     /**
      * 用户注册
@@ -82,7 +94,7 @@ public interface UserService {
     boolean validateUsernameAndRealName(String username, String realName);
 
     /**
-     * 更新最后登录时间
+     * 记录最后登录时间（延迟批量写入）
      */
     void updateLastLogin(Long userId);
 
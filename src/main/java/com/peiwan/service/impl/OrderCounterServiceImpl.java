@@ -0,0 +1,171 @@
+package com.peiwan.service.impl;
+
+import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderStatusCounter;
+import com.peiwan.mapper.OrderStatusCounterMapper;
+import com.peiwan.service.OrderCounterService;
+import com.peiwan.service.support.OrderStatusDeltas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 工单状态计数服务实现类
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Service
+public class OrderCounterServiceImpl implements OrderCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderCounterServiceImpl.class);
+
+    /**
+     * 主键顺序：归属人、状态（同一归属类型内）
+     */
+    private static final Comparator<OrderStatusCounter> PRIMARY_KEY_ORDER =
+            Comparator.comparing(OrderStatusCounter::getOwnerId).thenComparing(OrderStatusCounter::getStatus);
+
+    private final OrderStatusCounterMapper orderStatusCounterMapper;
+    private final TransactionTemplate repairTransaction;
+    private final int chunkSize;
+
+    public OrderCounterServiceImpl(OrderStatusCounterMapper orderStatusCounterMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${order.counters.reconcile-chunk-size:200}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("order.counters.reconcile-chunk-size必须大于0");
+        }
+        this.orderStatusCounterMapper = orderStatusCounterMapper;
+        this.repairTransaction = new TransactionTemplate(transactionManager);
+        this.repairTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void apply(OrderStatusDeltas deltas) {
+        List<OrderStatusCounter> counters = deltas.toList();
+        if (!counters.isEmpty()) {
+            orderStatusCounterMapper.applyDeltas(counters);
+        }
+    }
+
+    @Override
+    public Map<Order.OrderStatus, Long> countsForEmployee(Long employeeId) {
+        return counts(OrderStatusCounter.OwnerType.EMPLOYEE, employeeId);
+    }
+
+    @Override
+    public Map<Order.OrderStatus, Long> countsForCs(Long csId) {
+        return counts(OrderStatusCounter.OwnerType.CS, csId);
+    }
+
+    /**
+     * 按归属人分段对账，每段先不加锁统计工单表并与计数比较，只有存在漂移的归属人才在短事务中加锁修正：
+     * 先锁定这些归属人的计数行，再以一致性读重新统计，锁住计数后已提交的迁移都已反映在快照里，
+     * 未提交的迁移会等待锁释放后再累加自己的增量，因此两者之差就是真实漂移；
+     * 多个节点同时修正同一归属人也会在锁上串行，后者复核时已无漂移
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${order.counters.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        int repaired = 0;
+        long afterId = 0;
+        List<Long> ownerIds;
+        do {
+            ownerIds = orderStatusCounterMapper.findOwnerIds(afterId, chunkSize);
+            if (ownerIds.isEmpty()) {
+                break;
+            }
+            for (OrderStatusCounter.OwnerType ownerType : OrderStatusCounter.OwnerType.values()) {
+                List<Long> drifted = driftedOwners(diff(orderStatusCounterMapper.findByOwners(ownerType, ownerIds),
+                        orderStatusCounterMapper.countFromOrders(ownerType, ownerIds)));
+                if (!drifted.isEmpty()) {
+                    Integer count = repairTransaction.execute(status -> repair(ownerType, drifted));
+                    repaired += count != null ? count : 0;
+                }
+            }
+            afterId = ownerIds.get(ownerIds.size() - 1);
+        } while (ownerIds.size() == chunkSize);
+
+        if (repaired > 0) {
+            log.warn("工单状态计数对账修复: {} 项", repaired);
+        }
+    }
+
+    /**
+     * 锁定归属人的计数行后复核并修正漂移，返回修正的项数
+     */
+    private int repair(OrderStatusCounter.OwnerType ownerType, List<Long> ownerIds) {
+        List<OrderStatusCounter> stored = orderStatusCounterMapper.lockByOwners(ownerType, ownerIds);
+        List<OrderStatusCounter> repairs = diff(stored, orderStatusCounterMapper.countFromOrders(ownerType, ownerIds));
+        if (!repairs.isEmpty()) {
+            orderStatusCounterMapper.applyDeltas(repairs);
+        }
+        return repairs.size();
+    }
+
+    /**
+     * 计数与实际统计之差，按主键顺序排列；工单表中已没有对应工单的计数归零
+     */
+    private static List<OrderStatusCounter> diff(List<OrderStatusCounter> storedCounters, List<OrderStatusCounter> actualCounters) {
+        Map<String, OrderStatusCounter> stored = new HashMap<>();
+        for (OrderStatusCounter counter : storedCounters) {
+            stored.put(key(counter), counter);
+        }
+
+        List<OrderStatusCounter> repairs = new ArrayList<>();
+        for (OrderStatusCounter actual : actualCounters) {
+            OrderStatusCounter current = stored.remove(key(actual));
+            long drift = actual.getCount() - (current != null ? current.getCount() : 0L);
+            if (drift != 0) {
+                repairs.add(new OrderStatusCounter(actual.getOwnerType(), actual.getOwnerId(), actual.getStatus(), drift));
+            }
+        }
+        for (OrderStatusCounter orphan : stored.values()) {
+            if (!Objects.equals(orphan.getCount(), 0L)) {
+                repairs.add(new OrderStatusCounter(orphan.getOwnerType(), orphan.getOwnerId(), orphan.getStatus(), -orphan.getCount()));
+            }
+        }
+        repairs.sort(PRIMARY_KEY_ORDER);
+        return repairs;
+    }
+
+    private static List<Long> driftedOwners(List<OrderStatusCounter> repairs) {
+        List<Long> ownerIds = new ArrayList<>();
+        for (OrderStatusCounter repair : repairs) {
+            if (ownerIds.isEmpty() || !ownerIds.get(ownerIds.size() - 1).equals(repair.getOwnerId())) {
+                ownerIds.add(repair.getOwnerId());
+            }
+        }
+        return ownerIds;
+    }
+
+    private Map<Order.OrderStatus, Long> counts(OrderStatusCounter.OwnerType ownerType, Long ownerId) {
+        Map<Order.OrderStatus, Long> counts = new EnumMap<>(Order.OrderStatus.class);
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            counts.put(status, 0L);
+        }
+        for (OrderStatusCounter counter : orderStatusCounterMapper.findByOwner(ownerType, ownerId)) {
+            counts.put(counter.getStatus(), counter.getCount());
+        }
+        return counts;
+    }
+
+    private static String key(OrderStatusCounter counter) {
+        return counter.getOwnerType() + ":" + counter.getOwnerId() + ":" + counter.getStatus();
+    }
+}
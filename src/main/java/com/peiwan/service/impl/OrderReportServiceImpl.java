@@ -0,0 +1,54 @@
+package com.peiwan.service.impl;
+
+import com.peiwan.entity.OrderDailyStat;
+import com.peiwan.entity.OrderStatusCounter;
+import com.peiwan.mapper.OrderDailyStatMapper;
+import com.peiwan.service.OrderReportService;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * 工单报表服务实现类
+ * 
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Service
+public class OrderReportServiceImpl implements OrderReportService {
+
+    /**
+     * 默认查询天数
+     */
+    private static final int DEFAULT_DAYS = 30;
+
+    /**
+     * 单次查询最多跨越的天数
+     */
+    private static final int MAX_DAYS = 366;
+
+    private final OrderDailyStatMapper orderDailyStatMapper;
+
+    public OrderReportServiceImpl(OrderDailyStatMapper orderDailyStatMapper) {
+        this.orderDailyStatMapper = orderDailyStatMapper;
+    }
+
+    @Override
+    public List<OrderDailyStat> findDailyStats(OrderStatusCounter.OwnerType ownerType, Long ownerId,
+                                               LocalDate from, LocalDate to) {
+        if (ownerType == null) {
+            throw new RuntimeException("归属类型不能为空");
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (start.isAfter(end)) {
+            throw new RuntimeException("开始日期不能晚于结束日期");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+            throw new RuntimeException("查询范围不能超过" + MAX_DAYS + "天");
+        }
+        return orderDailyStatMapper.findRange(ownerType, ownerId, start, end);
+    }
+}
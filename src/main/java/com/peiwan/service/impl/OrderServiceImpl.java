@@ -1,24 +1,57 @@
 package com.peiwan.service.impl;
 
+import com.peiwan.dto.CursorPage;
 import com.peiwan.dto.OrderAuditRequest;
+import com.peiwan.dto.OrderBatchAuditRequest;
+import com.peiwan.dto.OrderBatchAuditResult;
 import com.peiwan.dto.OrderCompleteRequest;
 import com.peiwan.dto.OrderCreateRequest;
+import com.peiwan.dto.OrderCursor;
+import com.peiwan.dto.OrderLineageResponse;
+import com.peiwan.dto.OrderStatusUpdate;
+import com.peiwan.dto.OrderTimeline;
 import com.peiwan.entity.AuditLog;
 import com.peiwan.entity.Order;
 import com.peiwan.entity.OrderProof;
+import com.peiwan.entity.User;
+import com.peiwan.exception.OrderConflictException;
 import com.peiwan.mapper.AuditLogMapper;
 import com.peiwan.mapper.OrderMapper;
 import com.peiwan.mapper.OrderProofMapper;
+import com.peiwan.mapper.OrderTimelineMapper;
+import com.peiwan.service.OrderCounterService;
 import com.peiwan.service.OrderService;
+import com.peiwan.service.support.OrderNumberAllocator;
+import com.peiwan.service.support.OrderEventBus;
+import com.peiwan.service.support.OrderStateMachine;
+import com.peiwan.service.support.OrderTransition;
+import com.peiwan.service.support.OrderTransitionContext;
+import com.peiwan.service.support.OrderStatusDeltas;
+import com.peiwan.util.TransactionUtils;
+import org.apache.ibatis.cursor.Cursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * 工单服务实现类
@@ -31,18 +64,54 @@ public class OrderServiceImpl implements OrderService {
 
     private static final Logger log = LoggerFactory.getLogger(OrderServiceImpl.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * 搜索关键词的长度范围，下限与ngram_token_size一致
+     */
+    private static final int MIN_SEARCH_LENGTH = 2;
+    private static final int MAX_SEARCH_LENGTH = 64;
+
+    /**
+     * 全文检索布尔模式的运算符，作为普通字符搜索时替换为空格
+     */
+    private static final Pattern SEARCH_OPERATORS = Pattern.compile("[+\\-<>()~*\"@]+");
+    private static final int MAX_BATCH_AUDIT_SIZE = 200;
+
+    /**
+     * 批量查询凭证时每段IN列表的长度上限
+     */
+    private static final int PROOF_LOOKUP_CHUNK_SIZE = 500;
+    private static final String INCLUDE_PROOFS = "proofs";
+    private static final String ORDER_CACHE = "orders";
+
     private final OrderMapper orderMapper;
     private final OrderProofMapper orderProofMapper;
     private final AuditLogMapper auditLogMapper;
-
-    public OrderServiceImpl(OrderMapper orderMapper, OrderProofMapper orderProofMapper, AuditLogMapper auditLogMapper) {
+    private final OrderNumberAllocator orderNumberAllocator;
+    private final CacheManager cacheManager;
+    private final OrderCounterService orderCounterService;
+    private final OrderTimelineMapper orderTimelineMapper;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderEventBus orderEventBus;
+
+    public OrderServiceImpl(OrderMapper orderMapper, OrderProofMapper orderProofMapper, AuditLogMapper auditLogMapper,
+                            OrderNumberAllocator orderNumberAllocator, CacheManager cacheManager,
+                            OrderCounterService orderCounterService, OrderTimelineMapper orderTimelineMapper,
+                            OrderStateMachine orderStateMachine, OrderEventBus orderEventBus) {
         this.orderMapper = orderMapper;
         this.orderProofMapper = orderProofMapper;
         this.auditLogMapper = auditLogMapper;
+        this.orderTimelineMapper = orderTimelineMapper;
+        this.orderNumberAllocator = orderNumberAllocator;
+        this.cacheManager = cacheManager;
+        this.orderCounterService = orderCounterService;
+        this.orderStateMachine = orderStateMachine;
+        this.orderEventBus = orderEventBus;
+        registerTransitionHooks();
     }
 
-    private static final AtomicInteger orderCounter = new AtomicInteger(1);
-
     @Override
     @Transactional
     public Order createOrder(OrderCreateRequest request, Long csUserId) {
@@ -57,13 +126,30 @@ public class OrderServiceImpl implements OrderService {
         order.setUpdatedAt(LocalDateTime.now());
 
         orderMapper.insert(order);
+        orderCounterService.apply(new OrderStatusDeltas().created(order));
+        publishAfterCommit(null, order, null);
         log.info("工单创建成功: {}", order.getOrderNumber());
         return order;
     }
 
+    /**
+     * 按ID读取工单，命中缓存时不访问数据库
+     * 直接通过CacheManager读写缓存：本类内部的调用不经过代理，用@Cacheable不会命中；
+     * 缓存中的对象为共享实例，调用方不要修改
+     */
     @Override
     public Order findById(Long id) {
-        return orderMapper.selectById(id);
+        Cache cache = cacheManager.getCache(ORDER_CACHE);
+        if (cache == null) {
+            return orderMapper.selectById(id);
+        }
+        // 加载与写入是同一次原子操作，期间提交的失效会等加载写入后再执行，旧值不会在失效之后被写回
+        Order order = cache.get(id, () -> orderMapper.selectById(id));
+        if (order == null) {
+            // 不缓存不存在的工单
+            cache.evict(id);
+        }
+        return order;
     }
 
     @Override
@@ -87,193 +173,574 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    @Transactional
-    public Order acceptOrder(Long orderId, String imageUrl, Long employeeId) {
-        Order order = findById(orderId);
-        if (order == null) {
-            throw new RuntimeException("工单不存在");
-        }
+    public CursorPage<Order> findPage(Long csId, Long employeeId, Order.OrderStatus status, String cursor, Integer size,
+                                      boolean includeArchive) {
+        int limit = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        OrderCursor after = OrderCursor.decode(cursor);
+
+        // 多取一行用于判断是否还有下一页
+        List<Order> orders = orderMapper.findPage(csId, employeeId, status,
+                after != null ? after.getCreatedAt() : null,
+                after != null ? after.getId() : null,
+                limit + 1, includeArchive);
+        return toPage(orders, limit);
+    }
 
-        if (!order.getAssignedEmployeeId().equals(employeeId)) {
-            throw new RuntimeException("无权操作此工单");
+    @Override
+    public Map<Long, List<OrderProof>> findProofsByOrderIds(Collection<Long> orderIds, boolean includeArchive) {
+        Map<Long, List<OrderProof>> proofs = new HashMap<>();
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(orderIds));
+        for (int from = 0; from < ids.size(); from += PROOF_LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + PROOF_LOOKUP_CHUNK_SIZE, ids.size()));
+            for (OrderProof proof : orderProofMapper.findByOrderIds(chunk, includeArchive)) {
+                proofs.computeIfAbsent(proof.getOrderId(), k -> new ArrayList<>()).add(proof);
+            }
         }
+        return proofs;
+    }
 
-        if (order.getStatus() != Order.OrderStatus.PENDING_ACCEPTANCE) {
-            throw new RuntimeException("工单状态不允许接单");
+    @Override
+    public void applyIncludes(List<Order> orders, String include, boolean includeArchive) {
+        if (include == null || orders.isEmpty()) {
+            return;
         }
+        for (String item : include.split(",")) {
+            if (INCLUDE_PROOFS.equals(item.trim())) {
+                List<Long> orderIds = new ArrayList<>(orders.size());
+                for (Order order : orders) {
+                    orderIds.add(order.getId());
+                }
+                // 一次批量查询代替逐个工单查询
+                Map<Long, List<OrderProof>> proofs = findProofsByOrderIds(orderIds, includeArchive);
+                for (Order order : orders) {
+                    order.setProofs(proofs.getOrDefault(order.getId(), List.of()));
+                }
+                return;
+            }
+        }
+    }
 
-        // 更新工单状态与接单截图
-        order.setStatus(Order.OrderStatus.IN_PROGRESS);
-        order.setAcceptedAt(LocalDateTime.now());
-        order.setAcceptanceScreenshotUrl(imageUrl);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderMapper.updateById(order);
-
-        // 保存接单凭证
-        OrderProof proof = new OrderProof();
-        proof.setOrderId(orderId);
-        proof.setProofType(OrderProof.ProofType.ACCEPTANCE);
-        proof.setImageUrl(imageUrl);
-        proof.setUploadedAt(LocalDateTime.now());
-        proof.setCreatedAt(LocalDateTime.now());
-        proof.setUpdatedAt(LocalDateTime.now());
-        orderProofMapper.insert(proof);
+    @Override
+    public CursorPage<Order> searchOrders(Long csId, String keyword, String cursor, Integer size) {
+        String phrase = keyword == null ? "" : SEARCH_OPERATORS.matcher(keyword).replaceAll(" ").trim();
+        if (phrase.codePointCount(0, phrase.length()) < MIN_SEARCH_LENGTH) {
+            throw new RuntimeException("搜索关键词至少" + MIN_SEARCH_LENGTH + "个字符");
+        }
+        if (phrase.length() > MAX_SEARCH_LENGTH) {
+            phrase = phrase.substring(0, MAX_SEARCH_LENGTH);
+        }
+        int limit = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        OrderCursor after = OrderCursor.decode(cursor);
+
+        // 整体作为短语匹配：ngram切分后要求各片段相邻出现，等价于子串匹配
+        List<Order> orders = orderMapper.search(csId, "\"" + phrase + "\"",
+                after != null ? after.getCreatedAt() : null,
+                after != null ? after.getId() : null,
+                limit + 1);
+        return toPage(orders, limit);
+    }
 
-        log.info("工单接单成功: {}", order.getOrderNumber());
-        return order;
+    @Override
+    @Transactional(readOnly = true)
+    public long exportOrders(Order.OrderStatus status, Long csId, Long employeeId,
+                             LocalDateTime from, LocalDateTime to, boolean includeArchive, Consumer<Order> consumer) {
+        long rows = 0;
+        try (Cursor<Order> cursor = orderMapper.streamForExport(status, csId, employeeId, from, to, includeArchive)) {
+            for (Order order : cursor) {
+                consumer.accept(order);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
     }
 
     @Override
     @Transactional
-    public Order completeOrder(Long orderId, OrderCompleteRequest request, Long employeeId) {
-        Order order = findById(orderId);
-        if (order == null) {
-            throw new RuntimeException("工单不存在");
+    public Order acceptOrder(Long orderId, String imageUrl, Integer expectedVersion, Long employeeId) {
+        OrderTransitionContext context = new OrderTransitionContext(OrderTransition.ACCEPT, orderId, employeeId);
+        context.setImageUrl(imageUrl);
+        Order.OrderStatus fromStatus = orderStateMachine.fire(context, ctx -> {
+            // 条件更新工单状态与接单截图
+            OrderStatusUpdate update = statusUpdate(ctx, expectedVersion);
+            update.setEmployeeId(employeeId);
+            update.setAcceptedAt(update.getUpdatedAt());
+            update.setAcceptanceScreenshotUrl(imageUrl);
+            return transitionFrom(ctx, update);
+        });
+        if (fromStatus == null) {
+            throw transitionFailure(orderId, employeeId, expectedVersion, OrderTransition.ACCEPT);
         }
+        log.info("工单接单成功: {}", context.getOrder().getOrderNumber());
+        return context.getOrder();
+    }
 
-        if (!order.getAssignedEmployeeId().equals(employeeId)) {
-            throw new RuntimeException("无权操作此工单");
+    @Override
+    @Transactional
+    public Order completeOrder(Long orderId, OrderCompleteRequest request, Long employeeId) {
+        OrderTransitionContext context = new OrderTransitionContext(OrderTransition.COMPLETE, orderId, employeeId);
+        context.setImageUrl(request.getImageUrl());
+        Order.OrderStatus fromStatus = orderStateMachine.fire(context, ctx -> {
+            // 条件更新工单状态与完成截图
+            OrderStatusUpdate update = statusUpdate(ctx, request.getVersion());
+            update.setEmployeeId(employeeId);
+            update.setCompletedAt(update.getUpdatedAt());
+            update.setCompletionScreenshotUrl(request.getImageUrl());
+            return transitionFrom(ctx, update);
+        });
+        if (fromStatus == null) {
+            throw transitionFailure(orderId, employeeId, request.getVersion(), OrderTransition.COMPLETE);
         }
+        log.info("工单完成成功: {}", context.getOrder().getOrderNumber());
+        return context.getOrder();
+    }
 
-        if (order.getStatus() != Order.OrderStatus.IN_PROGRESS) {
-            throw new RuntimeException("工单状态不允许完成");
+    @Override
+    @Transactional
+    public Order auditOrder(Long orderId, OrderAuditRequest request, Long auditorId) {
+        OrderTransition transition = auditTransition(request.getAction());
+        OrderTransitionContext context = new OrderTransitionContext(transition, orderId, auditorId);
+        context.setComments(request.getComments());
+        Order.OrderStatus fromStatus = orderStateMachine.fire(context,
+                ctx -> transitionFrom(ctx, statusUpdate(ctx, request.getVersion())));
+        if (fromStatus == null) {
+            throw transitionFailure(orderId, null, request.getVersion(), transition);
         }
-
-        // 更新工单状态与完成截图
-        order.setStatus(Order.OrderStatus.PENDING_AUDIT);
-        order.setCompletedAt(LocalDateTime.now());
-        order.setCompletionScreenshotUrl(request.getImageUrl());
-        order.setUpdatedAt(LocalDateTime.now());
-        orderMapper.updateById(order);
-
-        // 保存完成凭证
-        OrderProof proof = new OrderProof();
-        proof.setOrderId(orderId);
-        proof.setProofType(OrderProof.ProofType.COMPLETION);
-        proof.setImageUrl(request.getImageUrl());
-        proof.setUploadedAt(LocalDateTime.now());
-        proof.setCreatedAt(LocalDateTime.now());
-        proof.setUpdatedAt(LocalDateTime.now());
-        orderProofMapper.insert(proof);
-
-        log.info("工单完成成功: {}", order.getOrderNumber());
-        return order;
+        log.info("工单审核成功: {} - {}", context.getOrder().getOrderNumber(), request.getAction());
+        return context.getOrder();
     }
 
     @Override
     @Transactional
-    public Order auditOrder(Long orderId, OrderAuditRequest request, Long auditorId) {
-        Order order = findById(orderId);
-        if (order == null) {
-            throw new RuntimeException("工单不存在");
+    public List<OrderBatchAuditResult> batchAuditOrders(List<OrderBatchAuditRequest.Item> items, Long auditorId) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("审核条目不能为空");
         }
+        if (items.size() > MAX_BATCH_AUDIT_SIZE) {
+            throw new RuntimeException("单次最多审核" + MAX_BATCH_AUDIT_SIZE + "个工单");
+        }
+        long start = System.nanoTime();
 
-        if (order.getStatus() != Order.OrderStatus.PENDING_AUDIT && order.getStatus() != Order.OrderStatus.REJECTED_TO_SUBMIT) {
-            throw new RuntimeException("工单状态不允许审核");
+        Set<Long> orderIds = new LinkedHashSet<>();
+        for (OrderBatchAuditRequest.Item item : items) {
+            if (item.getOrderId() != null) {
+                orderIds.add(item.getOrderId());
+            }
+        }
+        Map<Long, Order> locked = new HashMap<>();
+        if (!orderIds.isEmpty()) {
+            for (Order order : orderMapper.lockByIds(orderIds)) {
+                locked.put(order.getId(), order);
+            }
         }
 
-        // 更新工单状态
-        Order.OrderStatus newStatus = request.getAction() == AuditLog.AuditAction.APPROVE 
-            ? Order.OrderStatus.COMPLETED 
-            : Order.OrderStatus.REJECTED;
-        order.setStatus(newStatus);
-        order.setUpdatedAt(LocalDateTime.now());
-        orderMapper.updateById(order);
+        // 在行锁保护下逐个校验，合格的条目合并为一条UPDATE
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> seen = new HashSet<>();
+        List<OrderBatchAuditResult> results = new ArrayList<>(items.size());
+        List<OrderStatusUpdate> updates = new ArrayList<>();
+        List<OrderTransition> transitions = new ArrayList<>();
+        List<AuditLog> auditLogs = new ArrayList<>();
+        List<Order> auditedOrders = new ArrayList<>();
+        OrderStatusDeltas deltas = new OrderStatusDeltas();
+        for (OrderBatchAuditRequest.Item item : items) {
+            Long orderId = item.getOrderId();
+            Order order = locked.get(orderId);
+            OrderTransition transition = item.getAction() != null ? auditTransition(item.getAction()) : null;
+            String failure = null;
+            if (orderId == null || transition == null) {
+                failure = "工单ID和审核动作不能为空";
+            } else if (!seen.add(orderId)) {
+                failure = "重复的工单";
+            } else if (order == null) {
+                failure = "工单不存在";
+            } else if (!orderStateMachine.allows(order.getStatus(), transition)) {
+                orderStateMachine.recordRejected(transition);
+                failure = orderStateMachine.rejectionOf(transition).getMessage();
+            } else if (item.getVersion() != null && !item.getVersion().equals(order.getVersion())) {
+                failure = "工单已被修改，请刷新后重试";
+            }
+            if (failure != null) {
+                results.add(OrderBatchAuditResult.failure(orderId, failure));
+                continue;
+            }
+
+            Order.OrderStatus newStatus = transition.getTarget();
+            OrderStatusUpdate update = new OrderStatusUpdate();
+            update.setId(orderId);
+            update.setToStatus(newStatus);
+            updates.add(update);
+            transitions.add(transition);
+            auditedOrders.add(order);
+            deltas.moved(order, order.getStatus(), newStatus);
+
+            AuditLog auditLog = new AuditLog();
+            auditLog.setOrderId(orderId);
+            auditLog.setAuditorId(auditorId);
+            auditLog.setAction(item.getAction());
+            auditLog.setComments(item.getComments());
+            auditLog.setCreatedAt(now);
+            auditLog.setUpdatedAt(now);
+            auditLogs.add(auditLog);
+
+            results.add(OrderBatchAuditResult.success(orderId, newStatus));
+        }
 
-        // 保存审核日志
-        AuditLog auditLog = new AuditLog();
-        auditLog.setOrderId(orderId);
-        auditLog.setAuditorId(auditorId);
-        auditLog.setAction(request.getAction());
-        auditLog.setComments(request.getComments());
-        auditLog.setCreatedAt(LocalDateTime.now());
-        auditLog.setUpdatedAt(LocalDateTime.now());
-        auditLogMapper.insert(auditLog);
+        if (!updates.isEmpty()) {
+            // 各条目已在行锁下按状态机逐条校验，这里的原状态条件取两种审核迁移的并集
+            Set<Order.OrderStatus> fromStatuses = EnumSet.noneOf(Order.OrderStatus.class);
+            fromStatuses.addAll(orderStateMachine.sourcesOf(OrderTransition.APPROVE));
+            fromStatuses.addAll(orderStateMachine.sourcesOf(OrderTransition.REJECT));
+            int updated = orderMapper.batchTransition(updates, fromStatuses, now);
+            if (updated != updates.size()) {
+                // 行已加锁，正常不会出现；出现时整体回滚，避免审核日志与工单状态不一致
+                throw new OrderConflictException("工单状态已变化，请刷新后重试");
+            }
+            auditLogMapper.insertBatch(auditLogs);
+            orderCounterService.apply(deltas);
+            List<Long> auditedIds = new ArrayList<>(updates.size());
+            for (OrderStatusUpdate update : updates) {
+                auditedIds.add(update.getId());
+            }
+            evictAfterCommit(auditedIds);
+            // 加锁读到的是迁移前的工单，事件按本次写入的状态、版本号和时间发布
+            TransactionUtils.afterCommit(() -> {
+                for (int i = 0; i < auditedOrders.size(); i++) {
+                    Order order = auditedOrders.get(i);
+                    orderEventBus.publish(transitions.get(i), order, order.getStatus(),
+                            updates.get(i).getToStatus(), order.getVersion() + 1, now);
+                }
+            });
+            long elapsedPerOrder = (System.nanoTime() - start) / updates.size();
+            transitions.forEach(transition -> orderStateMachine.recordCompleted(transition, elapsedPerOrder));
+        }
 
-        log.info("工单审核成功: {} - {}", order.getOrderNumber(), request.getAction());
-        return order;
+        log.info("批量审核完成: auditorId={}, total={}, success={}", auditorId, items.size(), updates.size());
+        return results;
     }
 
     @Override
-    @Transactional
-    public Order renewOrder(Long orderId, Long employeeId) {
-        Order originalOrder = findById(orderId);
-        if (originalOrder == null) {
-            throw new RuntimeException("原工单不存在");
+    public OrderLineageResponse getLineage(Long orderId, Long userId, User.UserRole role) {
+        Order order = findById(orderId);
+        checkVisible(order, userId, role);
+
+        Long rootOrderId = order.getRootOrderId() != null ? order.getRootOrderId() : order.getId();
+        // 根工单完成后可能先于仍在进行的续单被归档，整条链连同凭证和日志都要带上归档表
+        List<Order> chain = orderMapper.findChain(rootOrderId, true);
+        List<Long> orderIds = new ArrayList<>(chain.size());
+        for (Order item : chain) {
+            orderIds.add(item.getId());
         }
 
-        if (!originalOrder.getAssignedEmployeeId().equals(employeeId)) {
-            throw new RuntimeException("无权操作此工单");
+        // 凭证和审核日志各一次批量查询，再按工单分组
+        Map<Long, List<OrderProof>> proofs = findProofsByOrderIds(orderIds, true);
+        Map<Long, List<AuditLog>> auditLogs = new HashMap<>();
+        for (AuditLog auditLog : auditLogMapper.findByOrderIds(orderIds, true)) {
+            auditLogs.computeIfAbsent(auditLog.getOrderId(), k -> new ArrayList<>()).add(auditLog);
         }
 
-        if (originalOrder.getStatus() != Order.OrderStatus.COMPLETED) {
-            throw new RuntimeException("只有已完成的工单才能续单");
+        List<OrderLineageResponse.Node> nodes = new ArrayList<>(chain.size());
+        for (Order item : chain) {
+            OrderLineageResponse.Node node = new OrderLineageResponse.Node();
+            node.setOrder(item);
+            node.setProofs(proofs.getOrDefault(item.getId(), List.of()));
+            node.setAuditLogs(auditLogs.getOrDefault(item.getId(), List.of()));
+            nodes.add(node);
         }
 
-        // 创建续单
-        Order newOrder = new Order();
-        newOrder.setOrderNumber(generateOrderNumber());
-        newOrder.setClientInfo(originalOrder.getClientInfo());
-        newOrder.setStatus(Order.OrderStatus.PENDING_ACCEPTANCE);
-        newOrder.setOrderInfoScreenshotUrl(originalOrder.getOrderInfoScreenshotUrl());
-        newOrder.setAssignedEmployeeId(employeeId);
-        newOrder.setCreatedByCsId(originalOrder.getCreatedByCsId());
-        newOrder.setCreatedAt(LocalDateTime.now());
-        newOrder.setUpdatedAt(LocalDateTime.now());
+        OrderLineageResponse response = new OrderLineageResponse();
+        response.setRootOrderId(rootOrderId);
+        response.setOrders(nodes);
+        return response;
+    }
 
-        orderMapper.insert(newOrder);
-        log.info("续单创建成功: {} -> {}", originalOrder.getOrderNumber(), newOrder.getOrderNumber());
-        return newOrder;
+    @Override
+    public OrderTimeline getTimeline(Long orderId, Long userId, User.UserRole role) {
+        OrderTimeline timeline = orderTimelineMapper.findTimeline(orderId);
+        Order order = timeline != null ? timeline.getOrder() : null;
+        checkVisible(order, userId, role);
+
+        List<OrderTimeline.Event> events = new ArrayList<>();
+        events.add(new OrderTimeline.Event(OrderTimeline.EventType.CREATED, order.getCreatedAt(),
+                order.getCreatedByCsId(), timeline.getCsName()));
+        for (OrderProof proof : timeline.getProofs()) {
+            OrderTimeline.Event event = new OrderTimeline.Event(OrderTimeline.EventType.PROOF_UPLOADED,
+                    proof.getUploadedAt(), order.getAssignedEmployeeId(), timeline.getEmployeeName());
+            event.setProofType(proof.getProofType());
+            event.setImageUrl(proof.getImageUrl());
+            events.add(event);
+        }
+        for (AuditLog auditLog : timeline.getAuditLogs()) {
+            OrderTimeline.Event event = new OrderTimeline.Event(OrderTimeline.EventType.AUDITED,
+                    auditLog.getCreatedAt(), auditLog.getAuditorId(), auditLog.getAuditorName());
+            event.setAction(auditLog.getAction());
+            event.setComments(auditLog.getComments());
+            events.add(event);
+        }
+        events.sort(Comparator.comparing(OrderTimeline.Event::getTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        timeline.setEvents(events);
+        return timeline;
+    }
+
+    @Override
+    @Transactional
+    public Order renewOrder(Long orderId, Long employeeId) {
+        Order originalOrder = findOwnedOrder(orderId, employeeId);
+        OrderTransitionContext context = new OrderTransitionContext(OrderTransition.RENEW, orderId, employeeId);
+        orderStateMachine.fire(context, ctx -> spawnFrom(originalOrder, ctx));
+        log.info("续单创建成功: {} -> {}", originalOrder.getOrderNumber(), context.getOrder().getOrderNumber());
+        return context.getOrder();
     }
 
     @Override
     @Transactional
     public Order reSubmitOrder(Long orderId, OrderCompleteRequest request, Long employeeId) {
-        Order originalOrder = findById(orderId);
-        if (originalOrder == null) {
+        Order originalOrder = findOwnedOrder(orderId, employeeId);
+        OrderTransitionContext context = new OrderTransitionContext(OrderTransition.RESUBMIT, orderId, employeeId);
+        context.setImageUrl(request.getImageUrl());
+        orderStateMachine.fire(context, ctx -> spawnFrom(originalOrder, ctx));
+        log.info("重新提单创建成功: {} -> {}", originalOrder.getOrderNumber(), context.getOrder().getOrderNumber());
+        return context.getOrder();
+    }
+
+    /**
+     * 查找员工自己的工单（续单、重新提单的来源）
+     */
+    private Order findOwnedOrder(Long orderId, Long employeeId) {
+        Order order = findById(orderId);
+        if (order == null) {
             throw new RuntimeException("原工单不存在");
         }
-
-        if (!originalOrder.getAssignedEmployeeId().equals(employeeId)) {
+        if (!order.getAssignedEmployeeId().equals(employeeId)) {
             throw new RuntimeException("无权操作此工单");
         }
+        return order;
+    }
 
-        if (originalOrder.getStatus() != Order.OrderStatus.REJECTED) {
-            throw new RuntimeException("只有被拒绝的工单才能重新提单");
-        }
+    /**
+     * 以原工单为来源创建新工单（续单、重新提单的迁移动作），返回原工单状态
+     */
+    private Order.OrderStatus spawnFrom(Order originalOrder, OrderTransitionContext context) {
+        OrderTransition transition = context.getTransition();
+        orderStateMachine.check(originalOrder.getStatus(), transition);
 
-        // 创建重提单
         Order newOrder = new Order();
         newOrder.setOrderNumber(generateOrderNumber());
         newOrder.setClientInfo(originalOrder.getClientInfo());
-        newOrder.setStatus(Order.OrderStatus.REJECTED_TO_SUBMIT);
+        newOrder.setStatus(transition.getTarget());
         newOrder.setOrderInfoScreenshotUrl(originalOrder.getOrderInfoScreenshotUrl());
-        newOrder.setAcceptanceScreenshotUrl(originalOrder.getAcceptanceScreenshotUrl());
-        newOrder.setCompletionScreenshotUrl(request.getImageUrl());
-        newOrder.setAssignedEmployeeId(employeeId);
+        if (transition == OrderTransition.RESUBMIT) {
+            newOrder.setAcceptanceScreenshotUrl(originalOrder.getAcceptanceScreenshotUrl());
+            newOrder.setCompletionScreenshotUrl(context.getImageUrl());
+        }
+        newOrder.setAssignedEmployeeId(originalOrder.getAssignedEmployeeId());
         newOrder.setCreatedByCsId(originalOrder.getCreatedByCsId());
+        linkToParent(newOrder, originalOrder);
         newOrder.setCreatedAt(LocalDateTime.now());
         newOrder.setUpdatedAt(LocalDateTime.now());
-
         orderMapper.insert(newOrder);
-        // 保存完成凭证
+        context.setOrder(newOrder);
+        return originalOrder.getStatus();
+    }
+
+    /**
+     * 按迁移表构造条件更新：原状态取允许该迁移的全部状态
+     */
+    private OrderStatusUpdate statusUpdate(OrderTransitionContext context, Integer expectedVersion) {
+        OrderTransition transition = context.getTransition();
+        OrderStatusUpdate update = new OrderStatusUpdate(context.getOrderId(),
+                orderStateMachine.sourcesOf(transition), transition.getTarget());
+        update.setExpectedVersion(expectedVersion);
+        return update;
+    }
+
+    private static OrderTransition auditTransition(AuditLog.AuditAction action) {
+        return action == AuditLog.AuditAction.APPROVE ? OrderTransition.APPROVE : OrderTransition.REJECT;
+    }
+
+    /**
+     * 注册状态迁移钩子，与迁移处于同一事务，按注册顺序执行
+     */
+    private void registerTransitionHooks() {
+        Set<OrderTransition> updates = EnumSet.of(OrderTransition.ACCEPT, OrderTransition.COMPLETE,
+                OrderTransition.APPROVE, OrderTransition.REJECT);
+        Set<OrderTransition> audits = EnumSet.of(OrderTransition.APPROVE, OrderTransition.REJECT);
+        Set<OrderTransition> spawns = EnumSet.of(OrderTransition.RENEW, OrderTransition.RESUBMIT);
+
+        orderStateMachine.after(EnumSet.of(OrderTransition.ACCEPT, OrderTransition.COMPLETE, OrderTransition.RESUBMIT),
+                this::saveProof);
+        orderStateMachine.after(audits, this::saveAuditLog);
+        orderStateMachine.after(updates, this::evictAndCount);
+        orderStateMachine.after(spawns, context -> orderCounterService.apply(new OrderStatusDeltas().created(context.getOrder())));
+        orderStateMachine.after(EnumSet.allOf(OrderTransition.class),
+                context -> publishAfterCommit(context.getTransition(), context.getOrder(), context.getFromStatus()));
+    }
+
+    /**
+     * 保存凭证：接单截图、完成截图；重新提单的完成截图挂在新工单上
+     */
+    private void saveProof(OrderTransitionContext context) {
+        boolean resubmission = context.getTransition() == OrderTransition.RESUBMIT;
         OrderProof proof = new OrderProof();
-        proof.setOrderId(orderId);
-        proof.setProofType(OrderProof.ProofType.COMPLETION);
-        proof.setImageUrl(request.getImageUrl());
+        proof.setOrderId(resubmission ? context.getOrder().getId() : context.getOrderId());
+        proof.setProofType(context.getTransition() == OrderTransition.ACCEPT
+                ? OrderProof.ProofType.ACCEPTANCE
+                : OrderProof.ProofType.COMPLETION);
+        proof.setImageUrl(context.getImageUrl());
+        if (resubmission) {
+            proof.setIsResubmission(true);
+        }
         proof.setUploadedAt(LocalDateTime.now());
         proof.setCreatedAt(LocalDateTime.now());
         proof.setUpdatedAt(LocalDateTime.now());
         orderProofMapper.insert(proof);
-        log.info("重新提单创建成功: {} -> {}", originalOrder.getOrderNumber(), newOrder.getOrderNumber());
-        return newOrder;
+    }
+
+    private void saveAuditLog(OrderTransitionContext context) {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setOrderId(context.getOrderId());
+        auditLog.setAuditorId(context.getActorId());
+        auditLog.setAction(context.getTransition() == OrderTransition.APPROVE
+                ? AuditLog.AuditAction.APPROVE
+                : AuditLog.AuditAction.REJECT);
+        auditLog.setComments(context.getComments());
+        auditLog.setCreatedAt(LocalDateTime.now());
+        auditLog.setUpdatedAt(LocalDateTime.now());
+        auditLogMapper.insert(auditLog);
+    }
+
+    /**
+     * 多取一行的查询结果转为分页：超出的一行只用于判断是否还有下一页
+     */
+    private CursorPage<Order> toPage(List<Order> orders, int limit) {
+        String nextCursor = null;
+        if (orders.size() > limit) {
+            orders = orders.subList(0, limit);
+            nextCursor = OrderCursor.of(orders.get(limit - 1)).encode();
+        }
+        return new CursorPage<>(orders, nextCursor);
+    }
+
+    /**
+     * 状态更新后：提交后清缓存，按迁移后的工单维护状态计数
+     */
+    private void evictAndCount(OrderTransitionContext context) {
+        evictAfterCommit(List.of(context.getOrderId()));
+        Order order = context.getOrder();
+        orderCounterService.apply(new OrderStatusDeltas().moved(order, context.getFromStatus(), order.getStatus()));
+    }
+
+    /**
+     * 校验工单存在且当前用户可见：管理员可见全部，客服只能看自己创建的，员工只能看分配给自己的
+     */
+    private void checkVisible(Order order, Long userId, User.UserRole role) {
+        if (order == null) {
+            throw new RuntimeException("工单不存在");
+        }
+        boolean allowed = role == User.UserRole.ADMIN
+                || (role == User.UserRole.CS && order.getCreatedByCsId().equals(userId))
+                || (role == User.UserRole.EMPLOYEE && order.getAssignedEmployeeId().equals(userId));
+        if (!allowed) {
+            throw new RuntimeException("无权查看此工单");
+        }
+    }
+
+    /**
+     * 把新工单挂到来源工单之后，根工单沿用来源工单所在链的根
+     */
+    private void linkToParent(Order newOrder, Order parent) {
+        newOrder.setParentOrderId(parent.getId());
+        newOrder.setRootOrderId(parent.getRootOrderId() != null ? parent.getRootOrderId() : parent.getId());
+    }
+
+    /**
+     * 以status IN (候选原状态)做一次条件迁移，返回实际命中的原状态（用于维护状态计数），未命中返回null
+     * 原状态和新版本号由同一条UPDATE带回；缓存中正是更新前那一版时合并本次写入的列得到迁移后的工单，
+     * 否则读回一次（不放入缓存，事务提交前其他读者不应看到）
+     */
+    private Order.OrderStatus transitionFrom(OrderTransitionContext context, OrderStatusUpdate update) {
+        if (orderMapper.transition(update) == 0) {
+            return null;
+        }
+        Order.OrderStatus fromStatus = update.matchedFromStatus();
+        int version = update.matchedVersion();
+        Cache cache = cacheManager.getCache(ORDER_CACHE);
+        Order cached = cache != null ? cache.get(update.getId(), Order.class) : null;
+        // 除SLA标记外，工单的每次写入都会递增版本号，版本号相邻说明缓存的就是本次更新的那一行
+        if (cached != null && cached.getVersion() != null && cached.getVersion() == version - 1) {
+            context.setOrder(applied(cached, update, fromStatus, version));
+        } else {
+            context.setOrder(orderMapper.selectById(update.getId()));
+        }
+        return fromStatus;
+    }
+
+    /**
+     * 在缓存工单的副本上应用本次迁移写入的列（缓存中的对象为共享实例，不能修改）
+     */
+    private static Order applied(Order cached, OrderStatusUpdate update, Order.OrderStatus fromStatus, int version) {
+        Order order = new Order();
+        BeanUtils.copyProperties(cached, order, "proofs");
+        order.setPreviousStatus(fromStatus);
+        order.setStatus(update.getToStatus());
+        order.setVersion(version);
+        order.setUpdatedAt(update.getUpdatedAt());
+        order.setSlaEscalatedAt(null);
+        if (update.getAcceptedAt() != null) {
+            order.setAcceptedAt(update.getAcceptedAt());
+        }
+        if (update.getAcceptanceScreenshotUrl() != null) {
+            order.setAcceptanceScreenshotUrl(update.getAcceptanceScreenshotUrl());
+        }
+        if (update.getCompletedAt() != null) {
+            order.setCompletedAt(update.getCompletedAt());
+        }
+        if (update.getCompletionScreenshotUrl() != null) {
+            order.setCompletionScreenshotUrl(update.getCompletionScreenshotUrl());
+        }
+        order.clearDirty();
+        return order;
+    }
+
+    /**
+     * 事务提交后使工单缓存失效，保证读者看不到未提交的状态
+     */
+    private void evictAfterCommit(Collection<Long> orderIds) {
+        Cache cache = cacheManager.getCache(ORDER_CACHE);
+        if (cache == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> orderIds.forEach(cache::evict));
+    }
+
+    /**
+     * 事务提交后发布工单事件（推送、SLA定时器由事件处理器在各自线程处理），回滚时不发布
+     */
+    private void publishAfterCommit(OrderTransition transition, Order order, Order.OrderStatus fromStatus) {
+        TransactionUtils.afterCommit(() -> orderEventBus.publish(transition, order, fromStatus));
+    }
+
+    /**
+     * 条件更新未命中时定位原因：工单不存在、无权操作，或并发冲突（状态已变化/版本号不匹配）
+     */
+    private RuntimeException transitionFailure(Long orderId, Long employeeId, Integer expectedVersion, OrderTransition transition) {
+        Order order = orderMapper.selectById(orderId);
+        if (order == null) {
+            return new RuntimeException("工单不存在");
+        }
+        if (employeeId != null && !employeeId.equals(order.getAssignedEmployeeId())) {
+            return new RuntimeException("无权操作此工单");
+        }
+        if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+            return new OrderConflictException("工单已被修改，请刷新后重试");
+        }
+        return orderStateMachine.rejectionOf(transition);
     }
 
     @Override
     public String generateOrderNumber() {
-        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        int counter = orderCounter.getAndIncrement();
-        return String.format("ORD%s%04d", date, counter);
+        return orderNumberAllocator.next();
     }
 }
 
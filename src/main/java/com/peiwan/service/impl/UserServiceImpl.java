@@ -1,16 +1,22 @@
 package com.peiwan.service.impl;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.crypto.digest.BCrypt;
 import com.peiwan.dto.ChangePasswordRequest;
 import com.peiwan.dto.LoginRequest;
 import com.peiwan.dto.LoginResponse;
 import com.peiwan.dto.RegisterRequest;
 import com.peiwan.entity.User;
 import com.peiwan.mapper.UserMapper;
+import com.peiwan.security.AccessTokenService;
+import com.peiwan.security.LoginThrottle;
+import com.peiwan.security.PasswordHasher;
+import com.peiwan.security.PrincipalCache;
 import com.peiwan.service.UserService;
+import com.peiwan.service.support.LastLoginBuffer;
+import com.peiwan.util.TransactionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,39 +35,62 @@ public class UserServiceImpl implements UserService {
     private static final Logger log = LoggerFactory.getLogger(UserServiceImpl.class);
 
     private final UserMapper userMapper;
-
-    public UserServiceImpl(UserMapper userMapper) {
+    private final PrincipalCache principalCache;
+    private final PasswordHasher passwordHasher;
+    private final LoginThrottle loginThrottle;
+    private final LastLoginBuffer lastLoginBuffer;
+
+    /**
+     * 令牌模式下可用，会话模式下为空
+     */
+    private final AccessTokenService accessTokenService;
+
+    public UserServiceImpl(UserMapper userMapper, PrincipalCache principalCache,
+                           ObjectProvider<AccessTokenService> accessTokenService,
+                           PasswordHasher passwordHasher, LoginThrottle loginThrottle,
+                           LastLoginBuffer lastLoginBuffer) {
         this.userMapper = userMapper;
+        this.principalCache = principalCache;
+        this.passwordHasher = passwordHasher;
+        this.loginThrottle = loginThrottle;
+        this.lastLoginBuffer = lastLoginBuffer;
+        this.accessTokenService = accessTokenService.getIfAvailable();
     }
 
     @Override
-    public LoginResponse login(LoginRequest request) {
+    public LoginResponse login(LoginRequest request, String clientIp) {
+        // 先占用一次尝试额度，超限时不再校验密码；用户名不存在、密码错误时额度即已扣除
+        loginThrottle.reserve(request.getUsername(), clientIp);
+
         // 查找用户
         User user = findByUsername(request.getUsername());
         if (user == null) {
             throw new RuntimeException("用户名或密码错误");
         }
-        System.out.printf("第一次"+request.getPassword());
-        System.out.printf("数据库"+user.getPasswordHash());
-        System.out.printf("验证："+BCrypt.checkpw(request.getPassword(), user.getPasswordHash()));
-        // 验证密码
-        if (!BCrypt.checkpw(request.getPassword(), user.getPasswordHash())) {
+
+        // 验证密码（在密码哈希线程池中执行）
+        if (!passwordHasher.matches(request.getPassword(), user.getPasswordHash())) {
             throw new RuntimeException("用户名或密码错误");
         }
+        loginThrottle.recordSuccess(request.getUsername(), clientIp);
 
         // 检查账户是否激活
         if (!user.getIsActive()) {
             throw new RuntimeException("账户已被禁用");
         }
 
-        // 更新最后登录时间
+        // 记录最后登录时间（延迟批量写入，登录只查询这一次用户）
         updateLastLogin(user.getId());
 
-        // 构建响应（不再生成JWT令牌）
+        // 构建响应：令牌模式签发访问令牌和刷新令牌，会话模式由session维持登录态
         LoginResponse response = new LoginResponse();
-        response.setAccessToken("session-based"); // 使用session标识
-        response.setRefreshToken("session-based");
-        response.setExpiresIn(7200L); // 2小时
+        if (accessTokenService != null) {
+            accessTokenService.issue(user, response);
+        } else {
+            response.setAccessToken("session-based"); // 使用session标识
+            response.setRefreshToken("session-based");
+            response.setExpiresIn(7200L); // 2小时
+        }
 
         LoginResponse.UserInfo userInfo = new LoginResponse.UserInfo();
         userInfo.setId(user.getId());
@@ -77,6 +106,22 @@ public class UserServiceImpl implements UserService {
         return response;
     }
 
+    @Override
+    public LoginResponse refreshToken(String refreshToken) {
+        if (accessTokenService == null) {
+            throw new RuntimeException("当前为会话模式，不支持刷新令牌");
+        }
+        return accessTokenService.refresh(refreshToken);
+    }
+
+    @Override
+    @Transactional
+    public void revokeTokens(Long userId) {
+        if (accessTokenService != null) {
+            accessTokenService.revoke(userId);
+        }
+    }
+
     @Override
     @Transactional
     public User register(RegisterRequest request) {
@@ -109,7 +154,7 @@ public class UserServiceImpl implements UserService {
         user.setUsername(request.getUsername());
         user.setRealName(request.getRealName());
         user.setPhone(request.getPhone());
-        user.setPasswordHash(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
+        user.setPasswordHash(passwordHasher.hash(request.getPassword()));
         user.setRole(User.UserRole.EMPLOYEE); // 默认为员工角色
         user.setIsActive(true);
         user.setCreatedAt(LocalDateTime.now());
@@ -168,10 +213,14 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public User updateUser(User user) {
-        User userNew = userMapper.selectById(user.getId());
-        user.setPasswordHash(userNew.getPasswordHash());
+        // 只会写出请求中出现的字段，密码哈希不参与反序列化，无需回查
         user.setUpdatedAt(LocalDateTime.now());
         userMapper.updateById(user);
+        invalidatePrincipalAfterCommit(user.getId());
+        // 停用或改角色后旧令牌里的角色不再可信
+        if (user.isDirty("role") || user.isDirty("isActive")) {
+            revokeTokens(user.getId());
+        }
         return user;
     }
 
@@ -184,6 +233,8 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void deleteUser(Long id) {
         userMapper.deleteById(id);
+        invalidatePrincipalAfterCommit(id);
+        revokeTokens(id);
     }
 
     @Override
@@ -195,15 +246,9 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    @Transactional
     public void updateLastLogin(Long userId) {
-        // 先查询用户信息，避免覆盖其他字段
-        User user = userMapper.selectById(userId);
-        if (user != null) {
-            user.setLastLogin(LocalDateTime.now());
-            user.setUpdatedAt(LocalDateTime.now());
-            userMapper.updateById(user);
-        }
+        // 同一用户多次登录合并，定期一条UPDATE批量写入
+        lastLoginBuffer.record(userId, LocalDateTime.now());
     }
 
     @Override
@@ -221,21 +266,29 @@ public class UserServiceImpl implements UserService {
         }
 
         // 验证当前密码
-        if (!BCrypt.checkpw(request.getCurrentPassword(), user.getPasswordHash())) {
+        if (!passwordHasher.matches(request.getCurrentPassword(), user.getPasswordHash())) {
             throw new RuntimeException("当前密码错误");
         }
 
         // 检查新密码是否与当前密码相同
-        if (BCrypt.checkpw(request.getNewPassword(), user.getPasswordHash())) {
+        if (passwordHasher.matches(request.getNewPassword(), user.getPasswordHash())) {
             throw new RuntimeException("新密码不能与当前密码相同");
         }
 
         // 更新密码
-        user.setPasswordHash(BCrypt.hashpw(request.getNewPassword(), BCrypt.gensalt()));
+        user.setPasswordHash(passwordHasher.hash(request.getNewPassword()));
         user.setUpdatedAt(LocalDateTime.now());
         userMapper.updateById(user);
+        invalidatePrincipalAfterCommit(userId);
+        revokeTokens(userId);
 
         log.info("用户密码修改成功: userId={}, username={}", userId, user.getUsername());
     }
-}
 
+    /**
+     * 事务提交后使认证缓存失效，下次请求重新加载角色、启用状态和密码
+     */
+    private void invalidatePrincipalAfterCommit(Long userId) {
+        TransactionUtils.afterCommit(() -> principalCache.invalidate(userId));
+    }
+}
@@ -0,0 +1,270 @@
+package com.peiwan.service.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ * 每层wheelSize个槽，第0层一个槽为一个tick，第n层一个槽覆盖wheelSize^n个tick；
+ * 定时器按到期tick放入能容纳它的最低层，上层槽到期时整体下放到低层。
+ * 添加和取消都是O(1)（槽内为双向链表），推进由单独的驱动线程完成，
+ * 同一tick到期的定时器合并为一批交给回调。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final Bucket<T>[][] levels;
+    private final Consumer<List<T>> onExpired;
+    private final long startMillis;
+    private final Thread driver;
+
+    /**
+     * 保护时间轮结构的锁，临界区内只做O(1)的链表操作
+     */
+    private final Object lock = new Object();
+
+    /**
+     * 已处理到的tick（相对startMillis）
+     */
+    private long currentTick;
+    private int size;
+    private volatile boolean running;
+
+    /**
+     * @param tickMillis  每个tick的毫秒数
+     * @param wheelSize   每层槽数，必须是2的幂
+     * @param levelCount  层数，可覆盖 tickMillis * wheelSize^levelCount 毫秒
+     * @param onExpired   到期回调，在驱动线程上以批为单位调用
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, String threadName,
+                                   Consumer<List<T>> onExpired) {
+        if (tickMillis <= 0 || wheelSize <= 1 || Integer.bitCount(wheelSize) != 1 || levelCount <= 0) {
+            throw new IllegalArgumentException("时间轮参数无效");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = new Bucket[levelCount][wheelSize];
+        for (Bucket<T>[] level : levels) {
+            for (int i = 0; i < wheelSize; i++) {
+                level[i] = new Bucket<>();
+            }
+        }
+        this.onExpired = onExpired;
+        this.startMillis = System.currentTimeMillis();
+        this.driver = new Thread(this::run, threadName);
+        this.driver.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        driver.start();
+    }
+
+    public void stop() {
+        running = false;
+        driver.interrupt();
+    }
+
+    /**
+     * 添加定时器，到期时间早于当前时间的在下一个tick触发
+     */
+    public Timeout<T> schedule(T payload, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(payload, Math.max(0, ceilDiv(deadlineMillis - startMillis, tickMillis)));
+        synchronized (lock) {
+            // 当前tick的槽已处理过，最早只能落在下一个tick
+            place(timeout, currentTick + 1);
+            size++;
+        }
+        return timeout;
+    }
+
+    /**
+     * 取消定时器，已触发或已取消时返回false
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        synchronized (lock) {
+            if (timeout.bucket == null) {
+                return false;
+            }
+            timeout.bucket.remove(timeout);
+            size--;
+            return true;
+        }
+    }
+
+    /**
+     * 未触发的定时器数量
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * 放入能容纳到期tick的最低层：与当前tick处于同一个上层槽内即可放在本层
+     */
+    private void place(Timeout<T> timeout, long minTick) {
+        long deadline = Math.max(timeout.deadlineTick, minTick);
+        int top = levels.length - 1;
+        for (int level = 0; level <= top; level++) {
+            int shift = bits * (level + 1);
+            if (level == top || (deadline >>> shift) == (currentTick >>> shift)) {
+                levels[level][(int) ((deadline >>> (bits * level)) & mask)].add(timeout);
+                return;
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                long nextTickMillis = startMillis + (currentTick + 1) * tickMillis;
+                long sleep = nextTickMillis - System.currentTimeMillis();
+                if (sleep > 0) {
+                    TimeUnit.MILLISECONDS.sleep(sleep);
+                    continue;
+                }
+                List<T> expired = advance((System.currentTimeMillis() - startMillis) / tickMillis);
+                if (!expired.isEmpty()) {
+                    onExpired.accept(expired);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("时间轮回调异常", e);
+            }
+        }
+    }
+
+    /**
+     * 推进到targetTick，逐tick下放上层槽并收集第0层到期的定时器
+     */
+    private List<T> advance(long targetTick) {
+        List<T> expired = new ArrayList<>();
+        synchronized (lock) {
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade(currentTick);
+                Timeout<T> timeout = levels[0][(int) (currentTick & mask)].detach();
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    timeout.next = null;
+                    timeout.prev = null;
+                    expired.add(timeout.payload);
+                    size--;
+                    timeout = next;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 当前tick恰好是某层槽的起点时，把该槽的定时器重新放置到更低层（从高层到低层依次处理）
+     */
+    private void cascade(long tick) {
+        int highest = 0;
+        for (int level = 1; level < levels.length; level++) {
+            if ((tick & ((1L << (bits * level)) - 1)) != 0) {
+                break;
+            }
+            highest = level;
+        }
+        for (int level = highest; level >= 1; level--) {
+            Timeout<T> timeout = levels[level][(int) ((tick >>> (bits * level)) & mask)].detach();
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                // 下放发生在处理第0层之前，恰好在本tick到期的仍会在本tick触发
+                place(timeout, tick);
+                timeout = next;
+            }
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * 定时器句柄
+     */
+    public static final class Timeout<T> {
+
+        private final T payload;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+    }
+
+    /**
+     * 时间轮的槽：双向链表，支持O(1)添加、删除和整体摘除
+     */
+    private static final class Bucket<T> {
+
+        private Timeout<T> head;
+
+        private void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /**
+         * 摘下整条链表，返回链表头，摘下的定时器不再属于任何槽
+         */
+        private Timeout<T> detach() {
+            Timeout<T> first = head;
+            head = null;
+            for (Timeout<T> t = first; t != null; t = t.next) {
+                t.bucket = null;
+            }
+            return first;
+        }
+    }
+}
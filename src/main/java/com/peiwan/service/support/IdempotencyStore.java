@@ -0,0 +1,180 @@
+package com.peiwan.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.peiwan.entity.IdempotencyRecord;
+import com.peiwan.mapper.IdempotencyRecordMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录存储
+ * 已完成的响应先查本地有界缓存（按TTL过期），未命中再查数据库；
+ * 占位依赖幂等记录表主键，多节点下同一(用户, 请求ID)只有一个请求会真正执行
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final IdempotencyRecordMapper recordMapper;
+    private final Duration ttl;
+    private final Duration processingTimeout;
+    private final Cache<String, Completed> completed;
+
+    public IdempotencyStore(IdempotencyRecordMapper recordMapper,
+                            @Value("${order.idempotency.ttl-ms:86400000}") long ttlMillis,
+                            @Value("${order.idempotency.processing-timeout-ms:60000}") long processingTimeoutMillis,
+                            @Value("${order.idempotency.max-entries:10000}") long maxEntries) {
+        this.recordMapper = recordMapper;
+        this.ttl = Duration.ofMillis(ttlMillis);
+        this.processingTimeout = Duration.ofMillis(processingTimeoutMillis);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * 尝试占用请求ID
+     */
+    public Claim claim(Long userId, String requestId, String fingerprint) {
+        Completed cached = completed.getIfPresent(key(userId, requestId));
+        if (cached != null) {
+            return cached.fingerprint.equals(fingerprint) ? Claim.replay(cached.body) : Claim.of(ClaimType.MISMATCH);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(userId);
+        record.setRequestId(requestId);
+        record.setFingerprint(fingerprint);
+        record.setCreatedAt(now);
+        record.setExpiresAt(now.plus(ttl));
+        if (recordMapper.insertProcessing(record) > 0
+                || recordMapper.takeOver(record, now.minus(processingTimeout)) > 0) {
+            return Claim.of(ClaimType.ACQUIRED);
+        }
+
+        IdempotencyRecord existing = recordMapper.find(userId, requestId);
+        if (existing == null) {
+            // 占位在两次查询之间被释放，交给客户端重试
+            return Claim.of(ClaimType.IN_PROGRESS);
+        }
+        if (!existing.getFingerprint().equals(fingerprint)) {
+            return Claim.of(ClaimType.MISMATCH);
+        }
+        if (existing.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+            completed.put(key(userId, requestId), new Completed(fingerprint, existing.getResponseBody()));
+            return Claim.replay(existing.getResponseBody());
+        }
+        return Claim.of(ClaimType.IN_PROGRESS);
+    }
+
+    /**
+     * 保存首次成功响应
+     */
+    public void complete(Long userId, String requestId, String fingerprint, String body) {
+        recordMapper.complete(userId, requestId, body);
+        completed.put(key(userId, requestId), new Completed(fingerprint, body));
+    }
+
+    /**
+     * 释放占位（请求失败，不保存响应）
+     */
+    public void release(Long userId, String requestId) {
+        recordMapper.release(userId, requestId);
+    }
+
+    /**
+     * 定期分批清理过期记录
+     */
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        int batch;
+        do {
+            batch = recordMapper.purgeExpired(now, PURGE_BATCH_SIZE);
+            purged += batch;
+        } while (batch == PURGE_BATCH_SIZE);
+        if (purged > 0) {
+            log.debug("清理过期幂等记录: {}", purged);
+        }
+    }
+
+    private static String key(Long userId, String requestId) {
+        return userId + ":" + requestId;
+    }
+
+    /**
+     * 占用结果类型
+     */
+    public enum ClaimType {
+        /**
+         * 首次请求，调用方执行后须complete或release
+         */
+        ACQUIRED,
+        /**
+         * 已有成功响应，直接回放
+         */
+        REPLAY,
+        /**
+         * 同一请求仍在处理
+         */
+        IN_PROGRESS,
+        /**
+         * 同一请求ID用于了不同的请求
+         */
+        MISMATCH
+    }
+
+    public static final class Claim {
+
+        private final ClaimType type;
+        private final String body;
+
+        private Claim(ClaimType type, String body) {
+            this.type = type;
+            this.body = body;
+        }
+
+        private static Claim of(ClaimType type) {
+            return new Claim(type, null);
+        }
+
+        private static Claim replay(String body) {
+            return new Claim(ClaimType.REPLAY, body);
+        }
+
+        public ClaimType getType() {
+            return type;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    private static final class Completed {
+
+        private final String fingerprint;
+        private final String body;
+
+        private Completed(String fingerprint, String body) {
+            this.fingerprint = fingerprint;
+            this.body = body;
+        }
+    }
+}
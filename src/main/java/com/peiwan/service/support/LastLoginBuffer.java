@@ -0,0 +1,79 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.User;
+import com.peiwan.mapper.UserMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 最后登录时间的延迟写入缓冲
+ * 登录只记入内存，同一用户多次登录只保留最新时间，定期用一条批量UPDATE写入；
+ * 登录高峰时写库次数与登录人数无关。停机前写出剩余记录，进程崩溃最多丢失一个写入间隔内的登录时间。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class LastLoginBuffer {
+
+    /**
+     * 单条批量UPDATE写入的用户数上限
+     */
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    private final UserMapper userMapper;
+
+    /**
+     * 待写入的最后登录时间（用户ID -> 时间）
+     */
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public LastLoginBuffer(UserMapper userMapper) {
+        this.userMapper = userMapper;
+    }
+
+    /**
+     * 记录一次登录，不访问数据库
+     */
+    public void record(Long userId, LocalDateTime loginTime) {
+        pending.merge(userId, loginTime, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * 批量写入积累的登录时间
+     */
+    @Scheduled(fixedDelayString = "${peiwan.auth.last-login.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<User> logins = new ArrayList<>(pending.size());
+        for (Map.Entry<Long, LocalDateTime> entry : pending.entrySet()) {
+            // 只移除取出时的值，期间再次登录的记录留到下一轮
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                User user = new User();
+                user.setId(entry.getKey());
+                user.setLastLogin(entry.getValue());
+                logins.add(user);
+            }
+        }
+        for (int from = 0; from < logins.size(); from += FLUSH_CHUNK_SIZE) {
+            userMapper.updateLastLoginBatch(logins.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, logins.size())));
+        }
+    }
+
+    /**
+     * 停机前写出未落库的登录时间
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
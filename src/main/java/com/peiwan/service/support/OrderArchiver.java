@@ -0,0 +1,116 @@
+package com.peiwan.service.support;
+
+import com.peiwan.mapper.OrderArchiveMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 工单归档任务
+ * 按主键键集小批量搬迁超过保留期的已完成工单（及已逻辑删除的工单），
+ * 每批一个短事务：先按ID加锁复核，再复制到归档表并从热表删除，批间暂停以限制对线上的影响。
+ * 热表只保留进行中和近期的工单，规模不随历史数据增长。
+ * 多节点同时运行时，后到的节点复核不到已被搬走的行，不会重复归档。
+ * 根工单按自身状态归档，不等续单完成；工单链查询会一并读取归档表。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiver.class);
+
+    private static final String ORDER_CACHE = "orders";
+
+    private final OrderArchiveMapper archiveMapper;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate batchTransaction;
+    private final int retentionDays;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final int maxBatchesPerRun;
+
+    public OrderArchiver(OrderArchiveMapper archiveMapper, CacheManager cacheManager,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${order.archive.retention-days:90}") int retentionDays,
+                         @Value("${order.archive.batch-size:200}") int batchSize,
+                         @Value("${order.archive.pause-ms:200}") long pauseMillis,
+                         @Value("${order.archive.max-batches-per-run:500}") int maxBatchesPerRun) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("order.archive.batch-size必须大于0");
+        }
+        this.archiveMapper = archiveMapper;
+        this.cacheManager = cacheManager;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * 定期归档，保留天数<=0时关闭
+     */
+    @Scheduled(initialDelayString = "${order.archive.interval-ms:3600000}",
+            fixedDelayString = "${order.archive.interval-ms:3600000}")
+    public void archive() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long afterId = 0;
+        int archived = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Long> candidates = archiveMapper.findArchivableIds(afterId, cutoff, batchSize);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            afterId = candidates.get(candidates.size() - 1);
+            archived += archiveBatch(candidates, cutoff);
+            if (candidates.size() < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("工单归档完成: {}个（截止{}）", archived, cutoff);
+        }
+    }
+
+    private int archiveBatch(List<Long> candidates, LocalDateTime cutoff) {
+        List<Long> ids = batchTransaction.execute(status -> {
+            List<Long> locked = archiveMapper.lockArchivable(candidates, cutoff);
+            if (locked.isEmpty()) {
+                return locked;
+            }
+            archiveMapper.copyOrders(locked);
+            archiveMapper.copyProofs(locked);
+            archiveMapper.copyAuditLogs(locked);
+            // 先删子表，外键约束指向工单表
+            archiveMapper.deleteProofs(locked);
+            archiveMapper.deleteAuditLogs(locked);
+            archiveMapper.deleteOrders(locked);
+            return locked;
+        });
+        Cache cache = cacheManager.getCache(ORDER_CACHE);
+        if (cache != null) {
+            ids.forEach(cache::evict);
+        }
+        return ids.size();
+    }
+}
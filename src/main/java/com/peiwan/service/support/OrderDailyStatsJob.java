@@ -0,0 +1,221 @@
+package com.peiwan.service.support;
+
+import com.peiwan.dto.OrderDayEvent;
+import com.peiwan.entity.OrderDailyStat;
+import com.peiwan.entity.OrderStatusCounter;
+import com.peiwan.mapper.OrderDailyStatMapper;
+import com.peiwan.mapper.RollupWatermarkMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 工单日报增量汇总任务
+ * 以水位记录已处理到的updated_at，每次只取水位之后变化的工单和审核日志，
+ * 找出它们涉及的统计日期，再按天整体重算（先删后插，结果与重算次数无关）。
+ * 按天重算的代价只取决于当天的工单量，报表接口只读汇总表，耗时不随历史数据增长。
+ * 水位按时间窗口推进，每个窗口一个事务并锁定水位行，多节点同时运行时串行执行；
+ * 水位比当前时间滞后lag-seconds，等待晚提交的事务落库后再处理。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderDailyStatsJob {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderDailyStatsJob.class);
+
+    private static final String WATERMARK_NAME = "order_daily_stats";
+
+    /**
+     * 单条INSERT写入的日报行数上限
+     */
+    private static final int INSERT_CHUNK_SIZE = 500;
+
+    private final OrderDailyStatMapper dailyStatMapper;
+    private final RollupWatermarkMapper watermarkMapper;
+    private final TransactionTemplate windowTransaction;
+    private final boolean enabled;
+    private final long lagSeconds;
+    private final long windowHours;
+    private final int maxWindowsPerRun;
+
+    public OrderDailyStatsJob(OrderDailyStatMapper dailyStatMapper, RollupWatermarkMapper watermarkMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${order.rollup.enabled:true}") boolean enabled,
+                              @Value("${order.rollup.lag-seconds:60}") long lagSeconds,
+                              @Value("${order.rollup.window-hours:24}") long windowHours,
+                              @Value("${order.rollup.max-windows-per-run:100}") int maxWindowsPerRun) {
+        if (windowHours <= 0) {
+            throw new IllegalArgumentException("order.rollup.window-hours必须大于0");
+        }
+        this.dailyStatMapper = dailyStatMapper;
+        this.watermarkMapper = watermarkMapper;
+        this.windowTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.lagSeconds = lagSeconds;
+        this.windowHours = windowHours;
+        this.maxWindowsPerRun = maxWindowsPerRun;
+    }
+
+    /**
+     * 定期推进水位，追上当前时间（减去滞后）或达到单次窗口数上限为止
+     */
+    @Scheduled(fixedDelayString = "${order.rollup.interval-ms:300000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        ensureWatermark();
+        LocalDateTime target = LocalDateTime.now().minusSeconds(lagSeconds).withNano(0);
+        int days = 0;
+        for (int window = 0; window < maxWindowsPerRun; window++) {
+            Integer rebuilt = windowTransaction.execute(status -> advance(target));
+            if (rebuilt == null) {
+                break;
+            }
+            days += rebuilt;
+        }
+        if (days > 0) {
+            log.info("工单日报汇总完成: 重算{}天（水位{}）", days, target);
+        }
+    }
+
+    /**
+     * 首次运行时以最早的更新时间之前一秒作为起点，没有任何数据时从当前时间开始
+     */
+    private void ensureWatermark() {
+        LocalDateTime earliest = dailyStatMapper.findEarliestChange();
+        LocalDateTime initial = earliest != null ? earliest.minusSeconds(1) : LocalDateTime.now().withNano(0);
+        watermarkMapper.insertIfAbsent(WATERMARK_NAME, initial);
+    }
+
+    /**
+     * 在一个事务内处理一个时间窗口，返回重算的天数；水位已到目标时返回null
+     */
+    private Integer advance(LocalDateTime target) {
+        LocalDateTime from = watermarkMapper.lock(WATERMARK_NAME);
+        if (from == null || !from.isBefore(target)) {
+            return null;
+        }
+        LocalDateTime window = from.plusHours(windowHours);
+        LocalDateTime to = window.isBefore(target) ? window : target;
+
+        List<LocalDate> days = dailyStatMapper.findChangedDays(from, to);
+        for (LocalDate day : days) {
+            rebuild(day);
+        }
+        watermarkMapper.update(WATERMARK_NAME, to);
+        return days.size();
+    }
+
+    /**
+     * 重算某一天的全部日报
+     */
+    private void rebuild(LocalDate day) {
+        Map<String, Accumulator> accumulators = new HashMap<>();
+        for (OrderDayEvent event : dailyStatMapper.findDayEvents(day.atStartOfDay(), day.plusDays(1).atStartOfDay())) {
+            accumulate(accumulators, OrderStatusCounter.OwnerType.EMPLOYEE, event.getEmployeeId(), event);
+            accumulate(accumulators, OrderStatusCounter.OwnerType.CS, event.getCsId(), event);
+        }
+
+        dailyStatMapper.deleteByDate(day);
+        List<OrderDailyStat> stats = new ArrayList<>(accumulators.size());
+        for (Accumulator accumulator : accumulators.values()) {
+            stats.add(accumulator.toStat(day));
+        }
+        for (int start = 0; start < stats.size(); start += INSERT_CHUNK_SIZE) {
+            dailyStatMapper.insertBatch(stats.subList(start, Math.min(start + INSERT_CHUNK_SIZE, stats.size())));
+        }
+    }
+
+    private void accumulate(Map<String, Accumulator> accumulators, OrderStatusCounter.OwnerType ownerType,
+                            Long ownerId, OrderDayEvent event) {
+        if (ownerId == null || event.getEvent() == null) {
+            return;
+        }
+        accumulators.computeIfAbsent(ownerType + ":" + ownerId, key -> new Accumulator(ownerType, ownerId))
+                .add(event);
+    }
+
+    /**
+     * 单个归属人一天内的计数和耗时样本
+     */
+    private static final class Accumulator {
+
+        private final OrderStatusCounter.OwnerType ownerType;
+        private final Long ownerId;
+        private int created;
+        private int accepted;
+        private int completed;
+        private int approved;
+        private int rejected;
+        private final List<Long> acceptSeconds = new ArrayList<>();
+        private final List<Long> completeSeconds = new ArrayList<>();
+
+        Accumulator(OrderStatusCounter.OwnerType ownerType, Long ownerId) {
+            this.ownerType = ownerType;
+            this.ownerId = ownerId;
+        }
+
+        void add(OrderDayEvent event) {
+            switch (event.getEvent()) {
+                case CREATED -> created++;
+                case ACCEPTED -> {
+                    accepted++;
+                    if (event.getSeconds() != null) {
+                        acceptSeconds.add(event.getSeconds());
+                    }
+                }
+                case COMPLETED -> {
+                    completed++;
+                    if (event.getSeconds() != null) {
+                        completeSeconds.add(event.getSeconds());
+                    }
+                }
+                case APPROVE -> approved++;
+                case REJECT -> rejected++;
+            }
+        }
+
+        OrderDailyStat toStat(LocalDate day) {
+            OrderDailyStat stat = new OrderDailyStat();
+            stat.setStatDate(day);
+            stat.setOwnerType(ownerType);
+            stat.setOwnerId(ownerId);
+            stat.setCreatedCount(created);
+            stat.setAcceptedCount(accepted);
+            stat.setCompletedCount(completed);
+            stat.setApprovedCount(approved);
+            stat.setRejectedCount(rejected);
+            stat.setMedianAcceptSeconds(median(acceptSeconds));
+            stat.setMedianCompleteSeconds(median(completeSeconds));
+            return stat;
+        }
+
+        /**
+         * 中位数（偶数个样本取中间两个的平均值，向下取整），没有样本时为空
+         */
+        private static Long median(List<Long> samples) {
+            if (samples.isEmpty()) {
+                return null;
+            }
+            Collections.sort(samples);
+            int middle = samples.size() / 2;
+            return samples.size() % 2 == 1 ? samples.get(middle)
+                    : (samples.get(middle - 1) + samples.get(middle)) / 2;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * 工单事件
+ * 环形缓冲区中预分配的槽位，发布时原地覆写字段，不创建新对象；
+ * 处理器只能在回调内读取，不要保存引用（槽位会被后续事件复用）。
+ * 续单、重新提单事件描述的是新生成的工单。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public final class OrderEvent {
+
+    /**
+     * 触发的状态迁移，工单创建时为空
+     */
+    private OrderTransition transition;
+
+    private Long orderId;
+    private String orderNumber;
+    private Long employeeId;
+    private Long csId;
+
+    /**
+     * 迁移前状态（续单、重新提单为来源工单的状态），工单创建时为空
+     */
+    private Order.OrderStatus fromStatus;
+
+    private Order.OrderStatus toStatus;
+
+    /**
+     * 迁移后的版本号
+     */
+    private int version;
+
+    /**
+     * 迁移时间
+     */
+    private LocalDateTime updatedAt;
+
+    /**
+     * 发布时刻（System.nanoTime），用于计算消费延迟
+     */
+    private long publishedAtNanos;
+
+    void fill(OrderTransition transition, Order order, Order.OrderStatus fromStatus, Order.OrderStatus toStatus,
+              int version, LocalDateTime updatedAt) {
+        this.transition = transition;
+        this.orderId = order.getId();
+        this.orderNumber = order.getOrderNumber();
+        this.employeeId = order.getAssignedEmployeeId();
+        this.csId = order.getCreatedByCsId();
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.publishedAtNanos = System.nanoTime();
+    }
+
+    public OrderTransition getTransition() { return transition; }
+
+    public Long getOrderId() { return orderId; }
+
+    public String getOrderNumber() { return orderNumber; }
+
+    public Long getEmployeeId() { return employeeId; }
+
+    public Long getCsId() { return csId; }
+
+    public Order.OrderStatus getFromStatus() { return fromStatus; }
+
+    public Order.OrderStatus getToStatus() { return toStatus; }
+
+    public int getVersion() { return version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    long getPublishedAtNanos() { return publishedAtNanos; }
+}
@@ -0,0 +1,255 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.Order;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内工单事件总线
+ * 事件在事务提交后发布到预分配的环形缓冲区：发布方CAS领取序号、原地覆写槽位，不分配对象也不加锁；
+ * 缓冲区已满（最慢的处理器落后一整圈）时丢弃事件并计数，从不阻塞请求线程。
+ * 每个处理器一个专用线程，一次取走所有已发布的连续事件按序回调，处理完整批后才推进自己的序号，
+ * 发布方据此判断槽位能否复用。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderEventBus.class);
+
+    private final OrderEvent[] slots;
+    private final int mask;
+
+    /**
+     * 各槽位最近一次发布完成的序号，消费方据此判断槽位内容是否已写完
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * 已领取的最大序号
+     */
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final LongAdder dropped = new LongAdder();
+    private final Processor[] processors;
+    private final int maxBatchSize;
+    private final long idleParkNanos;
+
+    public OrderEventBus(List<OrderEventHandler> handlers,
+                         @Value("${order.events.buffer-size:4096}") int bufferSize,
+                         @Value("${order.events.max-batch-size:256}") int maxBatchSize,
+                         @Value("${order.events.idle-park-ms:100}") long idleParkMillis) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("order.events.buffer-size必须是2的幂");
+        }
+        this.slots = new OrderEvent[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new OrderEvent();
+        }
+        this.mask = bufferSize - 1;
+        this.published = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, -1);
+        }
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleParkMillis));
+        this.processors = new Processor[handlers.size()];
+        for (int i = 0; i < processors.length; i++) {
+            processors[i] = new Processor(handlers.get(i));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (Processor processor : processors) {
+            Thread thread = new Thread(processor, "order-events-" + processor.handler.name());
+            thread.setDaemon(true);
+            processor.thread = thread;
+            thread.start();
+        }
+        log.info("工单事件总线已启动: 缓冲区{}，处理器{}个", slots.length, processors.length);
+    }
+
+    /**
+     * 停止时处理器先处理完已发布的事件再退出
+     */
+    @PreDestroy
+    public void stop() {
+        for (Processor processor : processors) {
+            processor.running = false;
+            LockSupport.unpark(processor.thread);
+        }
+        for (Processor processor : processors) {
+            if (processor.thread == null) {
+                continue;
+            }
+            try {
+                processor.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按工单当前状态发布事件（应在事务提交后调用）
+     */
+    public boolean publish(OrderTransition transition, Order order, Order.OrderStatus fromStatus) {
+        return publish(transition, order, fromStatus, order.getStatus(),
+                order.getVersion() != null ? order.getVersion() : 0, order.getUpdatedAt());
+    }
+
+    /**
+     * 发布事件（应在事务提交后调用），缓冲区已满时丢弃并返回false
+     */
+    public boolean publish(OrderTransition transition, Order order, Order.OrderStatus fromStatus,
+                           Order.OrderStatus toStatus, int version, LocalDateTime updatedAt) {
+        long sequence;
+        do {
+            sequence = claimed.get() + 1;
+            if (sequence - slots.length > minProcessedSequence()) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence - 1, sequence));
+
+        int index = (int) sequence & mask;
+        slots[index].fill(transition, order, fromStatus, toStatus, version, updatedAt);
+        published.set(index, sequence);
+        for (Processor processor : processors) {
+            if (processor.waiting) {
+                LockSupport.unpark(processor.thread);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 队列深度、丢弃数和各处理器的积压与延迟
+     */
+    public Map<String, Object> metricsSnapshot() {
+        long head = claimed.get();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("bufferSize", slots.length);
+        snapshot.put("published", head + 1);
+        snapshot.put("dropped", dropped.sum());
+        snapshot.put("depth", head - minProcessedSequence());
+        Map<String, Object> handlers = new LinkedHashMap<>();
+        for (Processor processor : processors) {
+            long processed = processor.sequence.get();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("lag", head - processed);
+            item.put("lagMs", lagMillis(processed, head));
+            item.put("batches", processor.batches.sum());
+            item.put("errors", processor.errors.sum());
+            handlers.put(processor.handler.name(), item);
+        }
+        snapshot.put("handlers", handlers);
+        return snapshot;
+    }
+
+    /**
+     * 处理器待处理的最早事件已等待的时间（毫秒），没有积压时为0
+     */
+    private double lagMillis(long processed, long head) {
+        long next = processed + 1;
+        if (next > head) {
+            return 0;
+        }
+        int index = (int) next & mask;
+        if (published.get(index) != next) {
+            return 0;
+        }
+        return Math.max(0, System.nanoTime() - slots[index].getPublishedAtNanos()) / 1_000_000.0;
+    }
+
+    private long minProcessedSequence() {
+        long min = Long.MAX_VALUE;
+        for (Processor processor : processors) {
+            min = Math.min(min, processor.sequence.get());
+        }
+        return processors.length == 0 ? claimed.get() : min;
+    }
+
+    /**
+     * 单个处理器的消费循环
+     */
+    private final class Processor implements Runnable {
+
+        private final OrderEventHandler handler;
+
+        /**
+         * 已处理完的最大序号
+         */
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private volatile Thread thread;
+        private volatile boolean waiting;
+        private volatile boolean running = true;
+
+        Processor(OrderEventHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (true) {
+                long last = lastAvailable(next);
+                if (last < next) {
+                    if (!running) {
+                        return;
+                    }
+                    // 先声明等待再复查，发布方写完槽位后看到等待标记会唤醒本线程
+                    waiting = true;
+                    if (published.get((int) next & mask) != next && running) {
+                        LockSupport.parkNanos(this, idleParkNanos);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                for (long s = next; s <= last; s++) {
+                    try {
+                        handler.onEvent(slots[(int) s & mask], s == last);
+                    } catch (RuntimeException e) {
+                        errors.increment();
+                        log.warn("工单事件处理失败: handler={}, sequence={}", handler.name(), s, e);
+                    }
+                }
+                sequence.set(last);
+                batches.increment();
+                next = last + 1;
+            }
+        }
+
+        /**
+         * 从next开始连续已发布的最大序号（最多maxBatchSize个），没有时返回next-1
+         */
+        private long lastAvailable(long next) {
+            long last = next - 1;
+            long limit = next + maxBatchSize;
+            while (last + 1 < limit && published.get((int) (last + 1) & mask) == last + 1) {
+                last++;
+            }
+            return last;
+        }
+    }
+}
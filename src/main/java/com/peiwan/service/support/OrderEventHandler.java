@@ -0,0 +1,25 @@
+package com.peiwan.service.support;
+
+/**
+ * 工单事件处理器
+ * 每个处理器由总线分配一个专用线程，按发布顺序批量回调；
+ * 实现为Spring Bean即自动注册。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public interface OrderEventHandler {
+
+    /**
+     * 处理器名称，用于线程名和指标
+     */
+    String name();
+
+    /**
+     * 处理一个事件
+     *
+     * @param event      事件槽位，只在本次回调内有效
+     * @param endOfBatch 是否为本批最后一个事件，可在此时统一刷出
+     */
+    void onEvent(OrderEvent event, boolean endOfBatch);
+}
@@ -0,0 +1,139 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.OrderNumberSequence;
+import com.peiwan.mapper.OrderNumberSequenceMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 工单编号分配器
+ * 从数据库序列表按段租用编号，一次往返可覆盖blockSize个工单；
+ * 多节点各自租用不重叠的号段，编号全局唯一（不保证连续）。
+ * 编号格式：ORD + yyyyMMdd + 至少4位序号，跨天时自动切换到新日期的序列。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderNumberAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderNumberAllocator.class);
+
+    private static final String PREFIX = "ORD";
+    private static final int MIN_DIGITS = 4;
+
+    private final OrderNumberSequenceMapper sequenceMapper;
+    private final TransactionTemplate leaseTransaction;
+    private final int blockSize;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * 仅在号段耗尽或跨天时才进入的补充锁，快速路径无锁
+     */
+    private final Object refillLock = new Object();
+
+    private volatile Block current;
+
+    public OrderNumberAllocator(OrderNumberSequenceMapper sequenceMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${order.number.block-size:100}") int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("order.number.block-size必须大于0");
+        }
+        this.sequenceMapper = sequenceMapper;
+        this.blockSize = blockSize;
+        // 租用必须独立提交：若随业务事务回滚，已下发的号段会被其他节点再次租到
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 分配下一个工单编号
+     */
+    public String next() {
+        Block block = current;
+        if (block != null && System.currentTimeMillis() < block.dayEndMillis) {
+            long value = block.cursor.getAndIncrement();
+            if (value < block.end) {
+                return block.format(value);
+            }
+        }
+        return nextSlow();
+    }
+
+    private String nextSlow() {
+        synchronized (refillLock) {
+            while (true) {
+                long now = System.currentTimeMillis();
+                Block block = current;
+                if (block != null && now < block.dayEndMillis) {
+                    long value = block.cursor.getAndIncrement();
+                    if (value < block.end) {
+                        return block.format(value);
+                    }
+                }
+                current = lease(now);
+            }
+        }
+    }
+
+    private Block lease(long now) {
+        LocalDate today = LocalDate.ofInstant(Instant.ofEpochMilli(now), zone);
+        OrderNumberSequence sequence = new OrderNumberSequence(today, blockSize);
+        leaseTransaction.executeWithoutResult(status -> sequenceMapper.lease(sequence));
+
+        long end = sequence.getNextValue();
+        long start = end - blockSize;
+        long dayEndMillis = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        log.debug("租用工单编号段: date={}, range=[{}, {})", today, start, end);
+        return new Block(PREFIX + today.format(DateTimeFormatter.BASIC_ISO_DATE), start, end, dayEndMillis);
+    }
+
+    /**
+     * 已租用的号段，日期前缀预先展开为字符数组
+     */
+    private static final class Block {
+        private final char[] prefix;
+        private final AtomicLong cursor;
+        private final long end;
+        private final long dayEndMillis;
+
+        private Block(String prefix, long start, long end, long dayEndMillis) {
+            this.prefix = prefix.toCharArray();
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.dayEndMillis = dayEndMillis;
+        }
+
+        private String format(long value) {
+            int digits = Math.max(MIN_DIGITS, digitCount(value));
+            char[] buf = new char[prefix.length + digits];
+            System.arraycopy(prefix, 0, buf, 0, prefix.length);
+            for (int i = buf.length - 1; i >= prefix.length; i--) {
+                buf[i] = (char) ('0' + (value % 10));
+                value /= 10;
+            }
+            return new String(buf);
+        }
+
+        private static int digitCount(long value) {
+            int count = 1;
+            while (value >= 10) {
+                value /= 10;
+                count++;
+            }
+            return count;
+        }
+    }
+}
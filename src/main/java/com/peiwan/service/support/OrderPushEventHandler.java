@@ -0,0 +1,46 @@
+package com.peiwan.service.support;
+
+import com.peiwan.dto.OrderPushEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工单事件处理器：向员工推送新派单、续单和审核结果
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderPushEventHandler implements OrderEventHandler {
+
+    private final OrderPushHub orderPushHub;
+
+    public OrderPushEventHandler(OrderPushHub orderPushHub) {
+        this.orderPushHub = orderPushHub;
+    }
+
+    @Override
+    public String name() {
+        return "push";
+    }
+
+    @Override
+    public void onEvent(OrderEvent event, boolean endOfBatch) {
+        OrderPushEvent.EventType type = pushTypeOf(event.getTransition());
+        if (type == null || event.getEmployeeId() == null) {
+            return;
+        }
+        orderPushHub.publish(event.getEmployeeId(),
+                new OrderPushEvent(type, event.getOrderId(), event.getOrderNumber(), event.getToStatus()));
+    }
+
+    private static OrderPushEvent.EventType pushTypeOf(OrderTransition transition) {
+        if (transition == null) {
+            return OrderPushEvent.EventType.ASSIGNED;
+        }
+        return switch (transition) {
+            case APPROVE, REJECT -> OrderPushEvent.EventType.AUDITED;
+            case RENEW -> OrderPushEvent.EventType.RENEWED;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,285 @@
+package com.peiwan.service.support;
+
+import com.peiwan.dto.OrderPushEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 工单推送中心（SSE）
+ * 按用户（员工或客服）分组保存连接，连接基于Servlet异步请求，空闲连接不占用线程；
+ * 每个用户保留最近若干条事件，客户端带Last-Event-ID重连时补发，
+ * 缺口超出保留范围时发送resync事件，提示客户端重新拉取列表。
+ * 写出在小型推送线程池中执行，每个连接有自己的待发队列并串行写出，同一连接上的事件保持顺序，
+ * 慢客户端只拖慢自己的连接；待发事件积压超过上限的连接视为过慢并断开，客户端重连后按Last-Event-ID补发。
+ * 仅推送到本节点上的连接。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderPushHub {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPushHub.class);
+
+    private static final String RESYNC_EVENT = "resync";
+    private static final long RECONNECT_MILLIS = 3000L;
+
+    /**
+     * 事件ID以启动时间为基数，重启后仍单调递增；小于该基数的Last-Event-ID说明重启前的事件已丢失
+     */
+    private final long bootSequence = System.currentTimeMillis() * 1000;
+    private final AtomicLong sequence = new AtomicLong(bootSequence);
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    private final long emitterTimeoutMillis;
+    private final int replaySize;
+    private final int maxPending;
+
+    public OrderPushHub(@Value("${order.push.emitter-timeout-ms:1800000}") long emitterTimeoutMillis,
+                        @Value("${order.push.replay-size:50}") int replaySize,
+                        @Value("${order.push.sender-threads:4}") int senderThreads,
+                        @Value("${order.push.max-pending:64}") int maxPending) {
+        if (senderThreads <= 0) {
+            throw new IllegalArgumentException("order.push.sender-threads必须大于0");
+        }
+        if (maxPending <= replaySize) {
+            throw new IllegalArgumentException("order.push.max-pending必须大于order.push.replay-size");
+        }
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.replaySize = replaySize;
+        this.maxPending = maxPending;
+        AtomicInteger counter = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "order-push-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 订阅某个用户的工单事件
+     *
+     * @param lastEventId 客户端重连时带回的Last-Event-ID，首次连接为空
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Channel channel = channels.computeIfAbsent(userId, id -> new Channel(bootSequence));
+        Connection connection = new Connection(channel, emitter);
+        emitter.onCompletion(() -> channel.connections.remove(connection));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> channel.connections.remove(connection));
+
+        // 补发与加入连接在同一把锁内完成，保证事件不漏发、不重复且按顺序写出
+        synchronized (channel) {
+            connection.enqueue(SseEmitter.event().reconnectTime(RECONNECT_MILLIS).comment("connected"));
+            Long lastId = parseEventId(lastEventId);
+            if (lastId != null) {
+                if (lastId < channel.floor) {
+                    connection.enqueue(SseEmitter.event().name(RESYNC_EVENT).data(""));
+                } else {
+                    for (Entry entry : channel.recent) {
+                        if (entry.id > lastId) {
+                            connection.enqueue(entry.toSse());
+                        }
+                    }
+                }
+            }
+            channel.connections.add(connection);
+        }
+        return emitter;
+    }
+
+    /**
+     * 向用户推送事件（应在事务提交后调用）
+     */
+    public void publish(Long userId, OrderPushEvent event) {
+        if (userId == null) {
+            return;
+        }
+        Channel channel = channels.computeIfAbsent(userId, id -> new Channel(bootSequence));
+        // 入队与投递在同一把锁内完成，同一用户的事件按ID顺序进入各连接的待发队列
+        synchronized (channel) {
+            Entry entry = new Entry(sequence.incrementAndGet(), event);
+            channel.recent.addLast(entry);
+            while (channel.recent.size() > replaySize) {
+                channel.floor = channel.recent.removeFirst().id;
+            }
+            for (Connection connection : channel.connections) {
+                connection.enqueue(entry.toSse());
+            }
+        }
+    }
+
+    /**
+     * 当前连接数
+     */
+    public int connectionCount() {
+        int count = 0;
+        for (Channel channel : channels.values()) {
+            count += channel.connections.size();
+        }
+        return count;
+    }
+
+
+    /**
+     * 心跳：定期写出注释行，保持连接不被代理断开，同时清理已断开的连接
+     */
+    @Scheduled(fixedRateString = "${order.push.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Channel channel : channels.values()) {
+            for (Connection connection : channel.connections) {
+                connection.enqueue(SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (Channel channel : channels.values()) {
+            for (Connection connection : channel.connections) {
+                connection.emitter.complete();
+            }
+        }
+    }
+
+    private static Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * 单个用户的连接与最近事件
+     */
+    private static final class Channel {
+
+        private final List<Connection> connections = new CopyOnWriteArrayList<>();
+        private final ArrayDeque<Entry> recent = new ArrayDeque<>();
+
+        /**
+         * 已不在保留范围内的最大事件ID
+         */
+        private long floor;
+
+        private Channel(long floor) {
+            this.floor = floor;
+        }
+    }
+
+    /**
+     * 单个SSE连接：待发事件按入队顺序由推送线程池串行写出，同一时刻最多一个线程在写
+     */
+    private final class Connection {
+
+        private final Channel channel;
+        private final SseEmitter emitter;
+        private final ConcurrentLinkedQueue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Connection(Channel channel, SseEmitter emitter) {
+            this.channel = channel;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 加入待发队列，不阻塞调用方；积压超过上限时断开连接（由推送线程在当前写出结束后完成关闭）
+         */
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > maxPending) {
+                closed = true;
+                channel.connections.remove(this);
+                dropped.set(true);
+                log.warn("SSE连接积压超过{}条事件，断开慢连接", maxPending);
+            } else {
+                pending.add(event);
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            SseEmitter.SseEventBuilder event;
+            while ((event = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                if (!closed) {
+                    send(event);
+                }
+            }
+            if (closed) {
+                pending.clear();
+            }
+            if (dropped.compareAndSet(true, false)) {
+                emitter.complete();
+            }
+            draining.set(false);
+            // 释放标记与新事件入队（或断开）之间的竞争：仍有工作时重新调度
+            if ((!pending.isEmpty() || dropped.get()) && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                channel.connections.remove(this);
+                emitter.completeWithError(e);
+                log.debug("SSE连接已断开: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final long id;
+        private final OrderPushEvent event;
+
+        private Entry(long id, OrderPushEvent event) {
+            this.id = id;
+            this.event = event;
+        }
+
+        private SseEmitter.SseEventBuilder toSse() {
+            return SseEmitter.event()
+                    .id(String.valueOf(id))
+                    .name(event.getType().name())
+                    .data(event, MediaType.APPLICATION_JSON);
+        }
+    }
+}
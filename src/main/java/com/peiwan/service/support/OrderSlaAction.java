@@ -0,0 +1,45 @@
+package com.peiwan.service.support;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * SLA超时升级后的动作（按状态配置，标记超时总会执行）
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public enum OrderSlaAction {
+    NOTIFY_CS("推送给创建工单的客服"),
+    NOTIFY_EMPLOYEE("推送给分配的员工");
+
+    private final String description;
+
+    OrderSlaAction(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 解析逗号分隔的动作列表，空串表示只标记超时
+     */
+    public static Set<OrderSlaAction> parse(String property, String value) {
+        Set<OrderSlaAction> actions = EnumSet.noneOf(OrderSlaAction.class);
+        for (String item : value.split(",")) {
+            String name = item.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                actions.add(valueOf(name.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(property + "只能包含NOTIFY_CS、NOTIFY_EMPLOYEE: " + name);
+            }
+        }
+        return actions;
+    }
+}
@@ -0,0 +1,30 @@
+package com.peiwan.service.support;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 工单事件处理器：按工单新状态重新挂载或取消SLA定时器
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderSlaEventHandler implements OrderEventHandler {
+
+    private final OrderSlaScheduler orderSlaScheduler;
+
+    public OrderSlaEventHandler(OrderSlaScheduler orderSlaScheduler) {
+        this.orderSlaScheduler = orderSlaScheduler;
+    }
+
+    @Override
+    public String name() {
+        return "sla";
+    }
+
+    @Override
+    public void onEvent(OrderEvent event, boolean endOfBatch) {
+        // 创建和状态迁移都会清空超时升级标记
+        orderSlaScheduler.track(event.getOrderId(), event.getToStatus(), event.getVersion(), event.getUpdatedAt(), false);
+    }
+}
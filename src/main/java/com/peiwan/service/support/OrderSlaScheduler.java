@@ -0,0 +1,289 @@
+package com.peiwan.service.support;
+
+import com.peiwan.dto.OrderPushEvent;
+import com.peiwan.entity.Order;
+import com.peiwan.mapper.OrderMapper;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 工单SLA超时调度
+ * 待接单、待审核的工单在当前状态停留超过时限即标记为超时升级。
+ * 定时器放在内存中的分层时间轮上，状态迁移提交后重新挂载或取消，启动时从数据库重建；
+ * 到期的定时器按批合并为一条条件更新，只有版本号未变的工单才会被标记，
+ * 多节点同时触发或与状态迁移并发时结果一致；写入失败的一批按重试间隔重新挂载，不会因一次数据库异常漏掉。
+ * 标记后按状态配置的动作（order.sla.actions.*）把超时升级事件推送给负责的客服和/或员工。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderSlaScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSlaScheduler.class);
+
+    private static final String ORDER_CACHE = "orders";
+    private static final int ESCALATE_CHUNK_SIZE = 500;
+
+    /**
+     * 受SLA约束的状态；被拒绝待重提的工单与待审核使用同一时限
+     */
+    private static final Set<Order.OrderStatus> TRACKED_STATUSES = EnumSet.of(
+            Order.OrderStatus.PENDING_ACCEPTANCE,
+            Order.OrderStatus.PENDING_AUDIT,
+            Order.OrderStatus.REJECTED_TO_SUBMIT);
+
+    private final OrderMapper orderMapper;
+    private final CacheManager cacheManager;
+    private final OrderPushHub orderPushHub;
+    private final TransactionTemplate readTransaction;
+    private final long pendingAcceptanceTimeoutMillis;
+    private final long pendingAuditTimeoutMillis;
+    private final long retryDelayMillis;
+    private final Map<Order.OrderStatus, Set<OrderSlaAction>> actions = new EnumMap<>(Order.OrderStatus.class);
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final HierarchicalTimingWheel<OrderSlaTimer> wheel;
+    private final Map<Long, HierarchicalTimingWheel.Timeout<OrderSlaTimer>> armed = new ConcurrentHashMap<>();
+
+    /**
+     * 升级写库放在单独线程，时间轮驱动线程不做IO
+     */
+    private final ExecutorService escalator = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-sla-escalation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderSlaScheduler(OrderMapper orderMapper, CacheManager cacheManager, OrderPushHub orderPushHub,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${order.sla.tick-ms:1000}") long tickMillis,
+                             @Value("${order.sla.retry-delay-ms:30000}") long retryDelayMillis,
+                             @Value("${order.sla.pending-acceptance-timeout-ms:1800000}") long pendingAcceptanceTimeoutMillis,
+                             @Value("${order.sla.pending-audit-timeout-ms:86400000}") long pendingAuditTimeoutMillis,
+                             @Value("${order.sla.actions.pending-acceptance:NOTIFY_CS,NOTIFY_EMPLOYEE}") String pendingAcceptanceActions,
+                             @Value("${order.sla.actions.pending-audit:NOTIFY_CS}") String pendingAuditActions,
+                             @Value("${order.sla.actions.rejected-to-submit:NOTIFY_CS}") String rejectedToSubmitActions) {
+        this.orderMapper = orderMapper;
+        this.cacheManager = cacheManager;
+        this.orderPushHub = orderPushHub;
+        actions.put(Order.OrderStatus.PENDING_ACCEPTANCE,
+                OrderSlaAction.parse("order.sla.actions.pending-acceptance", pendingAcceptanceActions));
+        actions.put(Order.OrderStatus.PENDING_AUDIT,
+                OrderSlaAction.parse("order.sla.actions.pending-audit", pendingAuditActions));
+        actions.put(Order.OrderStatus.REJECTED_TO_SUBMIT,
+                OrderSlaAction.parse("order.sla.actions.rejected-to-submit", rejectedToSubmitActions));
+        // 启动重建使用流式游标，需要在事务内保持连接
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.pendingAcceptanceTimeoutMillis = pendingAcceptanceTimeoutMillis;
+        this.pendingAuditTimeoutMillis = pendingAuditTimeoutMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        // 512槽 * 4层，1秒一个tick时可覆盖远超任何SLA时限的范围
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, 512, 4, "order-sla-wheel", this::onExpired);
+    }
+
+    /**
+     * 启动时从数据库重建定时器，到期时间按最后一次状态迁移时间计算
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        wheel.start();
+        int count = readTransaction.execute(status -> {
+            int loaded = 0;
+            try (Cursor<Order> cursor = orderMapper.streamSlaPending(TRACKED_STATUSES)) {
+                for (Order order : cursor) {
+                    track(order);
+                    loaded++;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("重建SLA定时器失败", e);
+            }
+            return loaded;
+        });
+        log.info("SLA定时器重建完成: {}", count);
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+        escalator.shutdownNow();
+    }
+
+    /**
+     * 按工单当前状态重新挂载定时器（应在事务提交后调用）
+     * 不受SLA约束的状态只取消原有定时器
+     */
+    public void track(Order order) {
+        track(order.getId(), order.getStatus(), order.getVersion() != null ? order.getVersion() : 0,
+                order.getUpdatedAt(), order.getSlaEscalatedAt() != null);
+    }
+
+    /**
+     * 按给定状态、版本号和最后迁移时间重新挂载定时器（工单事件处理器调用）
+     */
+    public void track(Long orderId, Order.OrderStatus status, int version, LocalDateTime updatedAt, boolean escalated) {
+        long timeoutMillis = timeoutFor(status);
+        if (timeoutMillis <= 0 || escalated) {
+            cancel(orderId);
+            return;
+        }
+        LocalDateTime since = updatedAt != null ? updatedAt : LocalDateTime.now();
+        long deadline = since.atZone(zone).toInstant().toEpochMilli() + timeoutMillis;
+        OrderSlaTimer timer = new OrderSlaTimer(orderId, status, version);
+        HierarchicalTimingWheel.Timeout<OrderSlaTimer> previous = armed.put(orderId, wheel.schedule(timer, deadline));
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    /**
+     * 取消工单的定时器
+     */
+    public void cancel(Long orderId) {
+        HierarchicalTimingWheel.Timeout<OrderSlaTimer> timeout = armed.remove(orderId);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    /**
+     * 批量取消
+     */
+    public void cancel(Collection<Long> orderIds) {
+        orderIds.forEach(this::cancel);
+    }
+
+    /**
+     * 当前挂载的定时器数量
+     */
+    public int armedCount() {
+        return wheel.size();
+    }
+
+    private long timeoutFor(Order.OrderStatus status) {
+        if (status == Order.OrderStatus.PENDING_ACCEPTANCE) {
+            return pendingAcceptanceTimeoutMillis;
+        }
+        if (status == Order.OrderStatus.PENDING_AUDIT || status == Order.OrderStatus.REJECTED_TO_SUBMIT) {
+            return pendingAuditTimeoutMillis;
+        }
+        return 0;
+    }
+
+    private boolean hasActions(List<OrderSlaTimer> timers) {
+        for (OrderSlaTimer timer : timers) {
+            Set<OrderSlaAction> statusActions = actions.get(timer.getStatus());
+            if (statusActions != null && !statusActions.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按状态配置的动作推送超时升级事件；推送失败不影响已写入的标记
+     */
+    private void notifyEscalated(List<OrderSlaTimer> timers, LocalDateTime escalatedAt) {
+        List<Order> orders;
+        try {
+            orders = orderMapper.findSlaEscalated(timers, escalatedAt);
+        } catch (RuntimeException e) {
+            log.error("查询SLA超时升级工单失败: {}个工单", timers.size(), e);
+            return;
+        }
+        for (Order order : orders) {
+            Set<OrderSlaAction> statusActions = actions.getOrDefault(order.getStatus(), Set.of());
+            OrderPushEvent event = new OrderPushEvent(OrderPushEvent.EventType.SLA_ESCALATED, order);
+            if (statusActions.contains(OrderSlaAction.NOTIFY_CS)) {
+                orderPushHub.publish(order.getCreatedByCsId(), event);
+            }
+            if (statusActions.contains(OrderSlaAction.NOTIFY_EMPLOYEE)) {
+                orderPushHub.publish(order.getAssignedEmployeeId(), event);
+            }
+        }
+    }
+
+    /**
+     * 时间轮驱动线程回调：移除映射后整批交给升级线程
+     */
+    private void onExpired(List<OrderSlaTimer> timers) {
+        List<OrderSlaTimer> due = new ArrayList<>(timers.size());
+        for (OrderSlaTimer timer : timers) {
+            HierarchicalTimingWheel.Timeout<OrderSlaTimer> current = armed.get(timer.getOrderId());
+            // 映射已指向新的定时器说明期间重新挂载过，本次到期作废
+            if (current != null && current.getPayload() == timer && armed.remove(timer.getOrderId(), current)) {
+                due.add(timer);
+            }
+        }
+        if (!due.isEmpty()) {
+            escalator.execute(() -> escalate(due));
+        }
+    }
+
+    /**
+     * 写入失败的定时器按重试间隔重新挂载；期间状态迁移已重新挂载的以新定时器为准
+     */
+    private void retry(List<OrderSlaTimer> timers) {
+        long deadline = System.currentTimeMillis() + retryDelayMillis;
+        for (OrderSlaTimer timer : timers) {
+            HierarchicalTimingWheel.Timeout<OrderSlaTimer> timeout = wheel.schedule(timer, deadline);
+            if (armed.putIfAbsent(timer.getOrderId(), timeout) != null) {
+                wheel.cancel(timeout);
+            }
+        }
+    }
+
+    private void escalate(List<OrderSlaTimer> timers) {
+        // 截到秒，与DATETIME列中保存的值一致，便于按升级时间查回本次标记的工单
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Cache cache = cacheManager.getCache(ORDER_CACHE);
+        int escalated = 0;
+        for (int from = 0; from < timers.size(); from += ESCALATE_CHUNK_SIZE) {
+            List<OrderSlaTimer> chunk = timers.subList(from, Math.min(from + ESCALATE_CHUNK_SIZE, timers.size()));
+            int marked;
+            try {
+                marked = orderMapper.markSlaEscalated(chunk, now);
+            } catch (RuntimeException e) {
+                log.error("SLA超时升级写入失败: {}个工单，{}ms后重试", chunk.size(), retryDelayMillis, e);
+                retry(chunk);
+                continue;
+            }
+            escalated += marked;
+            if (cache != null) {
+                chunk.forEach(timer -> cache.evict(timer.getOrderId()));
+            }
+            if (marked > 0 && hasActions(chunk)) {
+                notifyEscalated(chunk, now);
+            }
+        }
+        if (escalated > 0) {
+            log.warn("工单SLA超时升级: {}个（到期{}个）", escalated, timers.size());
+        }
+    }
+}
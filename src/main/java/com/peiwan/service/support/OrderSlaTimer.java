@@ -0,0 +1,35 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.Order;
+
+/**
+ * 工单SLA定时器的负载
+ * 只保存触发时做条件更新所需的字段，百万级定时器常驻内存时保持紧凑
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public final class OrderSlaTimer {
+
+    private final long orderId;
+    private final Order.OrderStatus status;
+    private final int version;
+
+    public OrderSlaTimer(long orderId, Order.OrderStatus status, int version) {
+        this.orderId = orderId;
+        this.status = status;
+        this.version = version;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
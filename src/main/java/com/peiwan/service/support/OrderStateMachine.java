@@ -0,0 +1,171 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.Order;
+import com.peiwan.exception.OrderTransitionRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 工单状态机
+ * 迁移规则集中在一张 状态 -> 允许的迁移 表中，新增状态或迁移只需修改TRANSITIONS；
+ * 校验只查EnumMap/EnumSet，失败抛出预分配的异常，不产生分配。
+ * 迁移动作（条件更新）前后执行注册的钩子（凭证、审核日志、计数、推送等），
+ * 并按迁移统计执行次数、拒绝次数和耗时。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Component
+public class OrderStateMachine {
+
+    /**
+     * 迁移表：各状态下允许的迁移
+     */
+    private static final Map<Order.OrderStatus, Set<OrderTransition>> TRANSITIONS = new EnumMap<>(Order.OrderStatus.class);
+
+    static {
+        allow(Order.OrderStatus.PENDING_ACCEPTANCE, OrderTransition.ACCEPT);
+        allow(Order.OrderStatus.IN_PROGRESS, OrderTransition.COMPLETE);
+        allow(Order.OrderStatus.PENDING_AUDIT, OrderTransition.APPROVE, OrderTransition.REJECT);
+        allow(Order.OrderStatus.REJECTED_TO_SUBMIT, OrderTransition.APPROVE, OrderTransition.REJECT);
+        allow(Order.OrderStatus.COMPLETED, OrderTransition.RENEW);
+        allow(Order.OrderStatus.REJECTED, OrderTransition.RESUBMIT);
+    }
+
+    private static void allow(Order.OrderStatus from, OrderTransition first, OrderTransition... rest) {
+        TRANSITIONS.put(from, Collections.unmodifiableSet(EnumSet.of(first, rest)));
+    }
+
+    private final Map<OrderTransition, Set<Order.OrderStatus>> sources = new EnumMap<>(OrderTransition.class);
+    private final Map<OrderTransition, OrderTransitionRejectedException> rejections = new EnumMap<>(OrderTransition.class);
+    private final Map<OrderTransition, TransitionMetrics> metrics = new EnumMap<>(OrderTransition.class);
+    private final Map<OrderTransition, List<Consumer<OrderTransitionContext>>> beforeHooks = new EnumMap<>(OrderTransition.class);
+    private final Map<OrderTransition, List<Consumer<OrderTransitionContext>>> afterHooks = new EnumMap<>(OrderTransition.class);
+
+    public OrderStateMachine() {
+        for (OrderTransition transition : OrderTransition.values()) {
+            EnumSet<Order.OrderStatus> from = EnumSet.noneOf(Order.OrderStatus.class);
+            TRANSITIONS.forEach((status, allowed) -> {
+                if (allowed.contains(transition)) {
+                    from.add(status);
+                }
+            });
+            sources.put(transition, Collections.unmodifiableSet(from));
+            rejections.put(transition, new OrderTransitionRejectedException("工单状态不允许" + transition.getDescription()));
+            metrics.put(transition, new TransitionMetrics());
+            beforeHooks.put(transition, new CopyOnWriteArrayList<>());
+            afterHooks.put(transition, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    /**
+     * 指定状态下是否允许该迁移
+     */
+    public boolean allows(Order.OrderStatus from, OrderTransition transition) {
+        Set<OrderTransition> allowed = from == null ? null : TRANSITIONS.get(from);
+        return allowed != null && allowed.contains(transition);
+    }
+
+    /**
+     * 允许该迁移的全部原状态（用于条件更新）
+     */
+    public Set<Order.OrderStatus> sourcesOf(OrderTransition transition) {
+        return sources.get(transition);
+    }
+
+    /**
+     * 校验迁移，不允许时记为拒绝并抛出OrderTransitionRejectedException
+     */
+    public void check(Order.OrderStatus from, OrderTransition transition) {
+        if (!allows(from, transition)) {
+            recordRejected(transition);
+            throw rejections.get(transition);
+        }
+    }
+
+    /**
+     * 该迁移被拒绝时使用的预分配异常
+     */
+    public OrderTransitionRejectedException rejectionOf(OrderTransition transition) {
+        return rejections.get(transition);
+    }
+
+    /**
+     * 注册迁移动作之前执行的钩子
+     */
+    public void before(Set<OrderTransition> transitions, Consumer<OrderTransitionContext> hook) {
+        transitions.forEach(transition -> beforeHooks.get(transition).add(hook));
+    }
+
+    /**
+     * 注册迁移成功之后执行的钩子（与迁移处于同一事务，按注册顺序执行）
+     */
+    public void after(Set<OrderTransition> transitions, Consumer<OrderTransitionContext> hook) {
+        transitions.forEach(transition -> afterHooks.get(transition).add(hook));
+    }
+
+    /**
+     * 执行迁移
+     *
+     * @param action 迁移动作，返回命中的原状态；返回null表示未命中（状态已变化或条件不满足），不执行后置钩子
+     * @return 命中的原状态，未命中返回null
+     */
+    public Order.OrderStatus fire(OrderTransitionContext context,
+                                  Function<OrderTransitionContext, Order.OrderStatus> action) {
+        OrderTransition transition = context.getTransition();
+        TransitionMetrics transitionMetrics = metrics.get(transition);
+        long start = System.nanoTime();
+        try {
+            for (Consumer<OrderTransitionContext> hook : beforeHooks.get(transition)) {
+                hook.accept(context);
+            }
+            Order.OrderStatus from = action.apply(context);
+            if (from == null) {
+                transitionMetrics.rejected();
+                return null;
+            }
+            context.setFromStatus(from);
+            for (Consumer<OrderTransitionContext> hook : afterHooks.get(transition)) {
+                hook.accept(context);
+            }
+            transitionMetrics.completed();
+            return from;
+        } finally {
+            transitionMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 记录未经fire执行的拒绝（批量审核逐条校验时计数）
+     */
+    public void recordRejected(OrderTransition transition) {
+        metrics.get(transition).rejected();
+    }
+
+    /**
+     * 记录未经fire执行的迁移（批量审核合并为一条UPDATE时逐条计数）
+     */
+    public void recordCompleted(OrderTransition transition, long elapsedNanos) {
+        TransitionMetrics transitionMetrics = metrics.get(transition);
+        transitionMetrics.completed();
+        transitionMetrics.record(elapsedNanos);
+    }
+
+    /**
+     * 各迁移的统计快照
+     */
+    public Map<OrderTransition, Map<String, Object>> metricsSnapshot() {
+        Map<OrderTransition, Map<String, Object>> snapshot = new EnumMap<>(OrderTransition.class);
+        metrics.forEach((transition, transitionMetrics) -> snapshot.put(transition, transitionMetrics.snapshot()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,74 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderStatusCounter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 工单状态计数增量
+ * 汇总一次事务内的计数变化，按主键顺序输出，保证并发事务以相同顺序对计数行加锁
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public final class OrderStatusDeltas {
+
+    private static final Comparator<OrderStatusCounter> KEY_ORDER = Comparator
+            .comparing(OrderStatusCounter::getOwnerType)
+            .thenComparing(OrderStatusCounter::getOwnerId)
+            .thenComparing(OrderStatusCounter::getStatus);
+
+    private final Map<OrderStatusCounter, long[]> deltas = new TreeMap<>(KEY_ORDER);
+
+    /**
+     * 新建工单：员工和客服在当前状态下各加一
+     */
+    public OrderStatusDeltas created(Order order) {
+        add(order, order.getStatus(), 1);
+        return this;
+    }
+
+    /**
+     * 工单状态迁移：原状态减一、新状态加一
+     */
+    public OrderStatusDeltas moved(Order order, Order.OrderStatus fromStatus, Order.OrderStatus toStatus) {
+        if (fromStatus != toStatus) {
+            add(order, fromStatus, -1);
+            add(order, toStatus, 1);
+        }
+        return this;
+    }
+
+    /**
+     * 按主键顺序输出非零增量，count字段为增量值
+     */
+    public List<OrderStatusCounter> toList() {
+        List<OrderStatusCounter> result = new ArrayList<>(deltas.size());
+        for (Map.Entry<OrderStatusCounter, long[]> entry : deltas.entrySet()) {
+            if (entry.getValue()[0] != 0) {
+                OrderStatusCounter key = entry.getKey();
+                result.add(new OrderStatusCounter(key.getOwnerType(), key.getOwnerId(), key.getStatus(), entry.getValue()[0]));
+            }
+        }
+        return result;
+    }
+
+    private void add(Order order, Order.OrderStatus status, long delta) {
+        if (order.getAssignedEmployeeId() != null) {
+            add(OrderStatusCounter.OwnerType.EMPLOYEE, order.getAssignedEmployeeId(), status, delta);
+        }
+        if (order.getCreatedByCsId() != null) {
+            add(OrderStatusCounter.OwnerType.CS, order.getCreatedByCsId(), status, delta);
+        }
+    }
+
+    private void add(OrderStatusCounter.OwnerType ownerType, Long ownerId, Order.OrderStatus status, long delta) {
+        OrderStatusCounter key = new OrderStatusCounter(ownerType, ownerId, status, null);
+        deltas.computeIfAbsent(key, k -> new long[1])[0] += delta;
+    }
+}
@@ -0,0 +1,44 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.Order;
+
+/**
+ * 工单状态迁移
+ * 续单和重新提单不改变原工单，而是以原工单为来源创建新工单，目标状态为新工单的初始状态
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public enum OrderTransition {
+    ACCEPT("接单", Order.OrderStatus.IN_PROGRESS, false),
+    COMPLETE("完成", Order.OrderStatus.PENDING_AUDIT, false),
+    APPROVE("审核通过", Order.OrderStatus.COMPLETED, false),
+    REJECT("审核拒绝", Order.OrderStatus.REJECTED, false),
+    RENEW("续单", Order.OrderStatus.PENDING_ACCEPTANCE, true),
+    RESUBMIT("重新提单", Order.OrderStatus.REJECTED_TO_SUBMIT, true);
+
+    private final String description;
+    private final Order.OrderStatus target;
+    private final boolean spawnsOrder;
+
+    OrderTransition(String description, Order.OrderStatus target, boolean spawnsOrder) {
+        this.description = description;
+        this.target = target;
+        this.spawnsOrder = spawnsOrder;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Order.OrderStatus getTarget() {
+        return target;
+    }
+
+    /**
+     * 是否以原工单为来源创建新工单
+     */
+    public boolean spawnsOrder() {
+        return spawnsOrder;
+    }
+}
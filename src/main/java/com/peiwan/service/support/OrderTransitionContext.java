@@ -0,0 +1,60 @@
+package com.peiwan.service.support;
+
+import com.peiwan.entity.Order;
+
+/**
+ * 一次状态迁移的上下文，在迁移动作和前后钩子之间传递
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public class OrderTransitionContext {
+
+    private final OrderTransition transition;
+    private final Long orderId;
+    private final Long actorId;
+
+    /**
+     * 迁移命中的原状态（迁移动作成功后设置）
+     */
+    private Order.OrderStatus fromStatus;
+
+    /**
+     * 迁移后的工单；续单、重新提单时为新工单
+     */
+    private Order order;
+
+    /**
+     * 凭证截图（接单、完成、重新提单）
+     */
+    private String imageUrl;
+
+    /**
+     * 审核意见
+     */
+    private String comments;
+
+    public OrderTransitionContext(OrderTransition transition, Long orderId, Long actorId) {
+        this.transition = transition;
+        this.orderId = orderId;
+        this.actorId = actorId;
+    }
+
+    public OrderTransition getTransition() { return transition; }
+
+    public Long getOrderId() { return orderId; }
+
+    public Long getActorId() { return actorId; }
+
+    public Order.OrderStatus getFromStatus() { return fromStatus; }
+    public void setFromStatus(Order.OrderStatus fromStatus) { this.fromStatus = fromStatus; }
+
+    public Order getOrder() { return order; }
+    public void setOrder(Order order) { this.order = order; }
+
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public String getComments() { return comments; }
+    public void setComments(String comments) { this.comments = comments; }
+}
@@ -0,0 +1,73 @@
+package com.peiwan.service.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个状态迁移的统计：执行次数、拒绝次数和耗时直方图
+ * 直方图按2的幂划分微秒区间（第i个桶为 [2^(i-1), 2^i) 微秒），记录只做一次原子加，不分配对象
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public final class TransitionMetrics {
+
+    private static final int BUCKETS = 32;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    /**
+     * 记录一次执行的耗时
+     */
+    public void record(long elapsedNanos) {
+        long micros = Math.max(elapsedNanos / 1000, 0);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        histogram.incrementAndGet(bucket);
+    }
+
+    public void completed() {
+        completed.increment();
+    }
+
+    public void rejected() {
+        rejected.increment();
+    }
+
+    /**
+     * 统计快照，分位数取所在桶的上界（毫秒）
+     */
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("completed", completed.sum());
+        snapshot.put("rejected", rejected.sum());
+        snapshot.put("p50Ms", percentile(counts, total, 0.50));
+        snapshot.put("p95Ms", percentile(counts, total, 0.95));
+        snapshot.put("p99Ms", percentile(counts, total, 0.99));
+        return snapshot;
+    }
+
+    private static double percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << i) / 1000.0;
+            }
+        }
+        return (1L << (counts.length - 1)) / 1000.0;
+    }
+}
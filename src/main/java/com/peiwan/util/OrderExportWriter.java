@@ -0,0 +1,162 @@
+package com.peiwan.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.peiwan.entity.Order;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 工单导出写出器
+ * 逐行写出到底层Writer，不缓存行数据，内存占用与导出行数无关
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public abstract class OrderExportWriter {
+
+    protected final Writer writer;
+
+    protected OrderExportWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * 根据格式创建写出器，支持csv和ndjson
+     */
+    public static OrderExportWriter create(String format, Writer writer, ObjectMapper objectMapper) throws IOException {
+        if ("csv".equalsIgnoreCase(format)) {
+            return new Csv(writer);
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return new Ndjson(writer, objectMapper);
+        }
+        throw new IllegalArgumentException("不支持的导出格式: " + format);
+    }
+
+    /**
+     * 写出一行工单
+     */
+    public abstract void write(Order order) throws IOException;
+
+    /**
+     * 写出尾部并刷新
+     */
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * CSV格式，带UTF-8 BOM以便Excel正确识别中文
+     */
+    private static final class Csv extends OrderExportWriter {
+
+        private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        private Csv(Writer writer) throws IOException {
+            super(writer);
+            writer.write('\uFEFF');
+            writer.write("id,orderNumber,clientInfo,status,assignedEmployeeId,createdByCsId," +
+                    "acceptedAt,completedAt,createdAt,updatedAt\r\n");
+        }
+
+        @Override
+        public void write(Order order) throws IOException {
+            writer.write(String.valueOf(order.getId()));
+            writer.write(',');
+            writeText(order.getOrderNumber());
+            writer.write(',');
+            writeText(order.getClientInfo());
+            writer.write(',');
+            writeText(order.getStatus() != null ? order.getStatus().name() : null);
+            writer.write(',');
+            writeText(order.getAssignedEmployeeId() != null ? order.getAssignedEmployeeId().toString() : null);
+            writer.write(',');
+            writeText(order.getCreatedByCsId() != null ? order.getCreatedByCsId().toString() : null);
+            writer.write(',');
+            writeTime(order.getAcceptedAt());
+            writer.write(',');
+            writeTime(order.getCompletedAt());
+            writer.write(',');
+            writeTime(order.getCreatedAt());
+            writer.write(',');
+            writeTime(order.getUpdatedAt());
+            writer.write("\r\n");
+        }
+
+        private void writeTime(LocalDateTime time) throws IOException {
+            if (time != null) {
+                TIME_FORMAT.formatTo(time, writer);
+            }
+        }
+
+        private void writeText(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            // 以公式字符开头的文本会被Excel当作公式执行，加单引号前缀按纯文本显示
+            boolean formula = !value.isEmpty() && isFormulaStart(value.charAt(0));
+            boolean quote = formula;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            if (formula) {
+                writer.write('\'');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        private static boolean isFormulaStart(char c) {
+            return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+        }
+    }
+
+    /**
+     * NDJSON格式，每行一个工单JSON
+     */
+    private static final class Ndjson extends OrderExportWriter {
+
+        private final SequenceWriter sequenceWriter;
+        private boolean empty = true;
+
+        private Ndjson(Writer writer, ObjectMapper objectMapper) throws IOException {
+            super(writer);
+            this.sequenceWriter = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(writer);
+        }
+
+        @Override
+        public void write(Order order) throws IOException {
+            sequenceWriter.write(order);
+            empty = false;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            sequenceWriter.flush();
+            if (!empty) {
+                writer.write('\n');
+            }
+            writer.flush();
+        }
+    }
+}
@@ -81,9 +81,27 @@ ALTER TABLE orders
 ADD COLUMN acceptance_screenshot_url VARCHAR(500) COMMENT '接单信息截图URL',
 ADD COLUMN completion_screenshot_url VARCHAR(500) COMMENT '完成信息截图URL';
 
--- 添加手机号字段（如果不存在）
-ALTER TABLE users 
-ADD COLUMN phone VARCHAR(20) COMMENT '手机号' AFTER real_name;
+-- 工单乐观锁版本号，补充重新审核中状态
+ALTER TABLE orders
+ADD COLUMN version INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
+MODIFY COLUMN status ENUM('PENDING_ACCEPTANCE', 'IN_PROGRESS', 'PENDING_AUDIT', 'COMPLETED', 'REJECTED', 'REJECTED_TO_SUBMIT') NOT NULL DEFAULT 'PENDING_ACCEPTANCE' COMMENT '工单状态';
+
+-- 工单链：续单、重新提单指向来源工单和链的根工单
+ALTER TABLE orders
+ADD COLUMN parent_order_id BIGINT COMMENT '来源工单ID',
+ADD COLUMN root_order_id BIGINT COMMENT '工单链根工单ID';
+
+-- 工单SLA超时升级时间
+ALTER TABLE orders
+ADD COLUMN sla_escalated_at DATETIME COMMENT '超时升级时间';
+
+-- 条件迁移前的状态：同一条UPDATE写入，迁移方据此得知命中的原状态，无需逐个原状态尝试
+ALTER TABLE orders
+ADD COLUMN previous_status ENUM('PENDING_ACCEPTANCE', 'IN_PROGRESS', 'PENDING_AUDIT', 'COMPLETED', 'REJECTED', 'REJECTED_TO_SUBMIT') COMMENT '迁移前状态';
+
+-- 令牌版本：吊销已签发的访问令牌和刷新令牌时递增
+ALTER TABLE users
+ADD COLUMN token_version INT NOT NULL DEFAULT 0 COMMENT '令牌版本';
 
 -- 工单凭证表
 CREATE TABLE IF NOT EXISTS order_proofs (
@@ -114,29 +132,127 @@ CREATE TABLE IF NOT EXISTS audit_logs (
     FOREIGN KEY (auditor_id) REFERENCES users(id)
 ) COMMENT '审核日志表';
 
+-- 工单编号序列表（各节点按天分段租用编号）
+CREATE TABLE IF NOT EXISTS order_number_sequences (
+    seq_date DATE PRIMARY KEY COMMENT '序列日期',
+    next_value BIGINT NOT NULL COMMENT '下一个可租用的序号',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) COMMENT '工单编号序列表';
+
+-- 工单状态计数表（员工/客服各状态工单数，随工单创建和状态迁移增量维护）
+CREATE TABLE IF NOT EXISTS order_status_counters (
+    owner_type ENUM('EMPLOYEE', 'CS') NOT NULL COMMENT '归属类型',
+    owner_id BIGINT NOT NULL COMMENT '归属人ID',
+    status ENUM('PENDING_ACCEPTANCE', 'IN_PROGRESS', 'PENDING_AUDIT', 'COMPLETED', 'REJECTED', 'REJECTED_TO_SUBMIT') NOT NULL COMMENT '工单状态',
+    count BIGINT NOT NULL DEFAULT 0 COMMENT '工单数量',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (owner_type, owner_id, status)
+) COMMENT '工单状态计数表';
+
+-- 幂等记录表（按 用户 + X-Request-Id 保存首次成功响应，重试时直接回放）
+CREATE TABLE IF NOT EXISTS idempotency_records (
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    request_id VARCHAR(64) NOT NULL COMMENT '客户端请求ID（X-Request-Id）',
+    fingerprint VARCHAR(255) NOT NULL COMMENT '请求方法、路径和请求体摘要',
+    status ENUM('PROCESSING', 'COMPLETED') NOT NULL COMMENT '处理状态',
+    response_body MEDIUMTEXT COMMENT '首次成功响应体',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    expires_at DATETIME NOT NULL COMMENT '过期时间',
+    PRIMARY KEY (user_id, request_id),
+    INDEX idx_idempotency_records_expires_at (expires_at)
+) COMMENT '幂等记录表';
+
+-- 工单日报表（按天、归属人预聚合，由增量任务维护，报表接口只读该表）
+CREATE TABLE IF NOT EXISTS order_daily_stats (
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    owner_type ENUM('EMPLOYEE', 'CS') NOT NULL COMMENT '归属类型',
+    owner_id BIGINT NOT NULL COMMENT '归属人ID',
+    created_count INT NOT NULL DEFAULT 0 COMMENT '创建工单数',
+    accepted_count INT NOT NULL DEFAULT 0 COMMENT '接单数',
+    completed_count INT NOT NULL DEFAULT 0 COMMENT '完成（提交审核）数',
+    approved_count INT NOT NULL DEFAULT 0 COMMENT '审核通过数',
+    rejected_count INT NOT NULL DEFAULT 0 COMMENT '审核拒绝数',
+    median_accept_seconds BIGINT COMMENT '接单耗时中位数（秒，创建到接单）',
+    median_complete_seconds BIGINT COMMENT '完成耗时中位数（秒，接单到完成）',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (stat_date, owner_type, owner_id),
+    INDEX idx_order_daily_stats_owner (owner_type, owner_id, stat_date)
+) COMMENT '工单日报表';
+
+-- 汇总任务水位表（记录已处理到的updated_at）
+CREATE TABLE IF NOT EXISTS rollup_watermarks (
+    name VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '任务名',
+    watermark DATETIME NOT NULL COMMENT '已处理到的更新时间（含）',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) COMMENT '汇总任务水位表';
+
+-- HTTP会话表（多节点共享登录态；会话ID按16字节存储，属性为紧凑二进制编码）
+CREATE TABLE IF NOT EXISTS http_sessions (
+    session_id BINARY(16) NOT NULL PRIMARY KEY COMMENT '会话ID（UUID）',
+    creation_time BIGINT NOT NULL COMMENT '创建时间（毫秒）',
+    last_access_time BIGINT NOT NULL COMMENT '最后访问时间（毫秒，批量延迟写入）',
+    max_inactive_seconds INT NOT NULL COMMENT '最大空闲秒数',
+    expiry_time BIGINT NOT NULL COMMENT '过期时间（毫秒）',
+    attributes VARBINARY(4096) NOT NULL COMMENT '会话属性',
+    INDEX idx_http_sessions_expiry_time (expiry_time)
+) COMMENT 'HTTP会话表';
+
+-- 已使用的刷新令牌表（刷新令牌一次性使用；主键冲突即重复使用，所有节点共用）
+CREATE TABLE IF NOT EXISTS refresh_token_uses (
+    refresh_id BINARY(16) NOT NULL PRIMARY KEY COMMENT '刷新令牌ID',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    expires_at BIGINT NOT NULL COMMENT '保留到的时间（秒，刷新令牌过期后可删除）',
+    INDEX idx_refresh_token_uses_expires_at (expires_at)
+) COMMENT '已使用的刷新令牌表';
+
 -- 创建索引
 CREATE INDEX idx_users_username ON users(username);
-CREATE INDEX idx_users_role ON users(role);
-CREATE INDEX idx_users_deleted ON users(deleted);
+CREATE INDEX idx_users_role_page ON users(role, deleted, created_at);
+CREATE INDEX idx_users_active_page ON users(is_active, deleted, created_at);
+CREATE INDEX idx_users_phone ON users(phone);
+CREATE INDEX idx_users_real_name ON users(real_name);
 
 CREATE INDEX idx_employee_profiles_user_id ON employee_profiles(user_id);
 CREATE INDEX idx_employee_profiles_work_status ON employee_profiles(work_status);
 
 CREATE INDEX idx_game_skills_profile_id ON game_skills(profile_id);
+CREATE INDEX idx_game_skills_game_name ON game_skills(game_name);
 
 CREATE INDEX idx_cs_employee_mappings_cs_id ON cs_employee_mappings(cs_user_id);
 CREATE INDEX idx_cs_employee_mappings_employee_id ON cs_employee_mappings(employee_user_id);
+CREATE INDEX idx_cs_employee_mappings_page ON cs_employee_mappings(deleted, created_at);
 
-CREATE INDEX idx_orders_employee_id ON orders(assigned_employee_id);
-CREATE INDEX idx_orders_cs_id ON orders(created_by_cs_id);
-CREATE INDEX idx_orders_status ON orders(status);
+-- 工单列表游标分页索引（筛选列 + deleted + created_at + id，避免filesort）
+CREATE INDEX idx_orders_employee_page ON orders(assigned_employee_id, deleted, created_at, id);
+CREATE INDEX idx_orders_cs_page ON orders(created_by_cs_id, deleted, created_at, id);
+CREATE INDEX idx_orders_cs_employee_page ON orders(created_by_cs_id, assigned_employee_id, deleted, created_at, id);
+CREATE INDEX idx_orders_employee_status_page ON orders(assigned_employee_id, status, deleted, created_at, id);
+CREATE INDEX idx_orders_status_page ON orders(status, deleted, created_at, id);
+CREATE INDEX idx_orders_page ON orders(deleted, created_at, id);
 CREATE INDEX idx_orders_number ON orders(order_number);
+CREATE INDEX idx_orders_root ON orders(root_order_id, id);
+-- 日报增量汇总：按更新时间找变化的工单，按接单/完成时间重算某一天
+CREATE INDEX idx_orders_updated_at ON orders(updated_at);
+CREATE INDEX idx_orders_accepted_at ON orders(accepted_at);
+CREATE INDEX idx_orders_completed_at ON orders(completed_at);
+-- 工单搜索：按2字切分的全文索引，支持客户信息和工单编号的任意片段匹配（随写入自动维护）
+CREATE FULLTEXT INDEX ft_orders_search ON orders(order_number, client_info) WITH PARSER ngram;
+
+-- 凭证、审核日志按工单/审核人查询并按时间倒序（筛选列 + deleted + 排序列）
+CREATE INDEX idx_order_proofs_order_page ON order_proofs(order_id, deleted, uploaded_at);
+CREATE INDEX idx_order_proofs_order_type_page ON order_proofs(order_id, proof_type, deleted, uploaded_at);
 
-CREATE INDEX idx_order_proofs_order_id ON order_proofs(order_id);
-CREATE INDEX idx_order_proofs_type ON order_proofs(proof_type);
+CREATE INDEX idx_audit_logs_order_page ON audit_logs(order_id, deleted, created_at);
+CREATE INDEX idx_audit_logs_auditor_page ON audit_logs(auditor_id, deleted, created_at);
+CREATE INDEX idx_audit_logs_updated_at ON audit_logs(updated_at);
+CREATE INDEX idx_audit_logs_created_at ON audit_logs(created_at);
 
-CREATE INDEX idx_audit_logs_order_id ON audit_logs(order_id);
-CREATE INDEX idx_audit_logs_auditor_id ON audit_logs(auditor_id);
+-- 归档表：结构和索引与热表相同（建在索引之后以一并复制，LIKE不复制外键），
+-- 由后台任务按主键分批搬迁超过保留期的已完成工单及其凭证、审核日志
+CREATE TABLE IF NOT EXISTS orders_archive LIKE orders;
+CREATE TABLE IF NOT EXISTS order_proofs_archive LIKE order_proofs;
+CREATE TABLE IF NOT EXISTS audit_logs_archive LIKE audit_logs;
 
 -- 插入默认管理员账号
 INSERT INTO users (username, password_hash, real_name, phone, role, is_active, created_at, updated_at) VALUES
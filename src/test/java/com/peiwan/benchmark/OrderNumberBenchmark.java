@@ -0,0 +1,102 @@
+package com.peiwan.benchmark;
+
+import com.peiwan.mapper.OrderNumberSequenceMapper;
+import com.peiwan.service.support.OrderNumberAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 工单编号生成吞吐对比
+ * legacy为改造前的实现（静态AtomicInteger + DateTimeFormatter + String.format），
+ * allocator为按段租用的OrderNumberAllocator；租用用内存计数器加可配置的延迟模拟一次数据库往返，
+ * blockSize=1相当于每个工单都访问一次数据库。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class OrderNumberBenchmark {
+
+    @Param({"1", "100"})
+    public int blockSize;
+
+    /**
+     * 模拟的单次租用耗时（微秒）
+     */
+    @Param({"0", "500"})
+    public long leaseLatencyMicros;
+
+    private final AtomicInteger legacyCounter = new AtomicInteger(1);
+    private OrderNumberAllocator allocator;
+
+    @Setup
+    public void setUp() {
+        AtomicLong sequence = new AtomicLong(1);
+        OrderNumberSequenceMapper mapper = seq -> {
+            if (leaseLatencyMicros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(leaseLatencyMicros));
+            }
+            seq.setNextValue(sequence.addAndGet(seq.getStep()));
+            return 1;
+        };
+        allocator = new OrderNumberAllocator(mapper, new NoOpTransactionManager(), blockSize);
+    }
+
+    @Benchmark
+    public String legacy() {
+        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        int counter = legacyCounter.getAndIncrement();
+        return String.format("ORD%s%04d", date, counter);
+    }
+
+    @Benchmark
+    public String allocator() {
+        return allocator.next();
+    }
+
+    /**
+     * 不做任何事的事务管理器，只让TransactionTemplate能执行回调
+     */
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.peiwan.benchmark;
+
+import com.peiwan.dto.OrderStatusUpdate;
+import com.peiwan.entity.Order;
+import com.peiwan.mapper.OrderMapper;
+import com.peiwan.service.support.OrderStateMachine;
+import com.peiwan.service.support.OrderTransition;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次状态迁移（接单、提交完成、审核通过）写给数据库的字节数
+ * fullColumn为改造前的updateById（整行可更新列全部写回），dirtyUpdate为只写脏字段的updateById，
+ * transition为服务当前实际执行的条件迁移语句。
+ * 字节数按MySQL驱动默认的客户端预处理（参数以字面量内联进SQL）计算，每个组合启动时打印一行；
+ * 计时部分为MyBatis生成SQL并取出绑定参数的耗时，即动态SQL相对静态语句多出的CPU开销。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderTransitionBytesBenchmark {
+
+    @Param({"ACCEPT", "COMPLETE", "APPROVE"})
+    public OrderTransition transition;
+
+    @Param({"fullColumn", "dirtyUpdate", "transition"})
+    public String statement;
+
+    private Configuration configuration;
+    private MappedStatement mappedStatement;
+    private Object parameter;
+
+    @Setup
+    public void setUp() {
+        configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(OrderMapper.class);
+        configuration.addMapper(LegacyOrderMapper.class);
+
+        switch (statement) {
+            case "fullColumn" -> {
+                mappedStatement = configuration.getMappedStatement(LegacyOrderMapper.class.getName() + ".updateById");
+                parameter = changedOrder();
+            }
+            case "dirtyUpdate" -> {
+                mappedStatement = configuration.getMappedStatement(OrderMapper.class.getName() + ".updateById");
+                parameter = changedOrder();
+            }
+            case "transition" -> {
+                mappedStatement = configuration.getMappedStatement(OrderMapper.class.getName() + ".transition");
+                parameter = statusUpdate();
+            }
+            default -> throw new IllegalArgumentException("未知的语句: " + statement);
+        }
+
+        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+        int sqlBytes = boundSql.getSql().getBytes(StandardCharsets.UTF_8).length;
+        int parameterBytes = parameterBytes(boundSql);
+        // 每个占位符被替换成对应的字面量
+        System.out.printf("%n# %s %s: SQL模板 %d 字节，%d 个参数共 %d 字节，发送 %d 字节%n",
+                transition, statement, sqlBytes, boundSql.getParameterMappings().size(), parameterBytes,
+                sqlBytes - boundSql.getParameterMappings().size() + parameterBytes);
+    }
+
+    @Benchmark
+    public int bind() {
+        return parameterBytes(mappedStatement.getBoundSql(parameter));
+    }
+
+    /**
+     * 从库中读出的工单，按改造前的服务代码修改本次迁移涉及的字段
+     */
+    private Order changedOrder() {
+        Order order = loadedOrder();
+        LocalDateTime now = LocalDateTime.now();
+        switch (transition) {
+            case ACCEPT -> {
+                order.setStatus(Order.OrderStatus.IN_PROGRESS);
+                order.setAcceptedAt(now);
+                order.setAcceptanceScreenshotUrl("/uploads/acceptance/2024/01/01/9f1c2a7e-5b3d-4e8a-a1f0-3c6d2b8e7f41.png");
+            }
+            case COMPLETE -> {
+                order.setStatus(Order.OrderStatus.PENDING_AUDIT);
+                order.setCompletedAt(now);
+                order.setCompletionScreenshotUrl("/uploads/completion/2024/01/01/2d7b9c4e-8f1a-4c3b-9e6d-5a0f1b2c3d4e.png");
+            }
+            default -> order.setStatus(transition.getTarget());
+        }
+        order.setUpdatedAt(now);
+        return order;
+    }
+
+    /**
+     * 当前服务为本次迁移构造的条件更新参数
+     */
+    private OrderStatusUpdate statusUpdate() {
+        OrderStatusUpdate update = new OrderStatusUpdate(1001L, new OrderStateMachine().sourcesOf(transition),
+                transition.getTarget());
+        update.setExpectedVersion(3);
+        switch (transition) {
+            case ACCEPT -> {
+                update.setEmployeeId(12L);
+                update.setAcceptedAt(update.getUpdatedAt());
+                update.setAcceptanceScreenshotUrl("/uploads/acceptance/2024/01/01/9f1c2a7e-5b3d-4e8a-a1f0-3c6d2b8e7f41.png");
+            }
+            case COMPLETE -> {
+                update.setEmployeeId(12L);
+                update.setCompletedAt(update.getUpdatedAt());
+                update.setCompletionScreenshotUrl("/uploads/completion/2024/01/01/2d7b9c4e-8f1a-4c3b-9e6d-5a0f1b2c3d4e.png");
+            }
+            default -> {
+            }
+        }
+        return update;
+    }
+
+    /**
+     * 迁移前的工单：前序步骤已写入的字段都有值
+     */
+    private Order loadedOrder() {
+        Order order = new Order();
+        order.setId(1001L);
+        order.setOrderNumber("ORD202401010001");
+        order.setClientInfo("老板ID：夜空中最亮的星，王者荣耀 安卓QQ区，星耀升王者，指定打野位，晚上8点后在线");
+        order.setStatus(Order.OrderStatus.PENDING_ACCEPTANCE);
+        order.setAssignedEmployeeId(12L);
+        order.setCreatedByCsId(3L);
+        order.setOrderInfoScreenshotUrl("/uploads/orders/2024/01/01/6a2e4f8c-1b3d-4c5e-8f7a-9b0c1d2e3f40.png");
+        order.setCreatedAt(LocalDateTime.now().minusHours(2));
+        order.setUpdatedAt(LocalDateTime.now().minusHours(1));
+        order.setVersion(3);
+        if (transition != OrderTransition.ACCEPT) {
+            order.setAcceptedAt(LocalDateTime.now().minusHours(1));
+            order.setAcceptanceScreenshotUrl("/uploads/acceptance/2024/01/01/9f1c2a7e-5b3d-4e8a-a1f0-3c6d2b8e7f41.png");
+        }
+        if (transition != OrderTransition.ACCEPT && transition != OrderTransition.COMPLETE) {
+            order.setCompletedAt(LocalDateTime.now().minusMinutes(10));
+            order.setCompletionScreenshotUrl("/uploads/completion/2024/01/01/2d7b9c4e-8f1a-4c3b-9e6d-5a0f1b2c3d4e.png");
+        }
+        order.clearDirty();
+        return order;
+    }
+
+    /**
+     * 绑定参数内联为字面量后的字节数（取值方式与MyBatis的DefaultParameterHandler一致）
+     */
+    private int parameterBytes(BoundSql boundSql) {
+        MetaObject metaObject = configuration.newMetaObject(boundSql.getParameterObject());
+        int bytes = 0;
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            String property = mapping.getProperty();
+            Object value = boundSql.hasAdditionalParameter(property)
+                    ? boundSql.getAdditionalParameter(property) : metaObject.getValue(property);
+            bytes += literalBytes(value);
+        }
+        return bytes;
+    }
+
+    /**
+     * 字符串、枚举和时间带引号，时间按驱动的格式带到微秒，空值写作NULL
+     */
+    private static int literalBytes(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.name().length() + 2;
+        }
+        if (value instanceof LocalDateTime time) {
+            return (time.getNano() == 0 ? 19 : 26) + 2;
+        }
+        if (value instanceof Number) {
+            return value.toString().length();
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8).length + 2;
+    }
+
+    /**
+     * 改造前的整行更新语句
+     */
+    public interface LegacyOrderMapper {
+
+        @Update("UPDATE orders SET order_number = #{orderNumber}, client_info = #{clientInfo}, " +
+                "status = #{status}, assigned_employee_id = #{assignedEmployeeId}, " +
+                "order_info_screenshot_url = #{orderInfoScreenshotUrl}, acceptance_screenshot_url = #{acceptanceScreenshotUrl}, " +
+                "completion_screenshot_url = #{completionScreenshotUrl}, accepted_at = #{acceptedAt}, " +
+                "completed_at = #{completedAt}, updated_at = #{updatedAt} WHERE id = #{id}")
+        int updateById(Order order);
+    }
+}
@@ -0,0 +1,69 @@
+package com.peiwan.benchmark;
+
+import cn.hutool.crypto.digest.BCrypt;
+import com.peiwan.security.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码哈希耗时随cost的变化
+ * direct为在调用线程上直接执行BCrypt，hasher经过PasswordHasher的专用线程池，
+ * 两者之差即线程池交接的开销；cost每加1耗时约翻倍，用于在目标机器上选择peiwan.auth.password.cost。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "admin123";
+
+    @Param({"8", "10", "12"})
+    public int cost;
+
+    private PasswordHasher hasher;
+    private String passwordHash;
+
+    @Setup
+    public void setUp() {
+        hasher = new PasswordHasher(cost, 1, 64, 60000);
+        passwordHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @TearDown
+    public void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Benchmark
+    public boolean direct() {
+        return BCrypt.checkpw(PASSWORD, passwordHash);
+    }
+
+    @Benchmark
+    public boolean hasher() {
+        return hasher.matches(PASSWORD, passwordHash);
+    }
+
+    @Benchmark
+    public String hash() {
+        return hasher.hash(PASSWORD);
+    }
+}
@@ -0,0 +1,139 @@
+package com.peiwan.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.peiwan.entity.IdempotencyRecord;
+import com.peiwan.mapper.IdempotencyRecordMapper;
+import com.peiwan.service.support.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 幂等过滤器测试：指纹包含请求体，同一请求ID换了请求体返回422，请求体超过上限返回413，缓存的请求体支持异步读取
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class IdempotencyFilterTest {
+
+    private final List<String> executedBodies = new ArrayList<>();
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyRecordMapper mapper = mock(IdempotencyRecordMapper.class);
+        when(mapper.insertProcessing(any(IdempotencyRecord.class))).thenReturn(1);
+        IdempotencyStore store = new IdempotencyStore(mapper, 60000, 60000, 100);
+        filter = new IdempotencyFilter(store, new ObjectMapper().findAndRegisterModules(), new String[]{"/cs/orders"}, 64);
+    }
+
+    @Test
+    void sameBodyIsReplayed() throws Exception {
+        MockHttpServletResponse first = post("{\"clientInfo\":\"委托人\"}");
+        MockHttpServletResponse retry = post("{\"clientInfo\":\"委托人\"}");
+
+        assertThat(executedBodies).containsExactly("{\"clientInfo\":\"委托人\"}");
+        assertThat(retry.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+    }
+
+    @Test
+    void differentBodyWithSameRequestIdIsRejected() throws Exception {
+        post("{\"clientInfo\":\"委托人\"}");
+        MockHttpServletResponse reused = post("{\"clientInfo\":\"另一位委托人\"}");
+
+        assertThat(executedBodies).hasSize(1);
+        assertThat(reused.getStatus()).isEqualTo(422);
+        assertThat(reused.getContentAsString()).contains("\"code\":422");
+    }
+
+    @Test
+    void oversizedBodyIsRejectedWithoutReadingPastTheLimit() throws Exception {
+        String body = "{\"clientInfo\":\"" + "委".repeat(64) + "\"}";
+        MockHttpServletResponse declared = post(body);
+
+        // 分块传输时没有Content-Length，读到上限即停止
+        MockHttpServletRequest chunked = request(new MockHttpServletRequest("POST", "/cs/orders") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        }, body);
+        MockHttpServletResponse streamed = new MockHttpServletResponse();
+        filter.doFilter(chunked, streamed, (req, res) -> executedBodies.add("executed"));
+
+        assertThat(executedBodies).isEmpty();
+        assertThat(declared.getStatus()).isEqualTo(413);
+        assertThat(streamed.getStatus()).isEqualTo(413);
+        assertThat(chunked.getInputStream().available()).isPositive();
+    }
+
+    @Test
+    void cachedBodyCanBeReadAsynchronously() throws Exception {
+        MockHttpServletRequest request = request(new MockHttpServletRequest("POST", "/cs/orders"), "{\"clientInfo\":\"委托人\"}");
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(in.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+        });
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"clientInfo\":\"委托人\"}");
+        assertThat(allDataRead).isTrue();
+    }
+
+    private MockHttpServletResponse post(String body) throws Exception {
+        MockHttpServletRequest request = request(new MockHttpServletRequest("POST", "/cs/orders"), body);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            // 下游仍能读到完整的请求体
+            executedBodies.add(StreamUtils.copyToString(req.getInputStream(), StandardCharsets.UTF_8));
+            res.setContentType("application/json");
+            res.getWriter().write("{\"code\":200,\"message\":\"创建成功\",\"data\":{\"id\":" + executedBodies.size() + "}}");
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(MockHttpServletRequest request, String body) {
+        request.addHeader("X-User-Id", "3");
+        request.addHeader("X-Request-Id", "req-1");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
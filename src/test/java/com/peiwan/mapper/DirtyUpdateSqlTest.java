@@ -0,0 +1,138 @@
+package com.peiwan.mapper;
+
+import com.peiwan.config.DirtyTrackingInterceptor;
+import com.peiwan.entity.Order;
+import com.peiwan.entity.User;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * updateById动态SQL测试：SET子句只包含脏字段
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class DirtyUpdateSqlTest {
+
+    private static final String URL = "jdbc:h2:mem:dirty_update;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private Configuration configuration;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", URL, null, null)));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addInterceptor(new DirtyTrackingInterceptor());
+        configuration.addMapper(OrderMapper.class);
+        configuration.addMapper(UserMapper.class);
+    }
+
+    @Test
+    void orderSetClauseContainsOnlyDirtyColumns() {
+        Order order = loadedOrder();
+        order.setStatus(Order.OrderStatus.COMPLETED);
+        order.setCompletedAt(LocalDateTime.now());
+
+        BoundSql sql = updateSql("com.peiwan.mapper.OrderMapper.updateById", order);
+
+        assertThat(setClause(sql)).isEqualTo("status = ?, completed_at = ?, updated_at = NOW(), version = version + 1");
+        assertThat(parameterNames(sql)).containsExactly("status", "completedAt", "id");
+    }
+
+    @Test
+    void cleanOrderOnlyTouchesBookkeepingColumns() {
+        BoundSql sql = updateSql("com.peiwan.mapper.OrderMapper.updateById", loadedOrder());
+
+        assertThat(setClause(sql)).isEqualTo("updated_at = NOW(), version = version + 1");
+        assertThat(parameterNames(sql)).containsExactly("id");
+    }
+
+    @Test
+    void userSetClauseContainsOnlyDirtyColumns() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("cs01");
+        user.setRealName("客服一");
+        user.setPhone("13800000000");
+        user.setRole(User.UserRole.CS);
+        user.setIsActive(true);
+        user.clearDirty();
+        user.setPasswordHash("$2a$10$hash");
+
+        BoundSql sql = updateSql("com.peiwan.mapper.UserMapper.updateById", user);
+
+        assertThat(setClause(sql)).isEqualTo("password_hash = ?, updated_at = NOW()");
+        assertThat(parameterNames(sql)).containsExactly("passwordHash", "id");
+    }
+
+    @Test
+    void rowsLoadedThroughMapperStartClean() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, order_number VARCHAR(50), " +
+                    "client_info VARCHAR(500), status VARCHAR(32), assigned_employee_id BIGINT, " +
+                    "version INT, deleted TINYINT)");
+            statement.execute("INSERT INTO orders VALUES (1, 'ORD202401010001', '委托人', 'IN_PROGRESS', 7, 0, 0)");
+
+            SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(configuration);
+            try (SqlSession session = factory.openSession()) {
+                Order order = session.getMapper(OrderMapper.class).selectById(1L);
+                order.setClientInfo("新委托人");
+
+                BoundSql sql = updateSql("com.peiwan.mapper.OrderMapper.updateById", order);
+                assertThat(setClause(sql)).isEqualTo("client_info = ?, updated_at = NOW(), version = version + 1");
+            } finally {
+                statement.execute("DROP TABLE orders");
+            }
+        }
+    }
+
+    /**
+     * 各字段均已赋值、且已清空修改记录的工单，模拟从数据库加载后的状态
+     */
+    private static Order loadedOrder() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setOrderNumber("ORD202401010001");
+        order.setClientInfo("委托人");
+        order.setStatus(Order.OrderStatus.IN_PROGRESS);
+        order.setAssignedEmployeeId(7L);
+        order.setOrderInfoScreenshotUrl("order.png");
+        order.setAcceptanceScreenshotUrl("accept.png");
+        order.setAcceptedAt(LocalDateTime.now());
+        order.setUpdatedAt(LocalDateTime.now());
+        order.clearDirty();
+        return order;
+    }
+
+    private BoundSql updateSql(String statementId, Object parameter) {
+        return configuration.getMappedStatement(statementId).getBoundSql(parameter);
+    }
+
+    private static String setClause(BoundSql sql) {
+        String text = sql.getSql().replaceAll("\\s+", " ").replaceAll(" ?, ?", ", ").trim();
+        return text.substring(text.indexOf(" SET ") + 5, text.indexOf(" WHERE "));
+    }
+
+    private static List<String> parameterNames(BoundSql sql) {
+        return sql.getParameterMappings().stream().map(ParameterMapping::getProperty).toList();
+    }
+}
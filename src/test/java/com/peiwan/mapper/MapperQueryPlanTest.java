@@ -0,0 +1,303 @@
+package com.peiwan.mapper;
+
+import com.peiwan.config.QueryPlanInterceptor;
+import com.peiwan.dto.QueryPlanReport;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.ResolverUtil;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 查询计划测试：在按建表脚本初始化并灌入数据的MySQL上，对每个Mapper语句执行EXPLAIN。
+ * 参数按方法签名构造（动态SQL另以空筛选条件再跑一遍），全部计划写入target/query-plans.txt；
+ * 语句须能在MySQL上执行EXPLAIN，且不得出现QueryPlanInterceptor判定的大范围全表扫描或filesort。
+ * 需要Docker，没有时跳过
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MapperQueryPlanTest {
+
+    private static final int SEED_ORDERS = 20000;
+    private static final long ROW_THRESHOLD = 1000;
+
+    /**
+     * 有意读取全表的语句
+     */
+    private static final Map<String, String> FULL_READS = Map.of(
+            "com.peiwan.mapper.OrderMapper.selectAll", "管理端全量列表",
+            "com.peiwan.mapper.OrderMapper.streamForExport", "不带筛选条件的导出按ID顺序读取全表");
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("peiwan_system")
+            .withInitScript("db/init.sql");
+
+    private static Configuration configuration;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        try (Connection connection = MYSQL.createConnection(""); Statement statement = connection.createStatement()) {
+            seed(statement);
+        }
+        configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:/mapper/**/*.xml")) {
+            try (InputStream in = resource.getInputStream()) {
+                new XMLMapperBuilder(in, configuration, resource.toString(), configuration.getSqlFragments()).parse();
+            }
+        }
+        for (Class<?> type : mapperTypes()) {
+            if (!configuration.hasMapper(type)) {
+                configuration.addMapper(type);
+            }
+        }
+    }
+
+    @Test
+    void everyStatementExplainsWithoutLargeScans() throws Exception {
+        List<String> plans = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        List<QueryPlanReport> violations = new ArrayList<>();
+        int explained = 0;
+        try (Connection connection = MYSQL.createConnection("")) {
+            for (Class<?> type : mapperTypes()) {
+                for (Method method : type.getDeclaredMethods()) {
+                    String id = type.getName() + "." + method.getName();
+                    if (method.isDefault() || Modifier.isStatic(method.getModifiers()) || !configuration.hasStatement(id)) {
+                        continue;
+                    }
+                    MappedStatement ms = configuration.getMappedStatement(id);
+                    ParamNameResolver resolver = new ParamNameResolver(configuration, method);
+                    List<Object[]> variants = new ArrayList<>();
+                    variants.add(arguments(method, false));
+                    if (ms.getSqlSource() instanceof DynamicSqlSource) {
+                        variants.add(arguments(method, true));
+                    }
+                    for (Object[] args : variants) {
+                        Object parameter = resolver.getNamedParams(args);
+                        BoundSql boundSql;
+                        try {
+                            boundSql = ms.getBoundSql(parameter);
+                        } catch (RuntimeException e) {
+                            // 该分支要求参数非空，只在全部参数有值时检查
+                            plans.add(id + " (空筛选条件不适用)");
+                            continue;
+                        }
+                        plans.add(id + "\n  " + boundSql.getSql().replaceAll("\\s+", " "));
+                        try {
+                            explain(connection, ms, parameter, boundSql, plans, violations);
+                            explained++;
+                        } catch (SQLException e) {
+                            failures.add(id + ": " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+        Path report = Path.of("target", "query-plans.txt");
+        Files.createDirectories(report.getParent());
+        Files.write(report, plans, StandardCharsets.UTF_8);
+
+        assertThat(explained).isGreaterThan(0);
+        assertThat(failures).isEmpty();
+        assertThat(violations).extracting(v -> v.getStatementId() + " " + v.getTable() + " type=" + v.getType()
+                + " rows=" + v.getRows() + " extra=" + v.getExtra()).isEmpty();
+    }
+
+    private static void explain(Connection connection, MappedStatement ms, Object parameter, BoundSql boundSql,
+                                List<String> plans, List<QueryPlanReport> violations) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+            new DefaultParameterHandler(ms, parameter, boundSql).setParameters(statement);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    plans.add("  " + rs.getString("table") + " type=" + rs.getString("type") + " key=" + rs.getString("key")
+                            + " rows=" + rs.getString("rows") + " extra=" + rs.getString("Extra"));
+                    QueryPlanReport report = QueryPlanInterceptor.inspect(ms.getId(), boundSql.getSql(), rs, ROW_THRESHOLD);
+                    if (report != null && !FULL_READS.containsKey(ms.getId())) {
+                        violations.add(report);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 灌入数据：工单及其归档、凭证、审核日志、幂等记录、会话各两万行，状态分布接近线上（大部分已完成、未过期）
+     */
+    private static void seed(Statement statement) throws SQLException {
+        statement.execute("SET SESSION cte_max_recursion_depth = " + SEED_ORDERS);
+        statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+        statement.execute("INSERT INTO users (id, username, password_hash, real_name, phone, role) " +
+                seq(300) + "SELECT 100 + n, CONCAT('seed', n), 'x', CONCAT('用户', n), CONCAT('139', LPAD(n, 8, '0')), " +
+                "IF(n > 250, 'CS', 'EMPLOYEE') FROM seq");
+        statement.execute("INSERT INTO orders (id, order_number, client_info, status, assigned_employee_id, created_by_cs_id, " +
+                "accepted_at, completed_at, root_order_id, created_at, updated_at, deleted) " +
+                seq(SEED_ORDERS) + "SELECT n, CONCAT('ORD', LPAD(n, 12, '0')), CONCAT('委托人', n), " +
+                "CASE n % 20 WHEN 0 THEN 'PENDING_ACCEPTANCE' WHEN 1 THEN 'IN_PROGRESS' WHEN 2 THEN 'PENDING_AUDIT' " +
+                "WHEN 3 THEN 'REJECTED' WHEN 4 THEN 'REJECTED_TO_SUBMIT' ELSE 'COMPLETED' END, " +
+                "101 + n % 250, 351 + n % 50, " +
+                "IF(n % 20 = 0, NULL, NOW() - INTERVAL n MINUTE + INTERVAL 5 MINUTE), " +
+                "IF(n % 20 > 4, NOW() - INTERVAL n MINUTE + INTERVAL 1 HOUR, NULL), " +
+                "IF(n % 10 = 0, n - 9, NULL), NOW() - INTERVAL n MINUTE, NOW() - INTERVAL n MINUTE + INTERVAL 2 HOUR, " +
+                "IF(n % 100 = 0, 1, 0) FROM seq");
+        statement.execute("INSERT INTO orders_archive SELECT * FROM orders");
+        statement.execute("INSERT INTO order_proofs (order_id, proof_type, image_url, uploaded_at) " +
+                seq(SEED_ORDERS) + "SELECT n, IF(n % 2 = 0, 'ACCEPTANCE', 'COMPLETION'), CONCAT('proof/', n, '.png'), " +
+                "NOW() - INTERVAL n MINUTE FROM seq");
+        statement.execute("INSERT INTO order_proofs_archive SELECT * FROM order_proofs");
+        statement.execute("INSERT INTO audit_logs (order_id, auditor_id, action, created_at, updated_at) " +
+                seq(SEED_ORDERS) + "SELECT n, 351 + n % 50, IF(n % 20 = 3, 'REJECT', 'APPROVE'), " +
+                "NOW() - INTERVAL n MINUTE, NOW() - INTERVAL n MINUTE FROM seq");
+        statement.execute("INSERT INTO audit_logs_archive SELECT * FROM audit_logs");
+        statement.execute("INSERT INTO idempotency_records (user_id, request_id, fingerprint, status, created_at, expires_at) " +
+                seq(SEED_ORDERS) + "SELECT 101 + n % 300, UUID(), 'POST /api/orders', 'COMPLETED', " +
+                "NOW() - INTERVAL (n % 1440) MINUTE, NOW() + INTERVAL (1440 - n % 1440) MINUTE FROM seq");
+        statement.execute("INSERT INTO http_sessions (session_id, creation_time, last_access_time, max_inactive_seconds, " +
+                "expiry_time, attributes) " + seq(SEED_ORDERS) + "SELECT UNHEX(MD5(n)), 1000000 + n, 1000000 + n, 1800, " +
+                "1000000 + n + 1800000, X'00' FROM seq");
+        statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+        statement.execute("ANALYZE TABLE users, orders, orders_archive, order_proofs, order_proofs_archive, " +
+                "audit_logs, audit_logs_archive, idempotency_records, http_sessions");
+    }
+
+    private static String seq(int count) {
+        return "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + count + ") ";
+    }
+
+    private static List<Class<?>> mapperTypes() {
+        ResolverUtil<Class<?>> resolver = new ResolverUtil<>();
+        resolver.findAnnotated(Mapper.class, "com.peiwan.mapper");
+        List<Class<?>> types = new ArrayList<>(resolver.getClasses());
+        types.sort(Comparator.comparing(Class::getName));
+        return types;
+    }
+
+    /**
+     * 按参数类型构造调用参数；nullFilters时可为空的简单参数传null，覆盖动态SQL的不带筛选条件分支
+     */
+    private static Object[] arguments(Method method, boolean nullFilters) {
+        Type[] types = method.getGenericParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            boolean nullable = types[i] instanceof Class<?> type && !type.isPrimitive() && isSimple(type);
+            args[i] = nullFilters && nullable ? null : sample(types[i], 0, 0);
+        }
+        return args;
+    }
+
+    private static boolean isSimple(Class<?> type) {
+        return type.isEnum() || Number.class.isAssignableFrom(type) || type == String.class || type == Boolean.class
+                || type == LocalDateTime.class || type == LocalDate.class;
+    }
+
+    /**
+     * 样例值：ID取已灌入数据的用户和工单，集合取两个不同元素，实体调用全部setter（标记为脏字段）
+     */
+    private static Object sample(Type type, int index, int depth) {
+        if (type instanceof ParameterizedType parameterized) {
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            if (Collection.class.isAssignableFrom(raw)) {
+                Type element = parameterized.getActualTypeArguments()[0];
+                Object first = sample(element, 0, depth);
+                return first == null ? null : List.of(first, sample(element, 1, depth));
+            }
+            return null;
+        }
+        Class<?> raw = (Class<?>) type;
+        if (raw == Long.class || raw == long.class) {
+            return 101L + index;
+        }
+        if (raw == Integer.class || raw == int.class) {
+            return 100;
+        }
+        if (raw == Boolean.class || raw == boolean.class) {
+            return true;
+        }
+        if (raw == String.class) {
+            return UUID.nameUUIDFromBytes(("seed" + index).getBytes(StandardCharsets.UTF_8)).toString();
+        }
+        if (raw == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (raw == LocalDate.class) {
+            return LocalDate.now();
+        }
+        if (raw == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (raw == byte[].class) {
+            return new byte[]{0};
+        }
+        if (raw.isEnum()) {
+            Object[] constants = raw.getEnumConstants();
+            return constants[index % constants.length];
+        }
+        if (depth > 0 || raw.isInterface()) {
+            return null;
+        }
+        return bean(raw, index, depth + 1);
+    }
+
+    private static Object bean(Class<?> type, int index, int depth) {
+        try {
+            Constructor<?> constructor = Arrays.stream(type.getConstructors())
+                    .min(Comparator.comparingInt(Constructor::getParameterCount))
+                    .orElseThrow();
+            Type[] parameterTypes = constructor.getGenericParameterTypes();
+            Object[] args = new Object[parameterTypes.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = sample(parameterTypes[i], index, depth);
+            }
+            Object bean = constructor.newInstance(args);
+            for (Method method : type.getMethods()) {
+                if (method.getName().startsWith("set") && method.getParameterCount() == 1) {
+                    method.invoke(bean, sample(method.getGenericParameterTypes()[0], index, depth));
+                }
+            }
+            return bean;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法构造参数: " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.peiwan.mapper;
+
+import com.peiwan.entity.AuditLog;
+import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderProof;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 归档与导出SQL测试：显式列清单与建表脚本一致，归档复制和含归档的分页、工单链和凭证按列名对应，导出整体按ID排序
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class OrderArchiveSqlTest {
+
+    private static final String URL = "jdbc:h2:mem:order_archive;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private Connection connection;
+    private SqlSessionFactory factory;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE orders (" + columnDefinitions(OrderMapper.ORDER_COLUMNS) + ")");
+            // 归档表列顺序与热表不同，复制仍须按列名对应
+            statement.execute("CREATE TABLE orders_archive (" + columnDefinitions(reversed(OrderMapper.ORDER_COLUMNS)) + ")");
+            statement.execute("CREATE TABLE order_proofs (" + columnDefinitions(OrderArchiveMapper.PROOF_COLUMNS) + ")");
+            statement.execute("CREATE TABLE order_proofs_archive (" + columnDefinitions(reversed(OrderArchiveMapper.PROOF_COLUMNS)) + ")");
+            statement.execute("CREATE TABLE audit_logs (" + columnDefinitions(OrderArchiveMapper.AUDIT_LOG_COLUMNS) + ")");
+            statement.execute("CREATE TABLE audit_logs_archive (" + columnDefinitions(reversed(OrderArchiveMapper.AUDIT_LOG_COLUMNS)) + ")");
+        }
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", URL, null, null)));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(OrderMapper.class);
+        configuration.addMapper(OrderArchiveMapper.class);
+        configuration.addMapper(AuditLogMapper.class);
+        configuration.addMapper(OrderProofMapper.class);
+        factory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void columnListsMatchSchema() throws IOException {
+        String schema = readSchema();
+        assertThat(columnSet(OrderMapper.ORDER_COLUMNS)).isEqualTo(schemaColumns(schema, "orders"));
+        assertThat(columnSet(OrderArchiveMapper.PROOF_COLUMNS)).isEqualTo(schemaColumns(schema, "order_proofs"));
+        assertThat(columnSet(OrderArchiveMapper.AUDIT_LOG_COLUMNS)).isEqualTo(schemaColumns(schema, "audit_logs"));
+    }
+
+    @Test
+    void copiesMatchColumnsByName() throws SQLException {
+        execute("INSERT INTO orders (id, order_number, client_info, status, version, previous_status, deleted) " +
+                "VALUES (1, 'ORD202401010001', '委托人', 'COMPLETED', 3, 'PENDING_AUDIT', 0)");
+        execute("INSERT INTO order_proofs (id, order_id, proof_type, image_url, deleted) VALUES (10, 1, 'COMPLETION', 'done.png', 0)");
+        execute("INSERT INTO audit_logs (id, order_id, auditor_id, action, comments, deleted) VALUES (20, 1, 3, 'APPROVE', '通过', 0)");
+
+        try (SqlSession session = factory.openSession(true)) {
+            OrderArchiveMapper mapper = session.getMapper(OrderArchiveMapper.class);
+            assertThat(mapper.copyOrders(List.of(1L))).isEqualTo(1);
+            assertThat(mapper.copyProofs(List.of(1L))).isEqualTo(1);
+            assertThat(mapper.copyAuditLogs(List.of(1L))).isEqualTo(1);
+        }
+
+        assertThat(query("SELECT order_number, status, version, previous_status FROM orders_archive"))
+                .containsExactly("ORD202401010001|COMPLETED|3|PENDING_AUDIT");
+        assertThat(query("SELECT order_id, image_url FROM order_proofs_archive")).containsExactly("1|done.png");
+        assertThat(query("SELECT order_id, auditor_id, comments FROM audit_logs_archive")).containsExactly("1|3|通过");
+    }
+
+    @Test
+    void exportWithArchiveIsOrderedById() throws SQLException {
+        execute("INSERT INTO orders (id, order_number, client_info, status, deleted) VALUES " +
+                "(1, 'ORD1', 'a', 'IN_PROGRESS', 0), (4, 'ORD4', 'b', 'COMPLETED', 0), (5, 'ORD5', 'c', 'COMPLETED', 1)");
+        execute("INSERT INTO orders_archive (id, order_number, client_info, status, deleted) VALUES " +
+                "(2, 'ORD2', 'd', 'COMPLETED', 0), (3, 'ORD3', 'e', 'COMPLETED', 0)");
+
+        // 导出语句的fetchSize是MySQL驱动的逐行读取标记，H2不接受，这里取生成的SQL直接执行
+        Map<String, Object> params = new HashMap<>();
+        params.put("includeArchive", true);
+        String sql = factory.getConfiguration()
+                .getMappedStatement("com.peiwan.mapper.OrderMapper.streamForExport").getBoundSql(params).getSql();
+        List<Long> ids = new ArrayList<>();
+        for (String row : query(sql.replace("SELECT " + OrderMapper.ORDER_COLUMNS, "SELECT id"))) {
+            ids.add(Long.parseLong(row));
+        }
+
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void pageWithArchiveMatchesColumnsByName() throws SQLException {
+        execute("INSERT INTO orders (id, order_number, client_info, status, created_at, deleted) " +
+                "VALUES (2, 'ORD2', '热表委托人', 'IN_PROGRESS', '2024-01-02 00:00:00', 0)");
+        execute("INSERT INTO orders_archive (id, order_number, client_info, status, created_at, deleted) " +
+                "VALUES (1, 'ORD1', '归档委托人', 'COMPLETED', '2024-01-01 00:00:00', 0)");
+
+        List<Order> page;
+        try (SqlSession session = factory.openSession(true)) {
+            page = session.getMapper(OrderMapper.class).findPage(null, null, null, null, null, 10, true);
+        }
+
+        assertThat(page).extracting(Order::getOrderNumber, Order::getClientInfo, Order::getStatus).containsExactly(
+                tuple("ORD2", "热表委托人", Order.OrderStatus.IN_PROGRESS),
+                tuple("ORD1", "归档委托人", Order.OrderStatus.COMPLETED));
+    }
+
+    @Test
+    void chainIncludesArchivedRootAndItsAuditLogs() throws SQLException {
+        // 根工单已完成并归档，续单仍在热表
+        execute("INSERT INTO orders_archive (id, order_number, client_info, status, deleted) " +
+                "VALUES (1, 'ORD1', '委托人', 'COMPLETED', 0)");
+        execute("INSERT INTO orders (id, order_number, client_info, status, parent_order_id, root_order_id, deleted) VALUES " +
+                "(2, 'ORD2', '委托人', 'COMPLETED', 1, 1, 0), (3, 'ORD3', '委托人', 'IN_PROGRESS', 2, 1, 0)");
+        execute("INSERT INTO audit_logs_archive (id, order_id, auditor_id, action, comments, created_at, deleted) " +
+                "VALUES (20, 1, 3, 'APPROVE', '根工单通过', '2024-01-01 00:00:00', 0)");
+        execute("INSERT INTO audit_logs (id, order_id, auditor_id, action, comments, created_at, deleted) " +
+                "VALUES (21, 2, 3, 'APPROVE', '续单通过', '2024-01-02 00:00:00', 0)");
+
+        List<Order> hotChain;
+        List<Order> chain;
+        List<AuditLog> auditLogs;
+        try (SqlSession session = factory.openSession(true)) {
+            OrderMapper orderMapper = session.getMapper(OrderMapper.class);
+            hotChain = orderMapper.findChain(1L, false);
+            chain = orderMapper.findChain(1L, true);
+            auditLogs = session.getMapper(AuditLogMapper.class).findByOrderIds(List.of(1L, 2L, 3L), true);
+        }
+
+        assertThat(hotChain).extracting(Order::getId).containsExactly(2L, 3L);
+        assertThat(chain).extracting(Order::getId, Order::getOrderNumber, Order::getStatus).containsExactly(
+                tuple(1L, "ORD1", Order.OrderStatus.COMPLETED),
+                tuple(2L, "ORD2", Order.OrderStatus.COMPLETED),
+                tuple(3L, "ORD3", Order.OrderStatus.IN_PROGRESS));
+        assertThat(auditLogs).extracting(AuditLog::getOrderId, AuditLog::getComments).containsExactly(
+                tuple(2L, "续单通过"),
+                tuple(1L, "根工单通过"));
+    }
+
+    @Test
+    void proofsWithArchiveMatchColumnsByName() throws SQLException {
+        execute("INSERT INTO order_proofs (id, order_id, proof_type, image_url, uploaded_at, deleted) " +
+                "VALUES (11, 2, 'ACCEPTANCE', 'hot.png', '2024-01-02 00:00:00', 0)");
+        execute("INSERT INTO order_proofs_archive (id, order_id, proof_type, image_url, uploaded_at, deleted) " +
+                "VALUES (10, 1, 'COMPLETION', 'archived.png', '2024-01-01 00:00:00', 0)");
+
+        List<OrderProof> proofs;
+        try (SqlSession session = factory.openSession(true)) {
+            proofs = session.getMapper(OrderProofMapper.class).findByOrderIds(List.of(1L, 2L), true);
+        }
+
+        assertThat(proofs).extracting(OrderProof::getId, OrderProof::getOrderId, OrderProof::getProofType, OrderProof::getImageUrl)
+                .containsExactly(
+                        tuple(11L, 2L, OrderProof.ProofType.ACCEPTANCE, "hot.png"),
+                        tuple(10L, 1L, OrderProof.ProofType.COMPLETION, "archived.png"));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private List<String> query(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                List<String> values = new ArrayList<>();
+                for (int i = 1; i <= columns; i++) {
+                    values.add(rs.getString(i));
+                }
+                rows.add(String.join("|", values));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 测试表只关心列名，一律建成宽松类型
+     */
+    private static String columnDefinitions(String columns) {
+        List<String> definitions = new ArrayList<>();
+        for (String column : columnSet(columns)) {
+            definitions.add(column + (column.equals("id") || column.endsWith("_id") || column.equals("version")
+                    || column.equals("deleted") ? " BIGINT" : " VARCHAR(500)"));
+        }
+        return String.join(", ", definitions);
+    }
+
+    private static String reversed(String columns) {
+        List<String> list = new ArrayList<>(columnSet(columns));
+        Collections.reverse(list);
+        return String.join(", ", list);
+    }
+
+    private static Set<String> columnSet(String columns) {
+        Set<String> set = new LinkedHashSet<>();
+        Arrays.stream(columns.split(",")).map(String::trim).forEach(set::add);
+        return set;
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream in = OrderArchiveSqlTest.class.getResourceAsStream("/db/init.sql")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 从建表语句和其后的ALTER TABLE ... ADD COLUMN中收集表的列名
+     */
+    private static Set<String> schemaColumns(String schema, String table) {
+        Set<String> columns = new LinkedHashSet<>();
+        Matcher create = Pattern.compile("CREATE TABLE IF NOT EXISTS " + table + " \\((.*?)\\n\\)", Pattern.DOTALL).matcher(schema);
+        assertThat(create.find()).isTrue();
+        for (String line : create.group(1).split("\\n")) {
+            Matcher column = Pattern.compile("^\\s+([a-z_]+) [A-Z]").matcher(line);
+            if (column.find()) {
+                columns.add(column.group(1));
+            }
+        }
+        Matcher alter = Pattern.compile("ALTER TABLE " + table + "\\s*\\n(.*?);", Pattern.DOTALL).matcher(schema);
+        while (alter.find()) {
+            Matcher added = Pattern.compile("ADD COLUMN ([a-z_]+)").matcher(alter.group(1));
+            while (added.find()) {
+                columns.add(added.group(1));
+            }
+        }
+        return columns;
+    }
+}
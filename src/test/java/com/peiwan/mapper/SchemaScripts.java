@@ -0,0 +1,40 @@
+package com.peiwan.mapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 从db/init.sql中取出建表语句，测试库与线上表结构保持一致（H2的MySQL模式可直接执行）
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+public final class SchemaScripts {
+
+    private SchemaScripts() {
+    }
+
+    /**
+     * 指定表的CREATE TABLE语句（不含末尾分号）
+     */
+    public static String createTable(String table) {
+        Matcher create = Pattern.compile("CREATE TABLE IF NOT EXISTS " + table + " \\(.*?\\n\\)[^;]*", Pattern.DOTALL)
+                .matcher(readSchema());
+        if (!create.find()) {
+            throw new IllegalArgumentException("db/init.sql中没有表: " + table);
+        }
+        return create.group();
+    }
+
+    private static String readSchema() {
+        try (InputStream in = SchemaScripts.class.getResourceAsStream("/db/init.sql")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
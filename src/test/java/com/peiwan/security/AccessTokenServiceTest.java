@@ -0,0 +1,169 @@
+package com.peiwan.security;
+
+import com.peiwan.dto.LoginResponse;
+import com.peiwan.entity.User;
+import com.peiwan.mapper.RefreshTokenUseMapper;
+import com.peiwan.mapper.SchemaScripts;
+import com.peiwan.mapper.UserMapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 令牌模式测试：签名篡改、类型不符、过期、版本吊销均被拒绝，刷新令牌在任一节点重复使用都会吊销全部令牌
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class AccessTokenServiceTest {
+
+    private static final String URL = "jdbc:h2:mem:access_tokens;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final long USER_ID = 7L;
+
+    private final AtomicInteger tokenVersion = new AtomicInteger();
+    private JdbcTemplate jdbc;
+    private UserMapper userMapper;
+    private RefreshTokenUseMapper refreshTokenUseMapper;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(URL);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute(SchemaScripts.createTable("refresh_token_uses"));
+        Configuration configuration = new Configuration(new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addMapper(RefreshTokenUseMapper.class);
+        refreshTokenUseMapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration))
+                .getMapper(RefreshTokenUseMapper.class);
+
+        userMapper = mock(UserMapper.class);
+        when(userMapper.selectById(USER_ID)).thenAnswer(invocation -> user());
+        when(userMapper.findTokenVersion(USER_ID)).thenAnswer(invocation -> tokenVersion.get());
+        doAnswer(invocation -> tokenVersion.incrementAndGet()).when(userMapper).incrementTokenVersion(USER_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() {
+        AccessTokenService service = node(900, 3600);
+        LoginResponse login = login(service);
+        assertThat(service.verifyAccess(login.getAccessToken())).isNotNull();
+
+        assertThat(service.verifyAccess(tamper(login.getAccessToken()))).isNull();
+        assertThatThrownBy(() -> service.refresh(tamper(login.getRefreshToken())))
+                .hasMessage("刷新令牌无效或已过期");
+        // 其他密钥签发的令牌同样无效
+        AccessTokenService otherKey = new AccessTokenService(userMapper, refreshTokenUseMapper,
+                "fedcba9876543210fedcba9876543210", 900, 3600);
+        assertThat(otherKey.verifyAccess(login.getAccessToken())).isNull();
+    }
+
+    @Test
+    void tokenOfWrongTypeIsRejected() {
+        AccessTokenService service = node(900, 3600);
+        LoginResponse login = login(service);
+
+        assertThat(service.verifyAccess(login.getRefreshToken())).isNull();
+        assertThatThrownBy(() -> service.refresh(login.getAccessToken()))
+                .hasMessage("刷新令牌无效或已过期");
+    }
+
+    @Test
+    void expiredTokensAreRejected() throws InterruptedException {
+        AccessTokenService service = node(1, 1);
+        LoginResponse login = login(service);
+
+        // 过期时间精确到秒，等过下一个整秒
+        Thread.sleep(2100);
+
+        assertThat(service.verifyAccess(login.getAccessToken())).isNull();
+        assertThatThrownBy(() -> service.refresh(login.getRefreshToken()))
+                .hasMessage("刷新令牌无效或已过期");
+    }
+
+    @Test
+    void revokedVersionIsRejected() {
+        AccessTokenService service = node(900, 3600);
+        LoginResponse login = login(service);
+
+        service.revoke(USER_ID);
+
+        assertThat(service.verifyAccess(login.getAccessToken())).isNull();
+        assertThatThrownBy(() -> service.refresh(login.getRefreshToken()))
+                .hasMessage("登录已失效，请重新登录");
+        // 重新登录签发的新版本令牌有效
+        assertThat(service.verifyAccess(login(service).getAccessToken())).isNotNull();
+    }
+
+    @Test
+    void refreshTokenReusedOnAnotherNodeRevokesAllTokens() {
+        AccessTokenService nodeA = node(900, 3600);
+        AccessTokenService nodeB = node(900, 3600);
+        LoginResponse login = login(nodeA);
+
+        LoginResponse refreshed = nodeA.refresh(login.getRefreshToken());
+        assertThat(nodeA.verifyAccess(refreshed.getAccessToken())).isNotNull();
+        verify(userMapper, never()).incrementTokenVersion(anyLong());
+
+        // 另一个节点（或重启后的节点）没有见过这次使用，仍能从数据库识别重复使用
+        assertThatThrownBy(() -> nodeB.refresh(login.getRefreshToken()))
+                .hasMessage("刷新令牌已使用，请重新登录");
+        verify(userMapper).incrementTokenVersion(USER_ID);
+        assertThat(nodeB.verifyAccess(refreshed.getAccessToken())).isNull();
+        assertThatThrownBy(() -> nodeB.refresh(refreshed.getRefreshToken()))
+                .hasMessage("登录已失效，请重新登录");
+    }
+
+    private AccessTokenService node(long accessTtlSeconds, long refreshTtlSeconds) {
+        return new AccessTokenService(userMapper, refreshTokenUseMapper, SECRET, accessTtlSeconds, refreshTtlSeconds);
+    }
+
+    private LoginResponse login(AccessTokenService service) {
+        LoginResponse response = new LoginResponse();
+        service.issue(user(), response);
+        return response;
+    }
+
+    private User user() {
+        User user = new User();
+        user.setId(USER_ID);
+        user.setUsername("cs001");
+        user.setRole(User.UserRole.CS);
+        user.setIsActive(true);
+        user.setTokenVersion(tokenVersion.get());
+        return user;
+    }
+
+    /**
+     * 翻转签名的最后一个字节
+     */
+    private static String tamper(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        bytes[bytes.length - 1] ^= 1;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,198 @@
+package com.peiwan.security;
+
+import com.peiwan.config.SessionConfig;
+import com.peiwan.entity.HttpSessionRecord;
+import com.peiwan.mapper.HttpSessionMapper;
+import com.peiwan.mapper.SchemaScripts;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.session.web.http.SessionRepositoryFilter;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 数据库会话测试：一个节点签发的会话Cookie在另一个节点同样有效，访问时间写入失败时留待重试，
+ * 属性只接受基本类型，旧的Java序列化属性不再读取
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class JdbcSessionRepositoryTest {
+
+    private static final String URL = "jdbc:h2:mem:http_sessions;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void sessionIssuedByOneNodeIsAcceptedByAnother() throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(URL));
+        jdbc.execute(SchemaScripts.createTable("http_sessions"));
+        // H2没有UNHEX，用同名函数代替
+        jdbc.execute("CREATE ALIAS UNHEX FOR \"com.peiwan.security.JdbcSessionRepositoryTest$H2Functions.unhex\"");
+        try (AnnotationConfigApplicationContext nodeA = new AnnotationConfigApplicationContext(NodeConfig.class, SessionConfig.class);
+             AnnotationConfigApplicationContext nodeB = new AnnotationConfigApplicationContext(NodeConfig.class, SessionConfig.class)) {
+            MockHttpServletResponse loginResponse = new MockHttpServletResponse();
+            nodeA.getBean(SessionRepositoryFilter.class).doFilter(new MockHttpServletRequest("POST", "/auth/login"), loginResponse,
+                    (req, res) -> {
+                        HttpSession session = ((HttpServletRequest) req).getSession();
+                        session.setAttribute("userId", 7L);
+                        session.setAttribute("username", "cs001");
+                    });
+            Cookie cookie = loginResponse.getCookie("SESSION");
+            assertThat(cookie).isNotNull();
+
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/auth/me");
+            request.setCookies(cookie);
+            AtomicReference<Object> userId = new AtomicReference<>();
+            FilterChain me = (req, res) -> {
+                HttpSession session = ((HttpServletRequest) req).getSession(false);
+                userId.set(session == null ? null : session.getAttribute("userId"));
+            };
+            nodeB.getBean(SessionRepositoryFilter.class).doFilter(request, new MockHttpServletResponse(), me);
+
+            assertThat(userId.get()).isEqualTo(7L);
+        } finally {
+            jdbc.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedTouchesAreRequeuedKeepingTheLaterAccess() {
+        HttpSessionMapper mapper = mock(HttpSessionMapper.class);
+        JdbcSessionRepository repository = new JdbcSessionRepository(mapper, Duration.ofMinutes(30), 100);
+        when(mapper.findById("s1")).thenReturn(record("s1", 1000));
+        touch(repository, 2000);
+        // 写入期间同一会话又被访问了一次，随后写入失败
+        doAnswer(invocation -> {
+            touch(repository, 3000);
+            throw new IllegalStateException("连接已断开");
+        }).doReturn(1).when(mapper).touchBatch(anyList());
+
+        repository.flushTouches();
+        repository.flushTouches();
+
+        ArgumentCaptor<List<HttpSessionRecord>> touches = ArgumentCaptor.forClass(List.class);
+        verify(mapper, times(2)).touchBatch(touches.capture());
+        assertThat(touches.getAllValues().get(1)).singleElement()
+                .extracting(HttpSessionRecord::getLastAccessTime).isEqualTo(3000L);
+    }
+
+    @Test
+    void unsupportedAttributeTypesAreRejected() {
+        assertThatThrownBy(() -> SessionAttributeCodec.encode(Map.of("cart", new ArrayList<>())))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void legacySerializedAttributesDropTheSession() throws IOException {
+        HttpSessionMapper mapper = mock(HttpSessionMapper.class);
+        JdbcSessionRepository repository = new JdbcSessionRepository(mapper, Duration.ofMinutes(30), 100);
+        // 旧格式：类型标记9之后是Java序列化的字节
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(1);
+            out.writeUTF("SPRING_SECURITY_SAVED_REQUEST");
+            out.writeByte(9);
+            out.writeInt(4);
+            out.write(new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5});
+        }
+        HttpSessionRecord record = record("s1", 1000);
+        record.setAttributes(bytes.toByteArray());
+        when(mapper.findById("s1")).thenReturn(record);
+
+        assertThat(repository.findById("s1")).isNull();
+        verify(mapper).deleteById("s1");
+    }
+
+    /**
+     * 读出会话并以给定时间访问后保存，只产生一条待写入的访问时间
+     */
+    private static void touch(JdbcSessionRepository repository, long accessTime) {
+        JdbcSessionRepository.JdbcSession session = repository.findById("s1");
+        session.setLastAccessedTime(Instant.ofEpochMilli(accessTime));
+        repository.save(session);
+    }
+
+    private static HttpSessionRecord record(String id, long lastAccessTime) {
+        HttpSessionRecord record = new HttpSessionRecord();
+        record.setSessionId(id);
+        record.setCreationTime(lastAccessTime);
+        record.setLastAccessTime(lastAccessTime);
+        // 永不过期，不受测试中的时间戳影响
+        record.setMaxInactiveSeconds(-1);
+        record.setExpiryTime(Long.MAX_VALUE);
+        record.setAttributes(SessionAttributeCodec.encode(Map.of()));
+        return record;
+    }
+
+    /**
+     * H2中注册的MySQL函数（H2要求公开类）
+     */
+    public static final class H2Functions {
+
+        private H2Functions() {
+        }
+
+        public static byte[] unhex(String hex) {
+            try {
+                return HexFormat.of().parseHex(hex);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 一个应用节点：独立的会话存储和Mapper，共用同一个数据库
+     */
+    @Configuration
+    static class NodeConfig {
+
+        @Bean
+        DataSource dataSource() {
+            return new DriverManagerDataSource(URL);
+        }
+
+        @Bean
+        HttpSessionMapper httpSessionMapper(DataSource dataSource) {
+            org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration(
+                    new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+            configuration.setMapUnderscoreToCamelCase(true);
+            configuration.addMapper(HttpSessionMapper.class);
+            return new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration)).getMapper(HttpSessionMapper.class);
+        }
+    }
+}
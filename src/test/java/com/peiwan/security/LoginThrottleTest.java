@@ -0,0 +1,71 @@
+package com.peiwan.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 登录节流测试：并发请求不会同时越过上限，登录成功清零用户名计数并退还IP额度
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class LoginThrottleTest {
+
+    @Test
+    void concurrentAttemptsNeverExceedTheLimit() throws Exception {
+        LoginThrottle throttle = new LoginThrottle(5, 50, 300, 1000);
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String clientIp = "10.0.0." + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        throttle.reserve("cs001", clientIp);
+                        admitted.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // 超限被拒绝
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(admitted.get()).isEqualTo(5);
+        assertThat(throttle.metricsSnapshot().get("blocked")).isEqualTo((long) threads - 5);
+    }
+
+    @Test
+    void successClearsUsernameAndReturnsIpSlot() {
+        LoginThrottle throttle = new LoginThrottle(2, 2, 300, 1000);
+        throttle.reserve("CS001", "10.0.0.1");
+        throttle.reserve("cs001", "10.0.0.1");
+        throttle.recordSuccess("cs001", "10.0.0.1");
+
+        // 用户名计数已清零，IP只计入了一次失败
+        throttle.reserve("cs001", "10.0.0.1");
+        assertThatThrownBy(() -> throttle.reserve("emp001", "10.0.0.1"))
+                .hasMessage("登录失败次数过多，请稍后再试");
+    }
+}
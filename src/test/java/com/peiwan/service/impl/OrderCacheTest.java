@@ -0,0 +1,138 @@
+package com.peiwan.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.peiwan.dto.OrderStatusUpdate;
+import com.peiwan.entity.Order;
+import com.peiwan.entity.User;
+import com.peiwan.mapper.AuditLogMapper;
+import com.peiwan.mapper.OrderMapper;
+import com.peiwan.mapper.OrderProofMapper;
+import com.peiwan.mapper.OrderTimelineMapper;
+import com.peiwan.service.OrderCounterService;
+import com.peiwan.service.support.OrderEventBus;
+import com.peiwan.service.support.OrderNumberAllocator;
+import com.peiwan.service.support.OrderStateMachine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 工单缓存测试：本类内部的读取也命中缓存，迁移后失效，加载期间的失效不会被旧值覆盖
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class OrderCacheTest {
+
+    private OrderMapper orderMapper;
+    private CaffeineCacheManager cacheManager;
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderMapper = mock(OrderMapper.class);
+        cacheManager = new CaffeineCacheManager("orders");
+        cacheManager.setCacheSpecification("maximumSize=100,recordStats");
+        orderService = new OrderServiceImpl(orderMapper, mock(OrderProofMapper.class), mock(AuditLogMapper.class),
+                mock(OrderNumberAllocator.class), cacheManager, mock(OrderCounterService.class),
+                mock(OrderTimelineMapper.class), new OrderStateMachine(), mock(OrderEventBus.class));
+    }
+
+    @Test
+    void lineageReadsHitTheCache() {
+        Order order = order(Order.OrderStatus.COMPLETED);
+        when(orderMapper.selectById(1L)).thenReturn(order);
+        when(orderMapper.findChain(1L, true)).thenReturn(List.of(order));
+
+        orderService.getLineage(1L, 1L, User.UserRole.ADMIN);
+        orderService.getLineage(1L, 1L, User.UserRole.ADMIN);
+        orderService.findById(1L);
+
+        verify(orderMapper, times(1)).selectById(1L);
+        assertThat(nativeCache().stats().hitCount()).isEqualTo(2);
+        assertThat(nativeCache().stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void renewReadsTheSourceOrderFromTheCache() {
+        when(orderMapper.selectById(1L)).thenReturn(order(Order.OrderStatus.COMPLETED));
+        orderService.findById(1L);
+
+        orderService.renewOrder(1L, 7L);
+
+        verify(orderMapper, times(1)).selectById(1L);
+        assertThat(nativeCache().stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void transitionEvictsTheCachedOrder() {
+        Order accepted = order(Order.OrderStatus.IN_PROGRESS);
+        accepted.setPreviousStatus(Order.OrderStatus.PENDING_ACCEPTANCE);
+        when(orderMapper.selectById(anyLong())).thenReturn(order(Order.OrderStatus.PENDING_ACCEPTANCE), accepted);
+        // 模拟SelectKey回填：新版本号1，命中唯一的原状态
+        doAnswer(invocation -> {
+            invocation.<OrderStatusUpdate>getArgument(0).setMatched((long) OrderStatusUpdate.STATUS_SLOTS);
+            return 1;
+        }).when(orderMapper).transition(any(OrderStatusUpdate.class));
+        orderService.findById(1L);
+
+        orderService.acceptOrder(1L, "accept.png", null, 7L);
+
+        assertThat(nativeCache().getIfPresent(1L)).isNull();
+    }
+
+    @Test
+    void evictDuringLoadIsNotOverwrittenByTheStaleRow() throws Exception {
+        AtomicReference<Thread> writer = new AtomicReference<>();
+        when(orderMapper.selectById(1L)).thenAnswer(invocation -> {
+            // 读者已读到旧行，写者此时提交并执行失效
+            Thread thread = new Thread(() -> cacheManager.getCache("orders").evict(1L));
+            writer.set(thread);
+            thread.start();
+            thread.join(200);
+            return order(Order.OrderStatus.PENDING_ACCEPTANCE);
+        });
+
+        Order loaded = orderService.findById(1L);
+        writer.get().join(2000);
+
+        assertThat(loaded.getStatus()).isEqualTo(Order.OrderStatus.PENDING_ACCEPTANCE);
+        assertThat(writer.get().isAlive()).isFalse();
+        assertThat(nativeCache().getIfPresent(1L)).isNull();
+    }
+
+    @Test
+    void missingOrderIsNotCached() {
+        orderService.findById(2L);
+
+        assertThat(nativeCache().getIfPresent(2L)).isNull();
+    }
+
+    private Cache<Object, Object> nativeCache() {
+        return ((CaffeineCache) cacheManager.getCache("orders")).getNativeCache();
+    }
+
+    private static Order order(Order.OrderStatus status) {
+        Order order = new Order();
+        order.setId(1L);
+        order.setOrderNumber("ORD202401010001");
+        order.setClientInfo("委托人");
+        order.setStatus(status);
+        order.setAssignedEmployeeId(7L);
+        order.setCreatedByCsId(3L);
+        return order;
+    }
+}
@@ -0,0 +1,113 @@
+package com.peiwan.service.impl;
+
+import com.peiwan.entity.Order;
+import com.peiwan.entity.OrderStatusCounter;
+import com.peiwan.mapper.OrderStatusCounterMapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 状态计数对账测试：分段统计，只锁定并修正存在漂移的归属人
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class OrderCounterReconcileTest {
+
+    private JdbcTemplate jdbc;
+    private OrderStatusCounterMapper mapper;
+    private OrderCounterServiceImpl counterService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:order_counters;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE users (id BIGINT PRIMARY KEY)");
+        jdbc.execute("CREATE TABLE orders (id BIGINT AUTO_INCREMENT PRIMARY KEY, status VARCHAR(32) NOT NULL, " +
+                "assigned_employee_id BIGINT, created_by_cs_id BIGINT, deleted TINYINT NOT NULL DEFAULT 0)");
+        jdbc.execute("CREATE TABLE orders_archive (id BIGINT PRIMARY KEY, status VARCHAR(32) NOT NULL, " +
+                "assigned_employee_id BIGINT, created_by_cs_id BIGINT, deleted TINYINT NOT NULL DEFAULT 0)");
+        jdbc.execute("CREATE TABLE order_status_counters (owner_type VARCHAR(16) NOT NULL, owner_id BIGINT NOT NULL, " +
+                "status VARCHAR(32) NOT NULL, count BIGINT NOT NULL DEFAULT 0, updated_at DATETIME, " +
+                "PRIMARY KEY (owner_type, owner_id, status))");
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(OrderStatusCounterMapper.class);
+        OrderStatusCounterMapper realMapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration))
+                .getMapper(OrderStatusCounterMapper.class);
+        mapper = mock(OrderStatusCounterMapper.class, delegatesTo(realMapper));
+        counterService = new OrderCounterServiceImpl(mapper, new DataSourceTransactionManager(dataSource), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void repairsOnlyDriftedOwnersAcrossChunks() {
+        jdbc.update("INSERT INTO users VALUES (1), (2), (3), (4), (5)");
+        // 员工4的一单已归档，客服1名下三单
+        jdbc.update("INSERT INTO orders (status, assigned_employee_id, created_by_cs_id) VALUES " +
+                "('IN_PROGRESS', 2, 1), ('COMPLETED', 2, 1), ('PENDING_ACCEPTANCE', 5, 1)");
+        jdbc.update("INSERT INTO orders_archive VALUES (100, 'COMPLETED', 4, 3, 0)");
+        jdbc.update("INSERT INTO order_status_counters (owner_type, owner_id, status, count) VALUES " +
+                "('EMPLOYEE', 2, 'IN_PROGRESS', 1), ('EMPLOYEE', 2, 'COMPLETED', 1), " +
+                "('EMPLOYEE', 4, 'COMPLETED', 1), ('EMPLOYEE', 4, 'REJECTED', 2), " +
+                "('CS', 1, 'IN_PROGRESS', 1), ('CS', 1, 'COMPLETED', 1), ('CS', 1, 'PENDING_ACCEPTANCE', 1), " +
+                "('CS', 3, 'COMPLETED', 1)");
+
+        counterService.reconcile();
+
+        // 员工4多计了2单REJECTED，员工5缺少计数行；其余归属人一致，不加锁
+        assertThat(counterService.countsForEmployee(4L))
+                .containsEntry(Order.OrderStatus.COMPLETED, 1L)
+                .containsEntry(Order.OrderStatus.REJECTED, 0L);
+        assertThat(counterService.countsForEmployee(5L)).containsEntry(Order.OrderStatus.PENDING_ACCEPTANCE, 1L);
+        assertThat(counterService.countsForEmployee(2L))
+                .containsEntry(Order.OrderStatus.IN_PROGRESS, 1L)
+                .containsEntry(Order.OrderStatus.COMPLETED, 1L);
+        verify(mapper).lockByOwners(OrderStatusCounter.OwnerType.EMPLOYEE, List.of(4L));
+        verify(mapper).lockByOwners(OrderStatusCounter.OwnerType.EMPLOYEE, List.of(5L));
+        verify(mapper, never()).lockByOwners(eq(OrderStatusCounter.OwnerType.CS), anyList());
+    }
+
+    @Test
+    void consistentCountersTakeNoLocks() {
+        jdbc.update("INSERT INTO users VALUES (1), (2)");
+        jdbc.update("INSERT INTO orders (status, assigned_employee_id, created_by_cs_id) VALUES ('IN_PROGRESS', 2, 1)");
+        jdbc.update("INSERT INTO order_status_counters (owner_type, owner_id, status, count) VALUES " +
+                "('EMPLOYEE', 2, 'IN_PROGRESS', 1), ('CS', 1, 'IN_PROGRESS', 1)");
+
+        counterService.reconcile();
+
+        verify(mapper, never()).lockByOwners(any(), anyList());
+        verify(mapper, never()).applyDeltas(anyList());
+        Map<Order.OrderStatus, Long> counts = counterService.countsForCs(1L);
+        assertThat(counts).containsEntry(Order.OrderStatus.IN_PROGRESS, 1L);
+    }
+}
@@ -0,0 +1,208 @@
+package com.peiwan.service.impl;
+
+import com.peiwan.dto.OrderAuditRequest;
+import com.peiwan.entity.AuditLog;
+import com.peiwan.entity.Order;
+import com.peiwan.exception.OrderTransitionRejectedException;
+import com.peiwan.mapper.AuditLogMapper;
+import com.peiwan.mapper.OrderMapper;
+import com.peiwan.mapper.OrderProofMapper;
+import com.peiwan.mapper.OrderTimelineMapper;
+import com.peiwan.service.OrderCounterService;
+import com.peiwan.service.support.OrderEventBus;
+import com.peiwan.service.support.OrderNumberAllocator;
+import com.peiwan.service.support.OrderStateMachine;
+import com.peiwan.service.support.OrderStatusDeltas;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 工单状态迁移并发测试
+ * 真实的OrderMapper跑在H2（MySQL兼容模式）上，其余依赖为mock；
+ * 多个线程同时对同一工单发起迁移，条件更新只能有一个命中；
+ * 命中的原状态和新版本号由UPDATE带回，缓存中有更新前的工单时不再读回。
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class OrderTransitionConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final String URL = "jdbc:h2:mem:order_transition;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private Connection keepAlive;
+    private OrderMapper orderMapper;
+    private OrderCounterService orderCounterService;
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        keepAlive = DriverManager.getConnection(URL);
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE TABLE orders (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, order_number VARCHAR(50) NOT NULL, " +
+                    "client_info VARCHAR(500) NOT NULL, status VARCHAR(32) NOT NULL, " +
+                    "previous_status VARCHAR(32), assigned_employee_id BIGINT NOT NULL, " +
+                    "created_by_cs_id BIGINT NOT NULL, accepted_at DATETIME, completed_at DATETIME, " +
+                    "acceptance_screenshot_url VARCHAR(500), completion_screenshot_url VARCHAR(500), " +
+                    "sla_escalated_at DATETIME, version INT NOT NULL DEFAULT 0, " +
+                    "created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, deleted TINYINT NOT NULL DEFAULT 0)");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", URL, null, null)));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(OrderMapper.class);
+        // SqlSessionManager按调用自动开启、提交并关闭会话，可被多个线程共用
+        SqlSessionManager sessions = SqlSessionManager.newInstance(new SqlSessionFactoryBuilder().build(configuration));
+        orderMapper = sessions.getMapper(OrderMapper.class);
+
+        orderCounterService = mock(OrderCounterService.class);
+        orderService = orderService(orderMapper);
+    }
+
+    private OrderServiceImpl orderService(OrderMapper mapper) {
+        return new OrderServiceImpl(mapper, mock(OrderProofMapper.class), mock(AuditLogMapper.class),
+                mock(OrderNumberAllocator.class), new ConcurrentMapCacheManager(), orderCounterService,
+                mock(OrderTimelineMapper.class), new OrderStateMachine(), mock(OrderEventBus.class));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP TABLE orders");
+        }
+        keepAlive.close();
+    }
+
+    @Test
+    void concurrentAcceptsOnOneOrderSucceedOnce() throws Exception {
+        long orderId = insertOrder(Order.OrderStatus.PENDING_ACCEPTANCE);
+
+        List<Object> results = hammer(() -> orderService.acceptOrder(orderId, "accept.png", null, 7L));
+
+        assertThat(results).filteredOn(Order.class::isInstance).hasSize(1);
+        assertThat(results).filteredOn(OrderTransitionRejectedException.class::isInstance).hasSize(THREADS - 1);
+        Order order = orderMapper.selectById(orderId);
+        assertThat(order.getStatus()).isEqualTo(Order.OrderStatus.IN_PROGRESS);
+        assertThat(order.getPreviousStatus()).isEqualTo(Order.OrderStatus.PENDING_ACCEPTANCE);
+        assertThat(order.getVersion()).isEqualTo(1);
+        verify(orderCounterService, times(1)).apply(any(OrderStatusDeltas.class));
+    }
+
+    @Test
+    void concurrentAuditsResolveTheMatchedSourceStatus() throws Exception {
+        long orderId = insertOrder(Order.OrderStatus.REJECTED_TO_SUBMIT);
+        AtomicInteger turn = new AtomicInteger();
+
+        // 通过与驳回交替发起，两种迁移都以PENDING_AUDIT/REJECTED_TO_SUBMIT为原状态
+        List<Object> results = hammer(() -> {
+            OrderAuditRequest request = new OrderAuditRequest();
+            request.setAction(turn.getAndIncrement() % 2 == 0 ? AuditLog.AuditAction.APPROVE : AuditLog.AuditAction.REJECT);
+            request.setVersion(0);
+            return orderService.auditOrder(orderId, request, 9L);
+        });
+
+        List<Object> succeeded = results.stream().filter(Order.class::isInstance).toList();
+        assertThat(succeeded).hasSize(1);
+        Order winner = (Order) succeeded.get(0);
+        assertThat(winner.getPreviousStatus()).isEqualTo(Order.OrderStatus.REJECTED_TO_SUBMIT);
+        assertThat(winner.getVersion()).isEqualTo(1);
+        assertThat(orderMapper.selectById(orderId).getStatus()).isIn(Order.OrderStatus.COMPLETED, Order.OrderStatus.REJECTED);
+        verify(orderCounterService, times(1)).apply(any(OrderStatusDeltas.class));
+    }
+
+    @Test
+    void transitionOnCachedOrderIsOneStatement() throws Exception {
+        long orderId = insertOrder(Order.OrderStatus.REJECTED_TO_SUBMIT);
+        OrderMapper mapper = mock(OrderMapper.class, AdditionalAnswers.delegatesTo(orderMapper));
+        OrderServiceImpl service = orderService(mapper);
+        service.findById(orderId);
+
+        OrderAuditRequest request = new OrderAuditRequest();
+        request.setAction(AuditLog.AuditAction.APPROVE);
+        Order audited = service.auditOrder(orderId, request, 9L);
+
+        // 只有填充缓存时读过一次，迁移后没有再读回
+        verify(mapper, times(1)).selectById(orderId);
+        assertThat(audited.getStatus()).isEqualTo(Order.OrderStatus.COMPLETED);
+        assertThat(audited.getPreviousStatus()).isEqualTo(Order.OrderStatus.REJECTED_TO_SUBMIT);
+        assertThat(audited.getVersion()).isEqualTo(1);
+        assertThat(audited.getOrderNumber()).isEqualTo("ORD202401010001");
+        Order stored = orderMapper.selectById(orderId);
+        assertThat(stored.getVersion()).isEqualTo(1);
+        assertThat(stored.getUpdatedAt()).isEqualTo(audited.getUpdatedAt());
+    }
+
+    private long insertOrder(Order.OrderStatus status) throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.executeUpdate("INSERT INTO orders (order_number, client_info, status, assigned_employee_id, created_by_cs_id) " +
+                    "VALUES ('ORD202401010001', '委托人', '" + status.name() + "', 7, 3)", Statement.RETURN_GENERATED_KEYS);
+            try (var keys = statement.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * 所有线程就绪后同时执行，收集各自的返回值或异常
+     */
+    private static List<Object> hammer(Callable<Object> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch ready = new CountDownLatch(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    try {
+                        return task.call();
+                    } catch (RuntimeException e) {
+                        return e;
+                    }
+                }));
+            }
+            ready.await();
+            start.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
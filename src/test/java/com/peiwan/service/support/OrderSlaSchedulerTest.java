@@ -0,0 +1,125 @@
+package com.peiwan.service.support;
+
+import com.peiwan.dto.OrderPushEvent;
+import com.peiwan.entity.Order;
+import com.peiwan.mapper.OrderMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * SLA超时升级测试：标记后按状态配置的动作推送升级事件，写入失败的工单稍后重试
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class OrderSlaSchedulerTest {
+
+    private final OrderMapper orderMapper = mock(OrderMapper.class);
+    private final OrderPushHub orderPushHub = mock(OrderPushHub.class);
+    private OrderSlaScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void escalationNotifiesConfiguredTargets() {
+        scheduler = scheduler("NOTIFY_CS,NOTIFY_EMPLOYEE", "");
+        Order order = order(Order.OrderStatus.PENDING_ACCEPTANCE);
+        when(orderMapper.markSlaEscalated(anyList(), any())).thenReturn(1);
+        when(orderMapper.findSlaEscalated(anyList(), any())).thenReturn(List.of(order));
+
+        scheduler.track(order);
+
+        ArgumentCaptor<OrderPushEvent> event = ArgumentCaptor.forClass(OrderPushEvent.class);
+        verify(orderPushHub, timeout(2000)).publish(eq(3L), event.capture());
+        verify(orderPushHub, timeout(2000)).publish(eq(7L), any(OrderPushEvent.class));
+        assertThat(event.getValue().getType()).isEqualTo(OrderPushEvent.EventType.SLA_ESCALATED);
+        assertThat(event.getValue().getOrderId()).isEqualTo(1L);
+    }
+
+    @Test
+    void statusWithoutActionsIsOnlyMarked() {
+        scheduler = scheduler("NOTIFY_CS", "");
+        when(orderMapper.markSlaEscalated(anyList(), any())).thenReturn(1);
+
+        scheduler.track(order(Order.OrderStatus.PENDING_AUDIT));
+
+        verify(orderMapper, timeout(2000)).markSlaEscalated(anyList(), any());
+        verify(orderMapper, after(200).never()).findSlaEscalated(anyList(), any());
+        verify(orderPushHub, never()).publish(any(), any());
+    }
+
+    @Test
+    void failedEscalationIsRetried() {
+        scheduler = scheduler("", "");
+        when(orderMapper.markSlaEscalated(anyList(), any()))
+                .thenThrow(new IllegalStateException("连接已断开"))
+                .thenReturn(1);
+
+        scheduler.track(order(Order.OrderStatus.PENDING_ACCEPTANCE));
+
+        verify(orderMapper, timeout(2000).times(2)).markSlaEscalated(anyList(), any());
+        // 标记成功后不再挂载
+        verify(orderMapper, after(200).times(2)).markSlaEscalated(anyList(), any());
+        assertThat(scheduler.armedCount()).isZero();
+    }
+
+    @Test
+    void unknownActionIsRejected() {
+        assertThatThrownBy(() -> scheduler("NOTIFY_BOSS", ""))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("order.sla.actions.pending-acceptance");
+    }
+
+    @SuppressWarnings("unchecked")
+    private OrderSlaScheduler scheduler(String pendingAcceptanceActions, String pendingAuditActions) {
+        OrderSlaScheduler created = new OrderSlaScheduler(orderMapper, new ConcurrentMapCacheManager(), orderPushHub,
+                mock(PlatformTransactionManager.class), 10, 50, 1000, 1000,
+                pendingAcceptanceActions, pendingAuditActions, "");
+        // 数据库中没有待重建的定时器，只启动时间轮
+        Cursor<Order> empty = mock(Cursor.class);
+        when(empty.iterator()).thenReturn(Collections.emptyIterator());
+        when(orderMapper.streamSlaPending(any())).thenReturn(empty);
+        created.start();
+        return created;
+    }
+
+    /**
+     * 一小时前进入当前状态的工单，挂载后下一个tick即到期
+     */
+    private static Order order(Order.OrderStatus status) {
+        Order order = new Order();
+        order.setId(1L);
+        order.setOrderNumber("ORD202401010001");
+        order.setStatus(status);
+        order.setAssignedEmployeeId(7L);
+        order.setCreatedByCsId(3L);
+        order.setVersion(0);
+        order.setUpdatedAt(LocalDateTime.now().minusHours(1));
+        return order;
+    }
+}
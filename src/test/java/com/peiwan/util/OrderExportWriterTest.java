@@ -0,0 +1,57 @@
+package com.peiwan.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.peiwan.entity.Order;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 工单导出写出器测试
+ *
+ * @author peiwan
+ * @since 2024-01-01
+ */
+class OrderExportWriterTest {
+
+    @Test
+    void csvQuotesSeparatorsAndDoublesQuotes() throws IOException {
+        assertThat(csvClientInfo("张三, \"VIP\"")).isEqualTo("\"张三, \"\"VIP\"\"\"");
+        assertThat(csvClientInfo("普通客户")).isEqualTo("普通客户");
+    }
+
+    @Test
+    void csvNeutralizesFormulaPrefixes() throws IOException {
+        assertThat(csvClientInfo("=HYPERLINK(\"http://x\")")).isEqualTo("\"'=HYPERLINK(\"\"http://x\"\")\"");
+        assertThat(csvClientInfo("+1")).isEqualTo("\"'+1\"");
+        assertThat(csvClientInfo("-2")).isEqualTo("\"'-2\"");
+        assertThat(csvClientInfo("@SUM(A1)")).isEqualTo("\"'@SUM(A1)\"");
+        assertThat(csvClientInfo("\tcmd")).isEqualTo("\"'\tcmd\"");
+        assertThat(csvClientInfo("\rcmd")).isEqualTo("\"'\rcmd\"");
+        assertThat(csvClientInfo("a=1")).isEqualTo("a=1");
+    }
+
+    /**
+     * 导出只含clientInfo的一行，返回该字段在CSV中的原样文本
+     */
+    private static String csvClientInfo(String clientInfo) throws IOException {
+        Order order = new Order();
+        order.setId(1L);
+        order.setOrderNumber("ORD202401010001");
+        order.setClientInfo(clientInfo);
+
+        StringWriter out = new StringWriter();
+        OrderExportWriter writer = OrderExportWriter.create("csv", out, new ObjectMapper());
+        writer.write(order);
+        writer.finish();
+
+        String csv = out.toString();
+        String row = csv.substring(csv.indexOf("\r\n") + 2, csv.length() - 2);
+        String afterNumber = row.substring("1,ORD202401010001,".length());
+        // clientInfo之后的status、ID和时间共7列均为空
+        return afterNumber.substring(0, afterNumber.length() - ",,,,,,,".length());
+    }
+}